@@ -0,0 +1,10 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import java.math.BigDecimal;
+
+//balance + version as returned by the single-statement UPDATE ... RETURNING queries
+public interface BalanceSnapshot {
+    BigDecimal getAccountBalance();
+
+    Long getVersion();
+}
@@ -0,0 +1,18 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceUpdateCommand {
+    private Long accountId;
+    private BalanceOperation operation;
+    private BigDecimal amount;
+    private String description;
+}
@@ -0,0 +1,24 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+//Outcome of one debit/credit: either the new balance or the error that rejected it (never both)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceUpdateResult {
+    private BigDecimal newBalance;
+    private RuntimeException error;
+
+    public static BalanceUpdateResult success(BigDecimal newBalance) {
+        return new BalanceUpdateResult(newBalance, null);
+    }
+
+    public static BalanceUpdateResult failure(RuntimeException error) {
+        return new BalanceUpdateResult(null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Outcome of one item in a batch: either a result or the error that rejected it (never both)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferResult {
+    private TransferResult result;
+    private RuntimeException error;
+
+    public static BatchTransferResult success(TransferResult result) {
+        return new BatchTransferResult(result, null);
+    }
+
+    public static BatchTransferResult failure(RuntimeException error) {
+        return new BatchTransferResult(null, error);
+    }
+}
@@ -0,0 +1,6 @@
+package com.pm.greatadamu.accountservice.dto;
+
+//account row balance + uncompacted ledger entries + balance slots, read in one statement
+public interface LiveBalance extends BalanceSnapshot {
+    Long getId();
+}
@@ -0,0 +1,18 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferCommand {
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private String idempotencyKey;
+    private String description;
+}
@@ -0,0 +1,17 @@
+package com.pm.greatadamu.accountservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferResult {
+    private BigDecimal fromNewBalance;
+    private BigDecimal toNewBalance;
+    //true when the idempotency key had already been applied (replayed result)
+    private boolean alreadyApplied;
+}
@@ -0,0 +1,7 @@
+package com.pm.greatadamu.accountservice.exception;
+
+public class AccountNotActiveException extends RuntimeException {
+    public AccountNotActiveException(Long accountId) {
+        super("Account with id " + accountId + " is not active");
+    }
+}
@@ -4,4 +4,8 @@ public class AccountNotFoundException extends RuntimeException {
     public AccountNotFoundException(String accountNumber) {
         super("Account with number " + accountNumber + " not found");
     }
+
+    public AccountNotFoundException(Long accountId) {
+        super("Account with id " + accountId + " not found");
+    }
 }
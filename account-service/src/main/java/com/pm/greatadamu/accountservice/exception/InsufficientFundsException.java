@@ -0,0 +1,9 @@
+package com.pm.greatadamu.accountservice.exception;
+
+import java.math.BigDecimal;
+
+public class InsufficientFundsException extends RuntimeException {
+    public InsufficientFundsException(Long accountId, BigDecimal current, BigDecimal required) {
+        super("Insufficient funds in account " + accountId + ". Current: " + current + ", Required: " + required);
+    }
+}
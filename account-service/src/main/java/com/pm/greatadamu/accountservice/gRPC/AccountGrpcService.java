@@ -1,18 +1,44 @@
 package com.pm.greatadamu.accountservice.gRPC;
 
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import com.pm.greatadamu.accountservice.dto.BatchTransferResult;
+import com.pm.greatadamu.accountservice.dto.TransferCommand;
+import com.pm.greatadamu.accountservice.dto.TransferResult;
+import com.pm.greatadamu.accountservice.exception.AccountNotActiveException;
+import com.pm.greatadamu.accountservice.exception.AccountNotFoundException;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
 import com.pm.greatadamu.accountservice.model.Account;
 import com.pm.greatadamu.accountservice.model.AccountStatus;
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
 import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import com.pm.greatadamu.accountservice.service.BalanceGroupCommitter;
+import com.pm.greatadamu.accountservice.service.BalanceSequencer;
+import com.pm.greatadamu.accountservice.service.BalanceService;
+import com.pm.greatadamu.accountservice.service.BalanceUpdateMode;
+import com.pm.greatadamu.accountservice.service.BalanceWatchRegistry;
+import com.pm.greatadamu.accountservice.service.ShardedBalanceService;
 import com.pm.greatadamu.grpc.account.*;
 import com.pm.greatadamu.grpc.account.AccountServiceGrpc;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @GrpcService
 @RequiredArgsConstructor
@@ -20,6 +46,18 @@ import java.math.BigDecimal;
 public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBase {
 
     private final AccountRepository accountRepository;
+    private final BalanceService balanceService;
+    //only present in SEQUENCED / GROUP_COMMIT mode
+    private final ObjectProvider<BalanceSequencer> balanceSequencer;
+    private final ObjectProvider<BalanceGroupCommitter> balanceGroupCommitter;
+    private final BalanceWatchRegistry balanceWatchRegistry;
+    private final ShardedBalanceService shardedBalanceService;
+
+    @Value("${account.balance.update-mode:LOCKING}")
+    private BalanceUpdateMode updateMode;
+
+    @Value("${account.grpc.max-bulk-ids:1000}")
+    private int maxBulkIds;
 
     /**
      * Validate if account exists and is active
@@ -72,15 +110,16 @@ public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBas
         log.info("gRPC Server: Getting balance for account ID: {}", accountId);
 
         try {
-            Account account = accountRepository.findById(accountId)
+            BigDecimal balance = Optional.ofNullable(balanceService.findBalances(List.of(accountId)).get(accountId))
                     .orElseThrow(() -> new RuntimeException("Account not found"));
 
             GetBalanceResponse response = GetBalanceResponse.newBuilder()
-                    .setBalance(account.getAccountBalance().toString())
+                    .setBalance(balance.toString())
+                    .setBalanceMoney(MoneyCodec.toMoney(balance))
                     .setCurrency("USD")
                     .build();
 
-            log.info("gRPC Server: Account {} balance: {}", accountId, account.getAccountBalance());
+            log.info("gRPC Server: Account {} balance: {}", accountId, balance);
 
             responseObserver.onNext(response);
             responseObserver.onCompleted();
@@ -93,11 +132,123 @@ public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBas
         }
     }
 
+    /**
+     * Validate many accounts with one findAllById query (one entry per distinct requested id)
+     */
+    @Override
+    public void validateAccounts(ValidateAccountsRequest request,
+                                 StreamObserver<ValidateAccountsResponse> responseObserver) {
+        List<Long> accountIds = request.getAccountIdsList().stream().distinct().toList();
+        if (accountIds.size() > maxBulkIds) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("At most " + maxBulkIds + " account ids per call")
+                    .asRuntimeException());
+            return;
+        }
+        log.info("gRPC Server: Validating {} accounts", accountIds.size());
+
+        try {
+            Map<Long, Account> accounts = findAllById(accountIds);
+
+            ValidateAccountsResponse.Builder response = ValidateAccountsResponse.newBuilder();
+            for (Long accountId : accountIds) {
+                Account account = accounts.get(accountId);
+                boolean isActive = account != null && account.getAccountStatus() == AccountStatus.ACTIVE;
+                response.addResults(AccountValidation.newBuilder()
+                        .setAccountId(accountId)
+                        .setValidation(ValidateAccountResponse.newBuilder()
+                                .setExists(account != null)
+                                .setIsActive(isActive)
+                                .setMessage(account == null ? "Account not found"
+                                        : isActive ? "Account is active" : "Account is not active")));
+            }
+
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+
+        } catch (Exception e) {
+            log.error("gRPC Server: Error validating {} accounts: {}", accountIds.size(), e.getMessage());
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Error validating accounts: " + e.getMessage())
+                    .asRuntimeException());
+        }
+    }
+
+    /**
+     * Get many balances with one query, unknown ids are reported in not_found
+     */
+    @Override
+    public void getBalances(GetBalancesRequest request,
+                            StreamObserver<GetBalancesResponse> responseObserver) {
+        List<Long> accountIds = request.getAccountIdsList().stream().distinct().toList();
+        if (accountIds.size() > maxBulkIds) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("At most " + maxBulkIds + " account ids per call")
+                    .asRuntimeException());
+            return;
+        }
+        log.info("gRPC Server: Getting balances for {} accounts", accountIds.size());
+
+        try {
+            Map<Long, BigDecimal> balances = balanceService.findBalances(accountIds);
+
+            GetBalancesResponse.Builder response = GetBalancesResponse.newBuilder();
+            for (Long accountId : accountIds) {
+                BigDecimal balance = balances.get(accountId);
+                if (balance == null) {
+                    response.addNotFound(accountId);
+                    continue;
+                }
+                response.addBalances(AccountBalance.newBuilder()
+                        .setAccountId(accountId)
+                        .setBalance(GetBalanceResponse.newBuilder()
+                                .setBalance(balance.toString())
+                                .setCurrency("USD")
+                                .setBalanceMoney(MoneyCodec.toMoney(balance))));
+            }
+
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+
+        } catch (Exception e) {
+            log.error("gRPC Server: Error getting balances for {} accounts: {}", accountIds.size(), e.getMessage());
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Error getting balances: " + e.getMessage())
+                    .asRuntimeException());
+        }
+    }
+
+    /**
+     * Stream the current balances, then every committed change (latest value per account, slow clients are dropped)
+     */
+    @Override
+    public void watchBalances(WatchBalancesRequest request,
+                              StreamObserver<BalanceUpdate> responseObserver) {
+        List<Long> accountIds = request.getAccountIdsList().stream().distinct().toList();
+        if (accountIds.isEmpty() || accountIds.size() > maxBulkIds) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Watch between 1 and " + maxBulkIds + " accounts")
+                    .asRuntimeException());
+            return;
+        }
+        log.info("gRPC Server: Watching balances of {} accounts", accountIds.size());
+
+        //the stream stays open until the client cancels or falls too far behind
+        balanceWatchRegistry.subscribe(accountIds, (ServerCallStreamObserver<BalanceUpdate>) responseObserver);
+    }
+
+    private Map<Long, Account> findAllById(List<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+        return accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
     /**
      * Update account balance (debit or credit)
      */
     @Override
-    @Transactional
     public void updateBalance(UpdateBalanceRequest request,
                               StreamObserver<UpdateBalanceResponse> responseObserver) {
         long accountId = request.getAccountId();
@@ -107,15 +258,16 @@ public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBas
         //parse amount safely + validate
         final BigDecimal amount;
         try {
-            String rawAmount = request.getAmount();
+            //fixed-point Money when the client sends it, the string form otherwise
+            amount = MoneyCodec.fromMoneyOrString(
+                    request.hasAmountMoney() ? request.getAmountMoney() : null, request.getAmount());
 
-            if (rawAmount == null || rawAmount.isBlank()) {
+            if (amount == null) {
                 responseObserver.onError(Status.INVALID_ARGUMENT
                 .withDescription("Amount required")
                         .asRuntimeException());
                 return;
             }
-            amount = new BigDecimal(rawAmount);
 
             if (amount.compareTo(BigDecimal.ZERO) <= 0) {
                 //amount must be >0
@@ -124,55 +276,78 @@ public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBas
                         .asRuntimeException());
                 return;
             }
-        }catch (NumberFormatException e) {
-            //handle bad numbers properly
+        }catch (IllegalArgumentException e) {
+            //handle bad numbers (and bad Money scale/currency) properly
             responseObserver.onError(Status.INVALID_ARGUMENT
-                    .withDescription("Invalid amount format")
+                    .withDescription(e instanceof NumberFormatException ? "Invalid amount format" : e.getMessage())
                     .asRuntimeException());
             return;
 
         }
+        final BalanceOperation balanceOperation;
+        if (operation == OperationType.DEBIT) {
+            balanceOperation = BalanceOperation.DEBIT;
+        } else if (operation == OperationType.CREDIT) {
+            balanceOperation = BalanceOperation.CREDIT;
+        } else {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Unknown operation type")
+                    .asRuntimeException());
+            return;
+        }
         log.info("gRPC Server: {} {} for account ID: {}",
                 operation == OperationType.DEBIT ? "Debiting" : "Crediting",
                 amount, accountId);
 
-        try {
-            Account account = accountRepository.findByIdForUpdate(accountId)
-                    .orElseThrow(() -> new RuntimeException("Account not found"));
+        BalanceUpdateCommand command = new BalanceUpdateCommand(accountId, balanceOperation, amount, description);
 
-            BigDecimal currentBalance = account.getAccountBalance();
-            BigDecimal newBalance;
+        //SEQUENCED/GROUP_COMMIT: answered once the batch committed, the gRPC thread is not held meanwhile
+        //sharded accounts always use their slots, whatever the update mode
+        CompletableFuture<BalanceUpdateResult> update;
+        if (shardedBalanceService.isSharded(accountId)) {
+            try {
+                update = CompletableFuture.completedFuture(shardedBalanceService.applyShardedUpdate(command));
+            } catch (RuntimeException e) {
+                update = CompletableFuture.failedFuture(e);
+            }
+        } else if (updateMode == BalanceUpdateMode.SEQUENCED) {
+            update = balanceSequencer.getObject().submit(command);
+        } else if (updateMode == BalanceUpdateMode.GROUP_COMMIT) {
+            update = balanceGroupCommitter.getObject().submit(command);
+        } else if (updateMode == BalanceUpdateMode.CONDITIONAL) {
+            try {
+                update = CompletableFuture.completedFuture(balanceService.applyBalanceUpdateConditionally(command));
+            } catch (RuntimeException e) {
+                update = CompletableFuture.failedFuture(e);
+            }
+        } else if (updateMode == BalanceUpdateMode.LEDGER) {
+            try {
+                update = CompletableFuture.completedFuture(balanceService.appendLedgerEntry(command));
+            } catch (RuntimeException e) {
+                update = CompletableFuture.failedFuture(e);
+            }
+        } else {
+            try {
+                update = CompletableFuture.completedFuture(
+                        balanceService.applyBalanceUpdates(accountId, List.of(command)).get(0));
+            } catch (RuntimeException e) {
+                update = CompletableFuture.failedFuture(e);
+            }
+        }
 
-            if (operation == OperationType.DEBIT) {
-                // Subtract from balance
-                if (currentBalance.compareTo(amount) < 0) {
-                    responseObserver.onError(Status.FAILED_PRECONDITION
-                            .withDescription("Insufficient funds. Current: "  + currentBalance + ", Required: " + amount)
-                    .asRuntimeException());
-                    return;
-                }
-                newBalance = currentBalance.subtract(amount);
-                log.info("gRPC Server: Debiting {} from account {}. Current: {}, New: {}",
-                        amount, accountId, currentBalance, newBalance);
-            } else if (operation == OperationType.CREDIT) {
-                // Add to balance
-                newBalance = currentBalance.add(amount);
-                log.info("gRPC Server: Crediting {} to account {}. Current: {}, New: {}",
-                        amount, accountId, currentBalance, newBalance);
-            }else {
-                responseObserver.onError(Status.INVALID_ARGUMENT
-                        .withDescription("Unknown operation type")
-                        .asRuntimeException());
+        update.whenComplete((result, e) -> {
+            RuntimeException error = e != null
+                    ? (e instanceof RuntimeException re ? re : new RuntimeException(e))
+                    : result.getError();
+            if (error != null) {
+                responseObserver.onError(toBalanceUpdateStatus(accountId, error).asRuntimeException());
                 return;
             }
 
-            // Update balance
-            account.setAccountBalance(newBalance);
-            accountRepository.save(account);
-
             UpdateBalanceResponse response = UpdateBalanceResponse.newBuilder()
                     .setSuccess(true)
-                    .setNewBalance(newBalance.toString())
+                    .setNewBalance(result.getNewBalance().toString())
+                    .setNewBalanceMoney(MoneyCodec.toMoney(result.getNewBalance()))
                     .setMessage("Balance updated successfully")
                     .build();
 
@@ -180,19 +355,190 @@ public class AccountGrpcService extends AccountServiceGrpc.AccountServiceImplBas
 
             responseObserver.onNext(response);
             responseObserver.onCompleted();
+        });
+    }
 
-        } catch (RuntimeException e) {
-            if ("Acount not found".equals(e.getMessage())) {
-                responseObserver.onError(Status.NOT_FOUND
-                        .withDescription(e.getMessage())
+    private Status toBalanceUpdateStatus(long accountId, RuntimeException error) {
+        if (error instanceof AccountNotFoundException) {
+            return Status.NOT_FOUND.withDescription(error.getMessage());
+        }
+        if (error instanceof InsufficientFundsException) {
+            return Status.FAILED_PRECONDITION.withDescription(error.getMessage());
+        }
+        if (error instanceof RejectedExecutionException) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(error.getMessage());
+        }
+        log.error("gRPC Server: Error updating balance for account {}: {}", accountId, error.getMessage());
+        return Status.INTERNAL.withDescription("Error updating balance: " + error.getMessage());
+    }
+
+    /**
+     * Transfer between two accounts in one DB transaction (replaces debit + credit round trips)
+     */
+    @Override
+    public void transfer(TransferRequest request,
+                         StreamObserver<TransferResponse> responseObserver) {
+        long fromAccountId = request.getFromAccountId();
+        long toAccountId = request.getToAccountId();
+        String idempotencyKey = request.getIdempotencyKey();
+
+        if (idempotencyKey.isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Idempotency key required")
+                    .asRuntimeException());
+            return;
+        }
+
+        final BigDecimal amount;
+        try {
+            amount = MoneyCodec.fromMoneyOrString(
+                    request.hasAmountMoney() ? request.getAmountMoney() : null, request.getAmount());
+            if (amount == null) {
+                responseObserver.onError(Status.INVALID_ARGUMENT
+                        .withDescription("Amount required")
                         .asRuntimeException());
                 return;
             }
-            log.error("gRPC Server: Error updating balance for account {}: {}", accountId, e.getMessage());
 
+            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+                responseObserver.onError(Status.INVALID_ARGUMENT
+                        .withDescription("Amount must be greater than zero")
+                        .asRuntimeException());
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription(e instanceof NumberFormatException ? "Invalid amount format" : e.getMessage())
+                    .asRuntimeException());
+            return;
+        }
+        log.info("gRPC Server: Transfer {} from account {} to account {} (key {})",
+                amount, fromAccountId, toAccountId, idempotencyKey);
+
+        //the DB transaction is committed (or rolled back) before we answer the client
+        TransferResult result;
+        try {
+            result = balanceService.transfer(fromAccountId, toAccountId, amount,
+                    idempotencyKey, request.getDescription());
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
+            return;
+        } catch (AccountNotFoundException e) {
+            responseObserver.onError(Status.NOT_FOUND
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
+            return;
+        } catch (AccountNotActiveException | InsufficientFundsException e) {
+            responseObserver.onError(Status.FAILED_PRECONDITION
+                    .withDescription(e.getMessage())
+                    .asRuntimeException());
+            return;
+        } catch (RuntimeException e) {
+            log.error("gRPC Server: Error transferring from {} to {}: {}", fromAccountId, toAccountId, e.getMessage());
             responseObserver.onError(Status.INTERNAL
-                    .withDescription("Error updating balance: " + e.getMessage())
+                    .withDescription("Error transferring: " + e.getMessage())
                     .asRuntimeException());
+            return;
+        }
+
+        TransferResponse response = TransferResponse.newBuilder()
+                .setSuccess(true)
+                .setFromNewBalance(result.getFromNewBalance().toString())
+                .setToNewBalance(result.getToNewBalance().toString())
+                .setFromNewBalanceMoney(MoneyCodec.toMoney(result.getFromNewBalance()))
+                .setToNewBalanceMoney(MoneyCodec.toMoney(result.getToNewBalance()))
+                .setAlreadyApplied(result.isAlreadyApplied())
+                .setMessage(result.isAlreadyApplied() ? "Transfer already applied" : "Transfer completed successfully")
+                .build();
+
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Apply a batch of transfers in one DB transaction, one result per request item (same order)
+     */
+    @Override
+    public void transferBatch(TransferBatchRequest request,
+                              StreamObserver<TransferBatchResponse> responseObserver) {
+        List<TransferRequest> transfers = request.getTransfersList();
+        log.info("gRPC Server: Transfer batch of {} items", transfers.size());
+
+        //items that fail request validation are answered directly and never reach the DB
+        TransferBatchItemResult[] results = new TransferBatchItemResult[transfers.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<TransferCommand> commands = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest item = transfers.get(i);
+            BigDecimal amount;
+            try {
+                amount = MoneyCodec.fromMoneyOrString(
+                        item.hasAmountMoney() ? item.getAmountMoney() : null, item.getAmount());
+            } catch (IllegalArgumentException e) {
+                amount = null;
+            }
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0 || item.getIdempotencyKey().isBlank()) {
+                results[i] = TransferBatchItemResult.newBuilder()
+                        .setOutcome(TransferOutcome.INVALID_REQUEST)
+                        .setMessage("Amount must be a positive number and idempotency key is required")
+                        .build();
+                continue;
+            }
+            validIndexes.add(i);
+            commands.add(new TransferCommand(item.getFromAccountId(), item.getToAccountId(), amount,
+                    item.getIdempotencyKey(), item.getDescription()));
+        }
+
+        List<BatchTransferResult> applied;
+        try {
+            applied = balanceService.transferBatch(commands);
+        } catch (RuntimeException e) {
+            log.error("gRPC Server: Error applying transfer batch: {}", e.getMessage());
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Error applying transfer batch: " + e.getMessage())
+                    .asRuntimeException());
+            return;
+        }
+
+        for (int i = 0; i < applied.size(); i++) {
+            results[validIndexes.get(i)] = toBatchItemResult(applied.get(i));
+        }
+
+        responseObserver.onNext(TransferBatchResponse.newBuilder()
+                .addAllResults(Arrays.asList(results))
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    private TransferBatchItemResult toBatchItemResult(BatchTransferResult applied) {
+        TransferResult result = applied.getResult();
+        if (result != null) {
+            return TransferBatchItemResult.newBuilder()
+                    .setOutcome(result.isAlreadyApplied() ? TransferOutcome.ALREADY_APPLIED : TransferOutcome.APPLIED)
+                    .setFromNewBalance(result.getFromNewBalance().toString())
+                    .setToNewBalance(result.getToNewBalance().toString())
+                    .setFromNewBalanceMoney(MoneyCodec.toMoney(result.getFromNewBalance()))
+                    .setToNewBalanceMoney(MoneyCodec.toMoney(result.getToNewBalance()))
+                    .setMessage(result.isAlreadyApplied() ? "Transfer already applied" : "Transfer completed successfully")
+                    .build();
+        }
+
+        RuntimeException error = applied.getError();
+        TransferOutcome outcome;
+        if (error instanceof AccountNotFoundException) {
+            outcome = TransferOutcome.ACCOUNT_NOT_FOUND;
+        } else if (error instanceof AccountNotActiveException) {
+            outcome = TransferOutcome.ACCOUNT_NOT_ACTIVE;
+        } else if (error instanceof InsufficientFundsException) {
+            outcome = TransferOutcome.INSUFFICIENT_FUNDS;
+        } else {
+            outcome = TransferOutcome.INVALID_REQUEST;
         }
+        return TransferBatchItemResult.newBuilder()
+                .setOutcome(outcome)
+                .setMessage(error.getMessage())
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.grpc.account.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * BigDecimal <-> Money (int64 minor units + scale) for the account gRPC protocol.
+ * Decoding is BigDecimal.valueOf(unscaled, scale), which stays in BigDecimal's compact long form:
+ * no string building or parsing on the hot transfer path.
+ */
+public final class MoneyCodec {
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    //BigDecimal only keeps a long-backed value up to 18 digits
+    private static final int MAX_SCALE = 18;
+
+    private MoneyCodec() {
+    }
+
+    public static Money toMoney(BigDecimal amount) {
+        //negative scales (e.g. 1E+3) are widened so units_minor stays an exact integer
+        BigDecimal value = amount.scale() < 0 ? amount.setScale(0) : amount;
+        return Money.newBuilder()
+                .setUnitsMinor(value.unscaledValue().longValueExact())
+                .setScale(value.scale())
+                .setCurrency(DEFAULT_CURRENCY)
+                .build();
+    }
+
+    public static BigDecimal fromMoney(Money money) {
+        if (money.getScale() < 0 || money.getScale() > MAX_SCALE) {
+            throw new IllegalArgumentException("Invalid money scale: " + money.getScale());
+        }
+        if (!money.getCurrency().isEmpty() && !DEFAULT_CURRENCY.equals(money.getCurrency())) {
+            throw new IllegalArgumentException("Unsupported currency: " + money.getCurrency());
+        }
+        return BigDecimal.valueOf(money.getUnitsMinor(), money.getScale());
+    }
+
+    //money is null when the field is not set: older peers only send the string form
+    public static BigDecimal fromMoneyOrString(Money money, String legacy) {
+        if (money != null) {
+            return fromMoney(money);
+        }
+        if (legacy == null || legacy.isBlank()) {
+            return null;
+        }
+        return new BigDecimal(legacy);
+    }
+}
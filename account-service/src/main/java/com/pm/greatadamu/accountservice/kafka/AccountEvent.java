@@ -0,0 +1,16 @@
+package com.pm.greatadamu.accountservice.kafka;
+
+import com.pm.greatadamu.accountservice.model.AccountStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountEvent {
+    private Long accountId;
+    private Long customerId;
+    private AccountStatus accountStatus;
+    private AccountEventType eventType;
+}
@@ -0,0 +1,22 @@
+package com.pm.greatadamu.accountservice.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccountEventProducer {
+
+    private final KafkaTemplate<String, AccountEvent> kafkaTemplate;
+
+    private static final String TOPIC = "accounts";
+
+    //consumers (e.g. transaction-service validation cache) evict whatever they hold for this account
+    public void sendAccountEvent(AccountEvent event) {
+        log.info("Publishing AccountEvent to Kafka: {}", event);
+        kafkaTemplate.send(TOPIC, event.getAccountId().toString(), event);
+    }
+}
@@ -0,0 +1,7 @@
+package com.pm.greatadamu.accountservice.kafka;
+
+public enum AccountEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
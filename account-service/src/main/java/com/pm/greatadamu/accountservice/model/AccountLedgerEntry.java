@@ -0,0 +1,48 @@
+package com.pm.greatadamu.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//Append-only balance change (account.balance.update-mode=LEDGER): live balance = accounts.account_balance + uncompacted entries
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "account_ledger",
+        indexes = {
+                @Index(name = "idx_ledger_account_id", columnList = "accountId, id"),
+                @Index(name = "idx_ledger_account_compacted", columnList = "accountId, compacted")
+        })
+public class AccountLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_ledger_seq")
+    @SequenceGenerator(name = "account_ledger_seq", sequenceName = "account_ledger_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    //signed: credits positive, debits negative
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    private String description;
+
+    //true once LedgerCompactor has rolled the amount into accounts.account_balance
+    @Column(nullable = false)
+    private boolean compacted;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pm.greatadamu.accountservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//One row per applied Transfer RPC, so a retried idempotency key replays the original result
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "account_transfers",
+        indexes = {
+                @Index(name = "idx_transfer_from_account", columnList = "fromAccountId"),
+                @Index(name = "idx_transfer_to_account", columnList = "toAccountId")
+        })
+public class AccountTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_transfers_seq")
+    @SequenceGenerator(name = "account_transfers_seq", sequenceName = "account_transfers_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 80)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    //balances right after this transfer was applied
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal fromBalanceAfter;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal toBalanceAfter;
+
+    private String description;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
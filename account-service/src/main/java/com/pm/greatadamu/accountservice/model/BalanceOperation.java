@@ -0,0 +1,6 @@
+package com.pm.greatadamu.accountservice.model;
+
+public enum BalanceOperation {
+    DEBIT,
+    CREDIT
+}
@@ -0,0 +1,72 @@
+package com.pm.greatadamu.accountservice.repository;
+
+import com.pm.greatadamu.accountservice.model.AccountBalanceSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+
+    //creates slots 0..slots-1 that don't exist yet
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into account_balance_slots (id, account_id, slot, balance)
+            select nextval('account_balance_slots_seq'), :accountId, s, 0
+            from generate_series(0, :slots - 1) s
+            on conflict (account_id, slot) do nothing
+            """)
+    int insertMissingSlots(@Param("accountId") Long accountId, @Param("slots") int slots);
+
+    //locks one slot row for one statement; 0 when the slot doesn't exist
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            update account_balance_slots
+            set balance = balance + :amount
+            where account_id = :accountId
+              and slot = :slot
+            """)
+    int credit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    //any slot that covers the amount, skipping slots other writers hold; empty when none does
+    @Query(nativeQuery = true, value = """
+            update account_balance_slots
+            set balance = balance - :amount
+            where id = (select id from account_balance_slots
+                        where account_id = :accountId and balance >= :amount
+                        order by random()
+                        limit 1
+                        for update skip locked)
+              and balance >= :amount
+            returning id
+            """)
+    Optional<Long> debitAnySlot(@Param("accountId") Long accountId, @Param("amount") BigDecimal amount);
+
+    //zeroes every slot of the account and returns what they held (caller adds it to the locked account row)
+    @Query(nativeQuery = true, value = """
+            with locked as (
+                select id, balance from account_balance_slots
+                where account_id = :accountId and balance <> 0
+                for update
+            ), drained as (
+                update account_balance_slots s set balance = 0
+                from locked
+                where s.id = locked.id
+                returning locked.balance
+            )
+            select coalesce(sum(balance), 0) from drained
+            """)
+    BigDecimal drainSlots(@Param("accountId") Long accountId);
+
+    @Query("select coalesce(sum(s.balance), 0) from AccountBalanceSlot s where s.accountId = :accountId")
+    BigDecimal sumByAccountId(@Param("accountId") Long accountId);
+
+    @Query("select distinct s.accountId from AccountBalanceSlot s where s.balance <> 0")
+    List<Long> findAccountIdsWithFunds();
+}
@@ -0,0 +1,44 @@
+package com.pm.greatadamu.accountservice.repository;
+
+import com.pm.greatadamu.accountservice.model.AccountLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface AccountLedgerRepository extends JpaRepository<AccountLedgerEntry, Long> {
+
+    @Query("select coalesce(sum(l.amount), 0) from AccountLedgerEntry l where l.accountId = :accountId and l.compacted = false")
+    BigDecimal sumUncompacted(@Param("accountId") Long accountId);
+
+    //accounts with the oldest uncompacted entries first
+    @Query(nativeQuery = true, value = """
+            select account_id from account_ledger
+            where compacted = false
+            group by account_id
+            order by min(id)
+            limit :limit
+            """)
+    List<Long> findAccountIdsToCompact(@Param("limit") int limit);
+
+    //marks the entries and adds their sum to the snapshot in one statement (same snapshot for both)
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            with moved as (
+                update account_ledger set compacted = true
+                where account_id = :accountId and compacted = false
+                returning amount
+            )
+            update accounts
+            set account_balance = account_balance + (select coalesce(sum(amount), 0) from moved),
+                version = version + 1,
+                updated_at = now()
+            where id = :accountId
+            """)
+    int compact(@Param("accountId") Long accountId);
+}
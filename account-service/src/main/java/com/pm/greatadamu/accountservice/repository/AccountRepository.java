@@ -1,5 +1,7 @@
 package com.pm.greatadamu.accountservice.repository;
 
+import com.pm.greatadamu.accountservice.dto.BalanceSnapshot;
+import com.pm.greatadamu.accountservice.dto.LiveBalance;
 import com.pm.greatadamu.accountservice.model.Account;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,6 +9,9 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
@@ -15,4 +20,48 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @Query("select a from Account a where a.id = :id")
     Optional<Account> findByIdForUpdate(@Param("id") Long id);
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    // locking read for many accounts in one statement, rows are locked in ascending id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids order by a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // ----- single-statement balance changes: no locking read, the row lock is held for one statement -----
+
+    //empty when the account doesn't exist or the balance is too low
+    @Query(nativeQuery = true, value = """
+            update accounts
+            set account_balance = account_balance - :amount, version = version + 1, updated_at = now()
+            where id = :id
+              and account_balance >= :amount
+            returning account_balance as accountBalance, version as version
+            """)
+    Optional<BalanceSnapshot> debitIfSufficient(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    //empty when the account doesn't exist
+    @Query(nativeQuery = true, value = """
+            update accounts
+            set account_balance = account_balance + :amount, version = version + 1, updated_at = now()
+            where id = :id
+            returning account_balance as accountBalance, version as version
+            """)
+    Optional<BalanceSnapshot> credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Query("select a.accountBalance from Account a where a.id = :id")
+    Optional<BigDecimal> findBalanceById(@Param("id") Long id);
+
+    //row balance + uncompacted ledger entries + balance slots, in one statement so a compaction
+    //or consolidation committing in between can't make money count twice (or not at all)
+    @Query(nativeQuery = true, value = """
+            select a.id as id,
+                   a.account_balance
+                       + coalesce((select sum(l.amount) from account_ledger l
+                                   where l.account_id = a.id and l.compacted = false), 0)
+                       + coalesce((select sum(s.balance) from account_balance_slots s
+                                   where s.account_id = a.id), 0) as accountBalance,
+                   a.version as version
+            from accounts a
+            where a.id in (:ids)
+            """)
+    List<LiveBalance> findLiveBalances(@Param("ids") Collection<Long> ids);
 }
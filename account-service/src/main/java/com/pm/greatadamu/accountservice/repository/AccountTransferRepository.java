@@ -0,0 +1,14 @@
+package com.pm.greatadamu.accountservice.repository;
+
+import com.pm.greatadamu.accountservice.model.AccountTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AccountTransferRepository extends JpaRepository<AccountTransfer, Long> {
+    Optional<AccountTransfer> findByIdempotencyKey(String idempotencyKey);
+
+    List<AccountTransfer> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+}
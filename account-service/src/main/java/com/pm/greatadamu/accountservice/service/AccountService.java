@@ -3,6 +3,9 @@ package com.pm.greatadamu.accountservice.service;
 import com.pm.greatadamu.accountservice.dto.AccountRequestDto;
 import com.pm.greatadamu.accountservice.dto.AccountResponseDto;
 import com.pm.greatadamu.accountservice.exception.AccountNotFoundException;
+import com.pm.greatadamu.accountservice.kafka.AccountEvent;
+import com.pm.greatadamu.accountservice.kafka.AccountEventProducer;
+import com.pm.greatadamu.accountservice.kafka.AccountEventType;
 import com.pm.greatadamu.accountservice.mapper.AccountMapper;
 import com.pm.greatadamu.accountservice.model.Account;
 import com.pm.greatadamu.accountservice.repository.AccountRepository;
@@ -18,6 +21,7 @@ import java.math.BigDecimal;
 public class AccountService {
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
+    private final AccountEventProducer accountEventProducer;
 
     public AccountResponseDto createAccount(AccountRequestDto accountRequestDto) {
         //take user response and map to account entity
@@ -25,6 +29,7 @@ public class AccountService {
 
         // save entity to DB(insert into accounts table)
         Account savedAccount=  accountRepository.save(account);
+        publishAccountEvent(savedAccount, AccountEventType.CREATED);
 
         //send it(entity) to responseDTO so user can see account created
         return accountMapper.mapToResponse(savedAccount);
@@ -41,6 +46,7 @@ public class AccountService {
 
            //save updated account
         Account updatedAccount = accountRepository.save(account);
+        publishAccountEvent(updatedAccount, AccountEventType.UPDATED);
 
               //show user the update made
         return accountMapper.mapToResponse(updatedAccount);
@@ -58,8 +64,17 @@ public class AccountService {
         Account account = accountRepository.findByAccountNumber(accountNumber)
                         .orElseThrow(() ->new AccountNotFoundException(accountNumber));
         accountRepository.delete(account);
+        publishAccountEvent(account, AccountEventType.DELETED);
 
     }
 
+    //tell other services (validation caches) that this account changed
+    private void publishAccountEvent(Account account, AccountEventType eventType) {
+        accountEventProducer.sendAccountEvent(new AccountEvent(
+                account.getId(),
+                account.getCustomerId(),
+                account.getAccountStatus(),
+                eventType));
+    }
 
 }
@@ -0,0 +1,5 @@
+package com.pm.greatadamu.accountservice.service;
+
+//published inside the balance-changing transaction; BalanceWatchRegistry reads the balance back after commit
+public record BalanceChangedEvent(Long accountId) {
+}
@@ -0,0 +1,152 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for UpdateBalance (account.balance.update-mode=GROUP_COMMIT).
+ * A committer takes the first queued update, keeps collecting for up to window-ms or max-batch-size
+ * updates, then applies the whole group in one DB transaction, so concurrent callers share one commit.
+ * With more than one committer, one group collects while another commits; groups lock their accounts
+ * in ascending id order, so they can't deadlock each other.
+ */
+@Component
+//@PostConstruct start() launches the committer threads; outside GROUP_COMMIT the bean and its threads don't exist
+@ConditionalOnProperty(name = "account.balance.update-mode", havingValue = "GROUP_COMMIT")
+@Slf4j
+public class BalanceGroupCommitter {
+    private record PendingUpdate(BalanceUpdateCommand command, CompletableFuture<BalanceUpdateResult> result,
+                                 long enqueuedAt) {
+    }
+
+    private final BalanceService balanceService;
+    private final BlockingQueue<PendingUpdate> queue;
+    private final List<Thread> committers = new ArrayList<>();
+    private final int committerCount;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSize;
+    private final Timer waitTime;
+    private volatile boolean running = true;
+
+    public BalanceGroupCommitter(BalanceService balanceService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${account.balance.group-commit.committers:2}") int committerCount,
+                                 @Value("${account.balance.group-commit.window-ms:2}") long windowMs,
+                                 @Value("${account.balance.group-commit.max-batch-size:200}") int maxBatchSize,
+                                 @Value("${account.balance.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.balanceService = balanceService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.committerCount = committerCount;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatchSize = maxBatchSize;
+
+        Gauge.builder("account.balance.group-commit.queue.depth", queue, BlockingQueue::size)
+                .description("Balance updates waiting for a group")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("account.balance.group-commit.batch.size")
+                .description("Balance updates applied in one DB transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTime = Timer.builder("account.balance.group-commit.wait")
+                .description("Time from enqueue until the update's group starts its transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < committerCount; i++) {
+            committers.add(Thread.ofPlatform()
+                    .name("balance-group-commit-" + i)
+                    .start(this::run));
+        }
+        log.info("Balance group commit started with {} committers", committerCount);
+    }
+
+    //completes with the result once the group's DB transaction committed (or failed)
+    public CompletableFuture<BalanceUpdateResult> submit(BalanceUpdateCommand command) {
+        CompletableFuture<BalanceUpdateResult> result = new CompletableFuture<>();
+        if (!queue.offer(new PendingUpdate(command, result, System.nanoTime()))) {
+            result.completeExceptionally(new RejectedExecutionException("Balance group commit queue is full"));
+        }
+        return result;
+    }
+
+    private void run() {
+        List<PendingUpdate> group = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                group.add(queue.take());
+                //the window starts with the first update of the group
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatchSize) {
+                    queue.drainTo(group, maxBatchSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingUpdate next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                group.forEach(update -> update.result().completeExceptionally(
+                        new RejectedExecutionException("Balance group commit is shutting down")));
+                break;
+            }
+            apply(group);
+            group.clear();
+        }
+        log.info("Balance group committer {} stopped", Thread.currentThread().getName());
+    }
+
+    private void apply(List<PendingUpdate> group) {
+        long start = System.nanoTime();
+        group.forEach(update -> waitTime.record(start - update.enqueuedAt(), TimeUnit.NANOSECONDS));
+        batchSize.record(group.size());
+
+        List<BalanceUpdateResult> results;
+        try {
+            results = balanceService.applyBalanceUpdateGroup(group.stream().map(PendingUpdate::command).toList());
+        } catch (RuntimeException e) {
+            //the transaction itself failed: nothing was applied
+            group.forEach(update -> update.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).result().complete(results.get(i));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        committers.forEach(Thread::interrupt);
+        //anything still queued was never applied, callers get an error instead of hanging
+        PendingUpdate update;
+        while ((update = queue.poll()) != null) {
+            update.result().completeExceptionally(new RejectedExecutionException("Balance group commit is shutting down"));
+        }
+    }
+}
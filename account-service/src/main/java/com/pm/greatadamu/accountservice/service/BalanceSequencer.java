@@ -0,0 +1,137 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Single-writer lanes for UpdateBalance (account.balance.update-mode=SEQUENCED).
+ * Every account id maps to one lane, so only one thread per instance ever writes a given account.
+ * A lane drains whatever is queued, groups it by account and applies each group in one DB transaction,
+ * so a hot account pays one row lock per batch instead of one per request.
+ */
+@Component
+//a bean only in SEQUENCED mode, so the other modes never start its lane writer threads (see start())
+@ConditionalOnProperty(name = "account.balance.update-mode", havingValue = "SEQUENCED")
+@Slf4j
+public class BalanceSequencer {
+    private record PendingUpdate(BalanceUpdateCommand command, CompletableFuture<BalanceUpdateResult> result) {
+    }
+
+    private final BalanceService balanceService;
+    private final List<BlockingQueue<PendingUpdate>> queues = new ArrayList<>();
+    private final List<DistributionSummary> batchSizes = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final int maxBatchSize;
+    private volatile boolean running = true;
+
+    public BalanceSequencer(BalanceService balanceService,
+                            MeterRegistry meterRegistry,
+                            @Value("${account.balance.sequencer.lanes:8}") int lanes,
+                            @Value("${account.balance.sequencer.queue-capacity:10000}") int queueCapacity,
+                            @Value("${account.balance.sequencer.max-batch-size:500}") int maxBatchSize) {
+        this.balanceService = balanceService;
+        this.maxBatchSize = maxBatchSize;
+        for (int i = 0; i < lanes; i++) {
+            BlockingQueue<PendingUpdate> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Gauge.builder("account.balance.sequencer.queue.depth", queue, BlockingQueue::size)
+                    .description("Balance updates waiting on this lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            batchSizes.add(DistributionSummary.builder("account.balance.sequencer.batch.size")
+                    .description("Updates applied to one account in one DB transaction")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < queues.size(); i++) {
+            int lane = i;
+            writers.add(Thread.ofPlatform()
+                    .name("balance-lane-" + lane)
+                    .start(() -> runLane(lane)));
+        }
+        log.info("Balance sequencer started with {} lanes", queues.size());
+    }
+
+    //completes with the result once the lane's DB transaction committed (or failed)
+    public CompletableFuture<BalanceUpdateResult> submit(BalanceUpdateCommand command) {
+        int lane = Math.floorMod(Long.hashCode(command.getAccountId()), queues.size());
+        CompletableFuture<BalanceUpdateResult> result = new CompletableFuture<>();
+        if (!queues.get(lane).offer(new PendingUpdate(command, result))) {
+            result.completeExceptionally(new RejectedExecutionException("Balance lane " + lane + " is full"));
+        }
+        return result;
+    }
+
+    private void runLane(int lane) {
+        BlockingQueue<PendingUpdate> queue = queues.get(lane);
+        List<PendingUpdate> drained = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                drained.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(drained, maxBatchSize - 1);
+
+            //keep arrival order per account
+            Map<Long, List<PendingUpdate>> byAccount = new LinkedHashMap<>();
+            for (PendingUpdate update : drained) {
+                byAccount.computeIfAbsent(update.command().getAccountId(), id -> new ArrayList<>()).add(update);
+            }
+            byAccount.forEach((accountId, updates) -> apply(lane, accountId, updates));
+            drained.clear();
+        }
+        log.info("Balance lane {} stopped", lane);
+    }
+
+    private void apply(int lane, Long accountId, List<PendingUpdate> updates) {
+        batchSizes.get(lane).record(updates.size());
+        List<BalanceUpdateResult> results;
+        try {
+            results = balanceService.applyBalanceUpdates(accountId,
+                    updates.stream().map(PendingUpdate::command).toList());
+        } catch (RuntimeException e) {
+            //not found, or the transaction itself failed: nothing was applied
+            updates.forEach(update -> update.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < updates.size(); i++) {
+            updates.get(i).result().complete(results.get(i));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writers.forEach(Thread::interrupt);
+        //anything still queued was never applied, callers get an error instead of hanging
+        queues.forEach(queue -> {
+            PendingUpdate update;
+            while ((update = queue.poll()) != null) {
+                update.result().completeExceptionally(new RejectedExecutionException("Balance sequencer is shutting down"));
+            }
+        });
+    }
+}
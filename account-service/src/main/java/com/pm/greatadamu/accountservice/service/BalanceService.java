@@ -0,0 +1,406 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.dto.BalanceSnapshot;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import com.pm.greatadamu.accountservice.dto.BatchTransferResult;
+import com.pm.greatadamu.accountservice.dto.LiveBalance;
+import com.pm.greatadamu.accountservice.dto.TransferCommand;
+import com.pm.greatadamu.accountservice.dto.TransferResult;
+import com.pm.greatadamu.accountservice.exception.AccountNotActiveException;
+import com.pm.greatadamu.accountservice.exception.AccountNotFoundException;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.AccountLedgerEntry;
+import com.pm.greatadamu.accountservice.model.AccountStatus;
+import com.pm.greatadamu.accountservice.model.AccountTransfer;
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
+import com.pm.greatadamu.accountservice.repository.AccountLedgerRepository;
+import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import com.pm.greatadamu.accountservice.repository.AccountTransferRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceService {
+    private final AccountRepository accountRepository;
+    private final AccountTransferRepository accountTransferRepository;
+    private final AccountLedgerRepository accountLedgerRepository;
+    private final ShardedBalanceService shardedBalanceService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${account.balance.update-mode:LOCKING}")
+    private BalanceUpdateMode updateMode;
+
+    /**
+     * Debit one account and credit another in a single DB transaction.
+     * Both rows are locked in ascending id order so two opposite transfers can't deadlock.
+     * A sharded account's row is read without the lock: its side of the transfer goes through the balance slots.
+     */
+    @Transactional
+    public TransferResult transfer(Long fromAccountId, Long toAccountId, BigDecimal amount,
+                                   String idempotencyKey, String description) {
+        if (fromAccountId.equals(toAccountId)) {
+            throw new IllegalArgumentException("Source and destination account must be different");
+        }
+
+        //lock lower id first -> consistent lock order across all transfers
+        Long firstId = Math.min(fromAccountId, toAccountId);
+        Long secondId = Math.max(fromAccountId, toAccountId);
+        Account first = findForTransfer(firstId).orElseThrow(() -> new AccountNotFoundException(firstId));
+        Account second = findForTransfer(secondId).orElseThrow(() -> new AccountNotFoundException(secondId));
+
+        //checked after locking: a concurrent retry with the same key waits above, then sees the committed row here
+        //(between two sharded accounts nothing is locked, the unique key rejects the second insert instead)
+        TransferCommand command = new TransferCommand(fromAccountId, toAccountId, amount, idempotencyKey, description);
+        AccountTransfer existing = accountTransferRepository.findByIdempotencyKey(idempotencyKey).orElse(null);
+        if (existing != null) {
+            log.info("Transfer {} already applied, replaying result", idempotencyKey);
+            return replay(existing, command);
+        }
+
+        Account from = first.getId().equals(fromAccountId) ? first : second;
+        Account to = from == first ? second : first;
+
+        Map<Long, BigDecimal> ledgerDeltas = new HashMap<>();
+        AccountTransfer applied = applyTransfer(from, to, command, ledgerDeltas);
+        accountRepository.save(from);
+        accountRepository.save(to);
+        accountTransferRepository.save(applied);
+        publishBalanceChanged(fromAccountId);
+        publishBalanceChanged(toAccountId);
+
+        log.info("Transferred {} from account {} to account {}. New balances: {} / {}",
+                amount, fromAccountId, toAccountId, applied.getFromBalanceAfter(), applied.getToBalanceAfter());
+
+        return new TransferResult(applied.getFromBalanceAfter(), applied.getToBalanceAfter(), false);
+    }
+
+    /**
+     * Apply many transfers in one DB transaction.
+     * Every account touched by the batch is locked once (one SELECT ... FOR UPDATE, ascending id order)
+     * and written once, no matter how many transfers it appears in. Sharded accounts are read without the lock
+     * and moved through their balance slots.
+     * A rejected item (not found, inactive, insufficient funds) does not affect the others.
+     */
+    @Transactional
+    public List<BatchTransferResult> transferBatch(List<TransferCommand> commands) {
+        if (commands.isEmpty()) {
+            return List.of();
+        }
+        Map<Boolean, List<Long>> accountIds = commands.stream()
+                .flatMap(c -> Stream.of(c.getFromAccountId(), c.getToAccountId()))
+                .distinct()
+                .collect(Collectors.partitioningBy(shardedBalanceService::isSharded));
+        Map<Long, Account> accounts = new HashMap<>();
+        if (!accountIds.get(false).isEmpty()) {
+            accountRepository.findAllByIdForUpdate(accountIds.get(false)).forEach(a -> accounts.put(a.getId(), a));
+        }
+        if (!accountIds.get(true).isEmpty()) {
+            accountRepository.findAllById(accountIds.get(true)).forEach(a -> accounts.put(a.getId(), a));
+        }
+
+        //one lookup for every idempotency key in the batch
+        Map<String, AccountTransfer> applied = new HashMap<>();
+        accountTransferRepository.findByIdempotencyKeyIn(commands.stream().map(TransferCommand::getIdempotencyKey).toList())
+                .forEach(t -> applied.put(t.getIdempotencyKey(), t));
+
+        List<BatchTransferResult> results = new ArrayList<>(commands.size());
+        List<AccountTransfer> newTransfers = new ArrayList<>();
+        Map<Long, BigDecimal> ledgerDeltas = new HashMap<>();
+
+        //apply in request order, so a later item can spend money credited by an earlier one
+        for (TransferCommand command : commands) {
+            try {
+                AccountTransfer existing = applied.get(command.getIdempotencyKey());
+                if (existing != null) {
+                    results.add(BatchTransferResult.success(replay(existing, command)));
+                    continue;
+                }
+                if (command.getFromAccountId().equals(command.getToAccountId())) {
+                    throw new IllegalArgumentException("Source and destination account must be different");
+                }
+                Account from = accounts.get(command.getFromAccountId());
+                if (from == null) {
+                    throw new AccountNotFoundException(command.getFromAccountId());
+                }
+                Account to = accounts.get(command.getToAccountId());
+                if (to == null) {
+                    throw new AccountNotFoundException(command.getToAccountId());
+                }
+
+                AccountTransfer transfer = applyTransfer(from, to, command, ledgerDeltas);
+                applied.put(command.getIdempotencyKey(), transfer);
+                newTransfers.add(transfer);
+                results.add(BatchTransferResult.success(
+                        new TransferResult(transfer.getFromBalanceAfter(), transfer.getToBalanceAfter(), false)));
+            } catch (IllegalArgumentException | AccountNotFoundException
+                     | AccountNotActiveException | InsufficientFundsException e) {
+                results.add(BatchTransferResult.failure(e));
+            }
+        }
+
+        //locked accounts are managed entities: their new balances are written in one flush
+        accountTransferRepository.saveAll(newTransfers);
+        newTransfers.stream()
+                .flatMap(t -> Stream.of(t.getFromAccountId(), t.getToAccountId()))
+                .distinct()
+                .forEach(this::publishBalanceChanged);
+
+        log.info("Applied {} of {} batched transfers across {} accounts",
+                newTransfers.size(), commands.size(), accounts.size());
+        return results;
+    }
+
+    /**
+     * Apply a run of debits/credits to one account in one DB transaction: one row lock, one UPDATE at commit.
+     * Operations are applied in order; a debit that would overdraw the account fails on its own.
+     */
+    @Transactional
+    public List<BalanceUpdateResult> applyBalanceUpdates(Long accountId, List<BalanceUpdateCommand> commands) {
+        Account account = accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+
+        List<BalanceUpdateResult> results = new ArrayList<>(commands.size());
+        for (BalanceUpdateCommand command : commands) {
+            results.add(applyBalanceUpdate(account, command));
+        }
+
+        log.info("Applied {} balance updates to account {}. New balance: {}",
+                commands.size(), accountId, account.getAccountBalance());
+        if (results.stream().anyMatch(result -> result.getError() == null)) {
+            publishBalanceChanged(accountId);
+        }
+        return results;
+    }
+
+    /**
+     * Apply debits/credits for many accounts in one DB transaction (one commit for the whole group).
+     * All accounts are locked with one SELECT ... FOR UPDATE in ascending id order; operations are applied
+     * in list order, so updates to the same account keep their arrival order. Every operation gets its own
+     * result: an unknown account or an overdrawing debit fails only that operation.
+     */
+    @Transactional
+    public List<BalanceUpdateResult> applyBalanceUpdateGroup(List<BalanceUpdateCommand> commands) {
+        List<Long> accountIds = commands.stream().map(BalanceUpdateCommand::getAccountId).distinct().toList();
+        Map<Long, Account> accounts = accountRepository.findAllByIdForUpdate(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        List<BalanceUpdateResult> results = new ArrayList<>(commands.size());
+        Set<Long> changed = new LinkedHashSet<>();
+        for (BalanceUpdateCommand command : commands) {
+            Account account = accounts.get(command.getAccountId());
+            if (account == null) {
+                results.add(BalanceUpdateResult.failure(new AccountNotFoundException(command.getAccountId())));
+                continue;
+            }
+            BalanceUpdateResult result = applyBalanceUpdate(account, command);
+            if (result.getError() == null) {
+                changed.add(account.getId());
+            }
+            results.add(result);
+        }
+
+        log.info("Group commit: applied {} balance updates across {} accounts", commands.size(), accounts.size());
+        changed.forEach(this::publishBalanceChanged);
+        return results;
+    }
+
+    /**
+     * Debit/credit in a single statement: the balance check happens in the UPDATE's WHERE clause,
+     * so the row lock is held for one statement. Only a failed debit costs a second (plain) read,
+     * to tell "not found" from "insufficient funds".
+     */
+    @Transactional
+    public BalanceUpdateResult applyBalanceUpdateConditionally(BalanceUpdateCommand command) {
+        Long accountId = command.getAccountId();
+        BigDecimal amount = command.getAmount();
+        Optional<BalanceSnapshot> updated = command.getOperation() == BalanceOperation.DEBIT
+                ? accountRepository.debitIfSufficient(accountId, amount)
+                : accountRepository.credit(accountId, amount);
+
+        if (updated.isEmpty()) {
+            BigDecimal currentBalance = accountRepository.findBalanceById(accountId)
+                    .orElseThrow(() -> new AccountNotFoundException(accountId));
+            return BalanceUpdateResult.failure(new InsufficientFundsException(accountId, currentBalance, amount));
+        }
+
+        BalanceSnapshot snapshot = updated.get();
+        log.info("{} {} on account {}. New balance: {}",
+                command.getOperation(), amount, accountId, snapshot.getAccountBalance());
+        publishBalanceChanged(accountId);
+        return BalanceUpdateResult.success(snapshot.getAccountBalance());
+    }
+
+    /**
+     * Append a signed ledger entry instead of updating the account row (account.balance.update-mode=LEDGER).
+     * Credits take no row lock at all. Debits lock the account row so two debits can't both pass the funds
+     * check; the lock also keeps LedgerCompactor out while the live balance is read.
+     */
+    @Transactional
+    public BalanceUpdateResult appendLedgerEntry(BalanceUpdateCommand command) {
+        Long accountId = command.getAccountId();
+        BigDecimal amount = command.getAmount();
+        BigDecimal signedAmount = amount;
+        if (command.getOperation() == BalanceOperation.DEBIT) {
+            Account account = accountRepository.findByIdForUpdate(accountId)
+                    .orElseThrow(() -> new AccountNotFoundException(accountId));
+            BigDecimal currentBalance = account.getAccountBalance().add(accountLedgerRepository.sumUncompacted(accountId));
+            if (currentBalance.compareTo(amount) < 0) {
+                return BalanceUpdateResult.failure(new InsufficientFundsException(accountId, currentBalance, amount));
+            }
+            signedAmount = amount.negate();
+        }
+
+        accountLedgerRepository.saveAndFlush(AccountLedgerEntry.builder()
+                .accountId(accountId)
+                .amount(signedAmount)
+                .description(command.getDescription())
+                .build());
+        //also the existence check for credits: the insert is rolled back if the account is missing
+        LiveBalance live = accountRepository.findLiveBalances(List.of(accountId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+
+        log.info("{} {} on account {} (ledger). New balance: {}",
+                command.getOperation(), amount, accountId, live.getAccountBalance());
+        publishBalanceChanged(accountId);
+        return BalanceUpdateResult.success(live.getAccountBalance());
+    }
+
+    //only accounts that exist are returned
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> findBalances(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+        //ledger entries and balance slots live outside the account row
+        if (updateMode == BalanceUpdateMode.LEDGER || accountIds.stream().anyMatch(shardedBalanceService::isSharded)) {
+            return accountRepository.findLiveBalances(accountIds).stream()
+                    .collect(Collectors.toMap(LiveBalance::getId, LiveBalance::getAccountBalance));
+        }
+        return accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Account::getAccountBalance));
+    }
+
+    //in memory on a locked account; a debit that would overdraw it is rejected
+    private BalanceUpdateResult applyBalanceUpdate(Account account, BalanceUpdateCommand command) {
+        BigDecimal currentBalance = account.getAccountBalance();
+        BigDecimal amount = command.getAmount();
+        if (command.getOperation() == BalanceOperation.DEBIT) {
+            if (currentBalance.compareTo(amount) < 0) {
+                return BalanceUpdateResult.failure(new InsufficientFundsException(account.getId(), currentBalance, amount));
+            }
+            account.setAccountBalance(currentBalance.subtract(amount));
+        } else {
+            account.setAccountBalance(currentBalance.add(amount));
+        }
+        return BalanceUpdateResult.success(account.getAccountBalance());
+    }
+
+    //checks and moves the money in memory (slots of sharded accounts in the DB); callers hold the row locks
+    //of unsharded accounts and persist the result
+    private AccountTransfer applyTransfer(Account from, Account to, TransferCommand command,
+                                          Map<Long, BigDecimal> ledgerDeltas) {
+        BigDecimal amount = command.getAmount();
+        if (from.getAccountStatus() != AccountStatus.ACTIVE) {
+            throw new AccountNotActiveException(from.getId());
+        }
+        if (to.getAccountStatus() != AccountStatus.ACTIVE) {
+            throw new AccountNotActiveException(to.getId());
+        }
+
+        //debit first: a rejected item of a batch must not leave a credited slot behind
+        debit(from, amount, ledgerDeltas);
+        if (!shardedBalanceService.isSharded(to.getId())) {
+            to.setAccountBalance(to.getAccountBalance().add(amount));
+        } else if (!shardedBalanceService.creditSlot(to.getId(), amount)) {
+            //not an item failure: the debit above is already applied, the whole transaction has to roll back
+            throw new IllegalStateException("Account " + to.getId() + " is sharded but has no balance slots");
+        }
+
+        return AccountTransfer.builder()
+                .idempotencyKey(command.getIdempotencyKey())
+                .fromAccountId(from.getId())
+                .toAccountId(to.getId())
+                .amount(amount)
+                .fromBalanceAfter(from.getAccountBalance().add(offRowBalance(from.getId(), ledgerDeltas)))
+                .toBalanceAfter(to.getAccountBalance().add(offRowBalance(to.getId(), ledgerDeltas)))
+                .description(command.getDescription())
+                .build();
+    }
+
+    //a sharded account pays from one slot that covers the amount, and is consolidated only when none does
+    private void debit(Account from, BigDecimal amount, Map<Long, BigDecimal> ledgerDeltas) {
+        if (shardedBalanceService.isSharded(from.getId())) {
+            if (shardedBalanceService.debitAnySlot(from.getId(), amount)) {
+                return;
+            }
+            //the consolidation is kept even if the funds check below fails, it doesn't change the total
+            shardedBalanceService.lockAndDrainSlots(from);
+        }
+        BigDecimal available = from.getAccountBalance().add(ledgerDelta(from.getId(), ledgerDeltas));
+        if (available.compareTo(amount) < 0) {
+            throw new InsufficientFundsException(from.getId(), available, amount);
+        }
+        from.setAccountBalance(from.getAccountBalance().subtract(amount));
+    }
+
+    //sharded accounts are not locked here, see debit()
+    private Optional<Account> findForTransfer(Long accountId) {
+        return shardedBalanceService.isSharded(accountId)
+                ? accountRepository.findById(accountId)
+                : accountRepository.findByIdForUpdate(accountId);
+    }
+
+    /**
+     * In LEDGER mode, the sum of the account's uncompacted ledger entries (read once per transaction).
+     * The row is locked, so the compactor can't move entries meanwhile; concurrent credits only add money.
+     */
+    private BigDecimal ledgerDelta(Long accountId, Map<Long, BigDecimal> ledgerDeltas) {
+        if (updateMode != BalanceUpdateMode.LEDGER) {
+            return BigDecimal.ZERO;
+        }
+        return ledgerDeltas.computeIfAbsent(accountId, accountLedgerRepository::sumUncompacted);
+    }
+
+    //ledger entries + balance slots: the part of the balance reported on top of the account row
+    private BigDecimal offRowBalance(Long accountId, Map<Long, BigDecimal> ledgerDeltas) {
+        return ledgerDelta(accountId, ledgerDeltas).add(shardedBalanceService.slotBalance(accountId));
+    }
+
+    //delivered to BalanceWatchRegistry once the transaction commits
+    private void publishBalanceChanged(Long accountId) {
+        eventPublisher.publishEvent(new BalanceChangedEvent(accountId));
+    }
+
+    //a key reused for a different transfer is rejected, not answered with the result of the one it belongs to
+    private TransferResult replay(AccountTransfer existing, TransferCommand command) {
+        if (!existing.getFromAccountId().equals(command.getFromAccountId())
+                || !existing.getToAccountId().equals(command.getToAccountId())
+                || existing.getAmount().compareTo(command.getAmount()) != 0) {
+            throw new IllegalArgumentException("Idempotency key " + command.getIdempotencyKey()
+                    + " was already used for a different transfer");
+        }
+        return new TransferResult(existing.getFromBalanceAfter(), existing.getToBalanceAfter(), true);
+    }
+}
@@ -0,0 +1,15 @@
+package com.pm.greatadamu.accountservice.service;
+
+//how UpdateBalance requests reach the database (account.balance.update-mode)
+public enum BalanceUpdateMode {
+    //SELECT ... FOR UPDATE per request
+    LOCKING,
+    //queued per account on single-writer lanes, applied in batches (BalanceSequencer)
+    SEQUENCED,
+    //one conditional UPDATE ... RETURNING per request, no locking read
+    CONDITIONAL,
+    //signed entries appended to account_ledger, credits take no row lock (LedgerCompactor folds them in)
+    LEDGER,
+    //concurrent requests collected for a short window and applied in one DB transaction (BalanceGroupCommitter)
+    GROUP_COMMIT
+}
@@ -0,0 +1,296 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.gRPC.MoneyCodec;
+import com.pm.greatadamu.accountservice.dto.LiveBalance;
+import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import com.pm.greatadamu.grpc.account.BalanceUpdate;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fan-out of committed balance changes to WatchBalances streams.
+ * Each subscriber buffers at most one pending update per watched account (newer values replace older ones),
+ * and sends run on a separate executor only while the stream is ready, so writers never wait on a client.
+ * A subscriber that has had updates pending for longer than max-lag-ms is dropped.
+ * <p>
+ * Balances are read back from the DB after the change commits, never taken from the writer: in LEDGER and
+ * sharded mode a writer does not see concurrent credits, and the row version doesn't move on ledger appends.
+ * Each read takes a stamp from one sequence while holding its account's read lock, so for any account a higher
+ * stamp is a later read; subscribers drop every update that is not strictly newer than the last one they took.
+ */
+@Component
+@Slf4j
+public class BalanceWatchRegistry {
+    private final AccountRepository accountRepository;
+    private final Map<Long, Set<Subscription>> subscriptionsByAccount = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sendExecutor;
+    private final ExecutorService refreshExecutor;
+    private final long maxLagMs;
+
+    //accounts with a refresh queued that has not read yet: further commits ride on it
+    private final Set<Long> refreshPending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong readSequence = new AtomicLong();
+    private final ReentrantLock[] readLocks = new ReentrantLock[64];
+
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    public BalanceWatchRegistry(AccountRepository accountRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${account.balance.watch.send-threads:2}") int sendThreads,
+                                @Value("${account.balance.watch.refresh-threads:2}") int refreshThreads,
+                                @Value("${account.balance.watch.max-lag-ms:5000}") long maxLagMs) {
+        this.accountRepository = accountRepository;
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads, new CustomizableThreadFactory("balance-watch-"));
+        this.refreshExecutor = Executors.newFixedThreadPool(refreshThreads,
+                new CustomizableThreadFactory("balance-watch-refresh-"));
+        this.maxLagMs = maxLagMs;
+        Arrays.setAll(readLocks, i -> new ReentrantLock());
+
+        Gauge.builder("account.balance.watch.subscribers", subscriptions, Set::size)
+                .description("Open WatchBalances streams")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("account.balance.watch.coalesced")
+                .description("Updates replaced by a newer one before they were sent")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("account.balance.watch.dropped")
+                .description("Subscribers closed for falling behind")
+                .register(meterRegistry);
+    }
+
+    //registers the stream, then queues the current balance of every watched account
+    public void subscribe(List<Long> accountIds, ServerCallStreamObserver<BalanceUpdate> observer) {
+        Subscription subscription = new Subscription(accountIds, observer);
+        observer.setOnCancelHandler(() -> unsubscribe(subscription));
+        observer.setOnReadyHandler(subscription::scheduleSend);
+
+        subscriptions.add(subscription);
+        for (Long accountId : accountIds) {
+            //add inside compute: unsubscribe drops empty sets in computeIfPresent, an add outside the
+            //atomic section could land in a set that was just removed from the map
+            subscriptionsByAccount.compute(accountId, (id, watchers) -> {
+                Set<Subscription> set = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                set.add(subscription);
+                return set;
+            });
+        }
+        log.info("WatchBalances: subscribed to {} accounts ({} open streams)", accountIds.size(), subscriptions.size());
+
+        //registered first, so a change committed meanwhile is not missed (stamps keep the newest read)
+        int[] stripes = accountIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        StampedRead read = readLive(accountIds, stripes);
+        for (LiveBalance balance : read.balances()) {
+            subscription.offer(read.stamp(), toUpdate(balance));
+        }
+    }
+
+    //runs on the committing thread: only queues the read
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        Long accountId = event.accountId();
+        if (subscriptionsByAccount.containsKey(accountId) && refreshPending.add(accountId)) {
+            refreshExecutor.execute(() -> refresh(accountId));
+        }
+    }
+
+    private void refresh(Long accountId) {
+        //cleared before the read: a commit after this point queues another refresh
+        refreshPending.remove(accountId);
+        Set<Subscription> watchers = subscriptionsByAccount.get(accountId);
+        if (watchers == null || watchers.isEmpty()) {
+            return;
+        }
+        StampedRead read;
+        try {
+            read = readLive(List.of(accountId), new int[]{stripeOf(accountId)});
+        } catch (RuntimeException e) {
+            log.warn("WatchBalances: failed to read balance of account {}: {}", accountId, e.getMessage());
+            return;
+        }
+        for (LiveBalance balance : read.balances()) {
+            BalanceUpdate update = toUpdate(balance);
+            for (Subscription subscription : watchers) {
+                subscription.offer(read.stamp(), update);
+            }
+        }
+    }
+
+    //stamp and read under the accounts' read locks (ascending stripe order), so stamp order is read order;
+    //live balance: includes ledger entries not compacted yet and balance slots of sharded accounts
+    private StampedRead readLive(List<Long> accountIds, int[] stripes) {
+        for (int stripe : stripes) {
+            readLocks[stripe].lock();
+        }
+        try {
+            long stamp = readSequence.incrementAndGet();
+            return new StampedRead(stamp, accountRepository.findLiveBalances(accountIds));
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                readLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), readLocks.length);
+    }
+
+    private record StampedRead(long stamp, List<LiveBalance> balances) {
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        for (Long accountId : subscription.accountIds) {
+            subscriptionsByAccount.computeIfPresent(accountId, (id, watchers) -> {
+                watchers.remove(subscription);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+    }
+
+    private static BalanceUpdate toUpdate(LiveBalance live) {
+        BigDecimal balance = live.getAccountBalance();
+        return BalanceUpdate.newBuilder()
+                .setAccountId(live.getId())
+                .setBalance(balance.toString())
+                .setBalanceMoney(MoneyCodec.toMoney(balance))
+                .setVersion(live.getVersion() == null ? 0 : live.getVersion())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List.copyOf(subscriptions).forEach(subscription -> subscription.close(Status.UNAVAILABLE
+                .withDescription("account-service is shutting down")));
+        refreshExecutor.shutdown();
+        sendExecutor.shutdown();
+    }
+
+    private final class Subscription {
+        private final List<Long> accountIds;
+        private final ServerCallStreamObserver<BalanceUpdate> observer;
+        private final AtomicBoolean sendScheduled = new AtomicBoolean();
+
+        //guarded by this
+        private final Map<Long, BalanceUpdate> pending = new LinkedHashMap<>();
+        private final Map<Long, Long> latestStamps = new HashMap<>();
+        private long pendingSince;
+        private boolean closed;
+
+        private Subscription(List<Long> accountIds, ServerCallStreamObserver<BalanceUpdate> observer) {
+            this.accountIds = accountIds;
+            this.observer = observer;
+        }
+
+        //called on writer threads: only touches the buffer, never the stream
+        void offer(long stamp, BalanceUpdate update) {
+            boolean tooSlow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                //strictly newer only: an older read that finishes late must not overwrite a newer one
+                Long latest = latestStamps.get(update.getAccountId());
+                if (latest != null && stamp <= latest) {
+                    return;
+                }
+                latestStamps.put(update.getAccountId(), stamp);
+
+                long now = System.currentTimeMillis();
+                if (pending.isEmpty()) {
+                    pendingSince = now;
+                }
+                if (pending.put(update.getAccountId(), update) != null) {
+                    coalesced.increment();
+                }
+                tooSlow = now - pendingSince > maxLagMs;
+            }
+            if (tooSlow) {
+                dropped.increment();
+                log.warn("WatchBalances: dropping subscriber that fell more than {} ms behind", maxLagMs);
+                close(Status.RESOURCE_EXHAUSTED.withDescription("Subscriber too slow, reconnect to resume"));
+                return;
+            }
+            scheduleSend();
+        }
+
+        void scheduleSend() {
+            if (sendScheduled.compareAndSet(false, true)) {
+                sendExecutor.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                while (true) {
+                    BalanceUpdate next;
+                    synchronized (this) {
+                        if (closed || pending.isEmpty() || !observer.isReady()) {
+                            break;
+                        }
+                        Iterator<BalanceUpdate> it = pending.values().iterator();
+                        next = it.next();
+                        it.remove();
+                        //progress was made, the lag clock restarts for whatever is left
+                        pendingSince = System.currentTimeMillis();
+                    }
+                    synchronized (observer) {
+                        observer.onNext(next);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("WatchBalances: send failed, closing stream: {}", e.getMessage());
+                close(Status.INTERNAL.withDescription("Failed to send balance update"));
+            } finally {
+                sendScheduled.set(false);
+            }
+            //an update may have arrived after the loop gave up
+            synchronized (this) {
+                if (closed || pending.isEmpty() || !observer.isReady()) {
+                    return;
+                }
+            }
+            scheduleSend();
+        }
+
+        void close(Status status) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            unsubscribe(this);
+            synchronized (observer) {
+                try {
+                    observer.onError(status.asRuntimeException());
+                } catch (RuntimeException e) {
+                    //already cancelled by the client
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.repository.AccountLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rolls uncompacted account_ledger entries into accounts.account_balance, so live-balance reads only sum
+ * the entries written since the last run. Runs in every update mode: entries left behind after switching
+ * away from LEDGER are still folded in. Entries are kept (compacted = true) as balance history.
+ */
+@Component
+@Slf4j
+public class LedgerCompactor {
+    private final AccountLedgerRepository accountLedgerRepository;
+    private final Counter compactedAccounts;
+
+    @Value("${account.ledger.compaction-batch-size:500}")
+    private int batchSize;
+
+    public LedgerCompactor(AccountLedgerRepository accountLedgerRepository, MeterRegistry meterRegistry) {
+        this.accountLedgerRepository = accountLedgerRepository;
+        this.compactedAccounts = Counter.builder("account.ledger.compactions")
+                .description("Accounts whose ledger entries were rolled into the balance snapshot")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${account.ledger.compaction-interval-ms:10000}")
+    public void compact() {
+        List<Long> accountIds = accountLedgerRepository.findAccountIdsToCompact(batchSize);
+        if (accountIds.isEmpty()) {
+            return;
+        }
+
+        //one short transaction per account: waits only for that account's debits, never blocks credits
+        for (Long accountId : accountIds) {
+            try {
+                accountLedgerRepository.compact(accountId);
+                compactedAccounts.increment();
+            } catch (RuntimeException e) {
+                log.warn("Ledger compaction for account {} failed, retried next run: {}", accountId, e.getMessage());
+            }
+        }
+        log.info("Compacted ledger entries of {} accounts", accountIds.size());
+    }
+}
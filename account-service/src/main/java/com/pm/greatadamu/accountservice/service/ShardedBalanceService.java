@@ -0,0 +1,150 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import com.pm.greatadamu.accountservice.dto.LiveBalance;
+import com.pm.greatadamu.accountservice.exception.AccountNotFoundException;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
+import com.pm.greatadamu.accountservice.repository.AccountBalanceSlotRepository;
+import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded accounts (account.balance.sharded.account-ids): high fan-in accounts whose balance is spread over
+ * N account_balance_slots rows on top of the account row. A credit locks one random slot for one statement,
+ * so concurrent credits only contend when they land on the same slot. A debit takes any slot that covers it;
+ * if none does, it locks the account row and moves every slot into it first (consolidation).
+ */
+@Service
+@Slf4j
+public class ShardedBalanceService {
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSlotRepository accountBalanceSlotRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> shardedAccountIds;
+    private final int slots;
+    private final Counter consolidations;
+
+    public ShardedBalanceService(AccountRepository accountRepository,
+                                 AccountBalanceSlotRepository accountBalanceSlotRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${account.balance.sharded.account-ids:}") Set<Long> shardedAccountIds,
+                                 @Value("${account.balance.sharded.slots:8}") int slots) {
+        this.accountRepository = accountRepository;
+        this.accountBalanceSlotRepository = accountBalanceSlotRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardedAccountIds = Set.copyOf(shardedAccountIds);
+        this.slots = slots;
+        this.consolidations = Counter.builder("account.balance.sharded.consolidations")
+                .description("Debits/transfers that moved all slots of a sharded account into its row")
+                .register(meterRegistry);
+    }
+
+    public boolean isSharded(Long accountId) {
+        return shardedAccountIds.contains(accountId);
+    }
+
+    //creates missing slots for configured accounts, and folds back slots of accounts no longer configured
+    @EventListener(ApplicationReadyEvent.class)
+    public void provisionSlots() {
+        for (Long accountId : shardedAccountIds) {
+            accountBalanceSlotRepository.insertMissingSlots(accountId, slots);
+        }
+        List<Long> unsharded = accountBalanceSlotRepository.findAccountIdsWithFunds().stream()
+                .filter(accountId -> !isSharded(accountId))
+                .toList();
+        for (Long accountId : unsharded) {
+            transactionTemplate.executeWithoutResult(status -> accountRepository.findByIdForUpdate(accountId)
+                    .ifPresent(this::drainSlotsInto));
+        }
+        log.info("Sharded balances: {} accounts with {} slots, {} accounts folded back",
+                shardedAccountIds.size(), slots, unsharded.size());
+    }
+
+    @Transactional
+    public BalanceUpdateResult applyShardedUpdate(BalanceUpdateCommand command) {
+        Long accountId = command.getAccountId();
+        BigDecimal amount = command.getAmount();
+        if (command.getOperation() == BalanceOperation.CREDIT) {
+            if (!creditSlot(accountId, amount)) {
+                throw new AccountNotFoundException(accountId);
+            }
+        } else if (!debitAnySlot(accountId, amount)) {
+            Account account = accountRepository.findByIdForUpdate(accountId)
+                    .orElseThrow(() -> new AccountNotFoundException(accountId));
+            drainSlotsInto(account);
+            BigDecimal currentBalance = account.getAccountBalance();
+            if (currentBalance.compareTo(amount) < 0) {
+                //the consolidation itself is kept, it doesn't change the total
+                return BalanceUpdateResult.failure(new InsufficientFundsException(accountId, currentBalance, amount));
+            }
+            account.setAccountBalance(currentBalance.subtract(amount));
+            accountRepository.flush();
+        }
+
+        LiveBalance live = accountRepository.findLiveBalances(List.of(accountId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        log.info("{} {} on sharded account {}. New balance: {}",
+                command.getOperation(), amount, accountId, live.getAccountBalance());
+        eventPublisher.publishEvent(new BalanceChangedEvent(accountId));
+        return BalanceUpdateResult.success(live.getAccountBalance());
+    }
+
+    //credits one random slot; false when the account has no slots (not provisioned, or no such account)
+    public boolean creditSlot(Long accountId, BigDecimal amount) {
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        return accountBalanceSlotRepository.credit(accountId, slot, amount) > 0;
+    }
+
+    //debits one slot that covers the amount; false when none does
+    public boolean debitAnySlot(Long accountId, BigDecimal amount) {
+        return accountBalanceSlotRepository.debitAnySlot(accountId, amount).isPresent();
+    }
+
+    /**
+     * Locks the row of an account that was read without the lock, then moves every slot into it.
+     * Should a consolidation have committed since that read, the @Version check fails the caller's flush
+     * instead of overwriting the row with the stale balance.
+     */
+    public void lockAndDrainSlots(Account account) {
+        accountRepository.findByIdForUpdate(account.getId())
+                .orElseThrow(() -> new AccountNotFoundException(account.getId()));
+        drainSlotsInto(account);
+    }
+
+    //moves every slot into the account row; the caller holds the row lock and persists the account
+    public void drainSlotsInto(Account account) {
+        BigDecimal drained = accountBalanceSlotRepository.drainSlots(account.getId());
+        if (drained.signum() != 0) {
+            account.setAccountBalance(account.getAccountBalance().add(drained));
+            consolidations.increment();
+        }
+    }
+
+    //current slot total of a sharded account (not locked: for reporting, not for funds checks)
+    public BigDecimal slotBalance(Long accountId) {
+        return isSharded(accountId) ? accountBalanceSlotRepository.sumByAccountId(accountId) : BigDecimal.ZERO;
+    }
+}
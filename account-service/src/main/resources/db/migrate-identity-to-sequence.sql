@@ -0,0 +1,14 @@
+-- One-off migration from IDENTITY ids to pooled sequences (allocationSize = 50).
+-- Every service has a script like this one for its own tables; this header applies to all of them.
+-- Run once against an existing database before starting the version that uses the sequences;
+-- on an empty database ddl-auto=update creates them and this script is not needed.
+-- Hibernate's pooled optimizer hands out (nextval - 49 .. nextval], so each sequence is set
+-- to max(id) + 50 to keep new ids above the existing ones.
+-- The old identity defaults are left in place: Hibernate now always supplies the id.
+-- Here: accounts and account_transfers.
+
+create sequence if not exists accounts_seq start with 1 increment by 50;
+select setval('accounts_seq', coalesce((select max(id) from accounts), 0) + 50, false);
+
+create sequence if not exists account_transfers_seq start with 1 increment by 50;
+select setval('account_transfers_seq', coalesce((select max(id) from account_transfers), 0) + 50, false);
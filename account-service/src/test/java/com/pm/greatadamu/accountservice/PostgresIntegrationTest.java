@@ -0,0 +1,74 @@
+package com.pm.greatadamu.accountservice;
+
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.AccountStatus;
+import com.pm.greatadamu.accountservice.model.AccountType;
+import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Base for tests that need the real Postgres semantics (row locks, RETURNING, native queries).
+ * One container for the whole run, so cached application contexts keep a valid connection;
+ * skipped where Docker isn't available. The gRPC server is not started, tests call the beans directly.
+ */
+@SpringBootTest(properties = "grpc.server.port=-1")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @Autowired
+    protected AccountRepository accountRepository;
+
+    protected Account createAccount(String balance) {
+        return accountRepository.save(Account.builder()
+                .customerId(1L)
+                .accountBalance(new BigDecimal(balance))
+                .accountNumber(UUID.randomUUID().toString())
+                .accountName("test")
+                .accountType(AccountType.CHECKING)
+                .accountStatus(AccountStatus.ACTIVE)
+                .build());
+    }
+
+    //balance column of the account row
+    protected BigDecimal balanceOf(Account account) {
+        return accountRepository.findById(account.getId()).orElseThrow().getAccountBalance();
+    }
+
+    //runs task that many times at once, results in submission order (a task's exception fails the test)
+    protected static <T> List<T> runConcurrently(int tasks, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(task));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
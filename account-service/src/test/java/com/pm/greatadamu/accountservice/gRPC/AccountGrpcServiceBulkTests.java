@@ -0,0 +1,86 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.PostgresIntegrationTest;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.AccountStatus;
+import com.pm.greatadamu.grpc.account.AccountBalance;
+import com.pm.greatadamu.grpc.account.AccountValidation;
+import com.pm.greatadamu.grpc.account.GetBalancesRequest;
+import com.pm.greatadamu.grpc.account.GetBalancesResponse;
+import com.pm.greatadamu.grpc.account.ValidateAccountsRequest;
+import com.pm.greatadamu.grpc.account.ValidateAccountsResponse;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountGrpcServiceBulkTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private AccountGrpcService accountGrpcService;
+
+    @Test
+    void validateAccounts_answersEveryDistinctIdInRequestOrder() throws Exception {
+        Account active = createAccount("10.00");
+        Account inactive = createAccount("10.00");
+        inactive.setAccountStatus(AccountStatus.INACTIVE);
+        accountRepository.save(inactive);
+        long unknown = Long.MAX_VALUE;
+
+        FutureObserver<ValidateAccountsResponse> response = new FutureObserver<>();
+        accountGrpcService.validateAccounts(ValidateAccountsRequest.newBuilder()
+                .addAllAccountIds(List.of(active.getId(), inactive.getId(), unknown, active.getId()))
+                .build(), response);
+
+        List<AccountValidation> results = response.get(10, TimeUnit.SECONDS).getResultsList();
+        assertThat(results).extracting(AccountValidation::getAccountId)
+                .containsExactly(active.getId(), inactive.getId(), unknown);
+        assertThat(results.get(0).getValidation().getIsActive()).isTrue();
+        assertThat(results.get(1).getValidation().getExists()).isTrue();
+        assertThat(results.get(1).getValidation().getIsActive()).isFalse();
+        assertThat(results.get(2).getValidation().getExists()).isFalse();
+    }
+
+    @Test
+    void getBalances_returnsKnownBalancesAndListsUnknownIds() throws Exception {
+        Account first = createAccount("12.50");
+        Account second = createAccount("0.00");
+        long unknown = Long.MAX_VALUE;
+
+        FutureObserver<GetBalancesResponse> response = new FutureObserver<>();
+        accountGrpcService.getBalances(GetBalancesRequest.newBuilder()
+                .addAllAccountIds(List.of(first.getId(), unknown, second.getId()))
+                .build(), response);
+
+        GetBalancesResponse balances = response.get(10, TimeUnit.SECONDS);
+        assertThat(balances.getBalancesList()).extracting(AccountBalance::getAccountId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(balances.getBalances(0).getBalance().getBalance()).isEqualTo("12.50");
+        assertThat(MoneyCodec.fromMoney(balances.getBalances(0).getBalance().getBalanceMoney()))
+                .isEqualByComparingTo("12.50");
+        assertThat(balances.getNotFoundList()).containsExactly(unknown);
+    }
+
+    @Test
+    void tooManyIds_areRejected() {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        FutureObserver<ValidateAccountsResponse> validations = new FutureObserver<>();
+        accountGrpcService.validateAccounts(ValidateAccountsRequest.newBuilder().addAllAccountIds(ids).build(), validations);
+        FutureObserver<GetBalancesResponse> balances = new FutureObserver<>();
+        accountGrpcService.getBalances(GetBalancesRequest.newBuilder().addAllAccountIds(ids).build(), balances);
+
+        assertThatThrownBy(() -> validations.get(10, TimeUnit.SECONDS))
+                .satisfies(e -> assertThat(Status.fromThrowable(e.getCause()).getCode())
+                        .isEqualTo(Status.Code.INVALID_ARGUMENT));
+        assertThatThrownBy(() -> balances.get(10, TimeUnit.SECONDS))
+                .satisfies(e -> assertThat(Status.fromThrowable(e.getCause()).getCode())
+                        .isEqualTo(Status.Code.INVALID_ARGUMENT));
+    }
+}
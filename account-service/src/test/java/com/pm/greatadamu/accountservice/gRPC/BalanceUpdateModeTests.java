@@ -0,0 +1,110 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.PostgresIntegrationTest;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.service.BalanceService;
+import com.pm.greatadamu.grpc.account.OperationType;
+import com.pm.greatadamu.grpc.account.UpdateBalanceRequest;
+import com.pm.greatadamu.grpc.account.UpdateBalanceResponse;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UpdateBalance behaviour every account.balance.update-mode must keep; one subclass per mode.
+ * Balances are read through BalanceService.findBalances, so uncompacted ledger entries count.
+ */
+abstract class BalanceUpdateModeTests extends PostgresIntegrationTest {
+
+    @Autowired
+    protected AccountGrpcService accountGrpcService;
+    @Autowired
+    protected BalanceService balanceService;
+
+    @Test
+    void concurrentDebits_neverOverdraw() throws Exception {
+        Account account = createAccount("100.00");
+
+        List<Status.Code> outcomes = runConcurrently(25, () -> outcome(update(account, OperationType.DEBIT, "10.00")));
+
+        assertThat(outcomes).filteredOn(code -> code == Status.Code.OK).hasSize(10);
+        assertThat(outcomes).filteredOn(code -> code == Status.Code.FAILED_PRECONDITION).hasSize(15);
+        assertThat(liveBalance(account)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void concurrentCredits_areAllApplied() throws Exception {
+        Account account = createAccount("0.00");
+
+        List<Status.Code> outcomes = runConcurrently(40, () -> outcome(update(account, OperationType.CREDIT, "2.50")));
+
+        assertThat(outcomes).containsOnly(Status.Code.OK);
+        assertThat(liveBalance(account)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void concurrentDebitsAndCredits_addUpAndNeverGoNegative() throws Exception {
+        Account account = createAccount("50.00");
+        AtomicInteger next = new AtomicInteger();
+
+        List<UpdateBalanceResponse> responses = runConcurrently(40, () -> {
+            OperationType operation = next.getAndIncrement() % 2 == 0 ? OperationType.DEBIT : OperationType.CREDIT;
+            try {
+                return update(account, operation, "20.00").get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                //only a debit may be refused
+                assertThat(operation).isEqualTo(OperationType.DEBIT);
+                return null;
+            }
+        });
+
+        long applied = responses.stream().filter(response -> response != null).count();
+        long refusedDebits = responses.size() - applied;
+        BigDecimal expected = new BigDecimal("50.00").add(new BigDecimal("20.00").multiply(BigDecimal.valueOf(refusedDebits)));
+        assertThat(liveBalance(account)).isEqualByComparingTo(expected);
+        assertThat(responses).filteredOn(response -> response != null)
+                .allSatisfy(response -> assertThat(new BigDecimal(response.getNewBalance())).isNotNegative());
+    }
+
+    @Test
+    void unknownAccount_isNotFound() throws Exception {
+        Account missing = Account.builder().id(Long.MAX_VALUE).build();
+
+        assertThat(outcome(update(missing, OperationType.DEBIT, "1.00"))).isEqualTo(Status.Code.NOT_FOUND);
+        assertThat(outcome(update(missing, OperationType.CREDIT, "1.00"))).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+    protected CompletableFuture<UpdateBalanceResponse> update(Account account, OperationType operation, String amount) {
+        FutureObserver<UpdateBalanceResponse> response = new FutureObserver<>();
+        accountGrpcService.updateBalance(UpdateBalanceRequest.newBuilder()
+                .setAccountId(account.getId())
+                .setOperation(operation)
+                .setAmount(amount)
+                .setDescription("test")
+                .build(), response);
+        return response;
+    }
+
+    //gRPC status the call ended with
+    protected static Status.Code outcome(CompletableFuture<UpdateBalanceResponse> response) throws Exception {
+        try {
+            response.get(30, TimeUnit.SECONDS);
+            return Status.Code.OK;
+        } catch (ExecutionException e) {
+            return Status.fromThrowable(e.getCause()).getCode();
+        }
+    }
+
+    protected BigDecimal liveBalance(Account account) {
+        return balanceService.findBalances(List.of(account.getId())).get(account.getId());
+    }
+}
@@ -0,0 +1,7 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "account.balance.update-mode=CONDITIONAL")
+class ConditionalBalanceUpdateTests extends BalanceUpdateModeTests {
+}
@@ -0,0 +1,23 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.CompletableFuture;
+
+//unary call result as a future: completes with the single response or the status error
+class FutureObserver<T> extends CompletableFuture<T> implements StreamObserver<T> {
+
+    @Override
+    public void onNext(T value) {
+        complete(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        completeExceptionally(t);
+    }
+
+    @Override
+    public void onCompleted() {
+    }
+}
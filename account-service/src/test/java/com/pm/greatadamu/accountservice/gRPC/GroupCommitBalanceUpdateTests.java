@@ -0,0 +1,72 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
+import com.pm.greatadamu.accountservice.service.BalanceGroupCommitter;
+import com.pm.greatadamu.grpc.account.OperationType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//one committer with a wider window than the default: updates submitted back to back share a group,
+//and groups are applied in submission order
+@TestPropertySource(properties = {
+        "account.balance.update-mode=GROUP_COMMIT",
+        "account.balance.group-commit.committers=1",
+        "account.balance.group-commit.window-ms=50"
+})
+class GroupCommitBalanceUpdateTests extends BalanceUpdateModeTests {
+
+    @Autowired
+    private BalanceGroupCommitter balanceGroupCommitter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentUpdates_shareTransactions() throws Exception {
+        Account account = createAccount("0.00");
+        DistributionSummary batchSize = meterRegistry.get("account.balance.group-commit.batch.size").summary();
+        long groupsBefore = batchSize.count();
+
+        runConcurrently(40, () -> outcome(update(account, OperationType.CREDIT, "1.00")));
+
+        assertThat(liveBalance(account)).isEqualByComparingTo("40.00");
+        assertThat(batchSize.count() - groupsBefore).isLessThan(40);
+        assertThat(batchSize.max()).isGreaterThan(1.0);
+    }
+
+    @Test
+    void refusedDebit_failsOnlyItselfAndLaterUpdatesSeeTheGroupsEarlierOnes() throws Exception {
+        Account account = createAccount("50.00");
+        Account other = createAccount("5.00");
+
+        List<CompletableFuture<BalanceUpdateResult>> results = List.of(
+                balanceGroupCommitter.submit(command(account, BalanceOperation.DEBIT, "60.00")),
+                balanceGroupCommitter.submit(command(other, BalanceOperation.CREDIT, "1.00")),
+                balanceGroupCommitter.submit(command(account, BalanceOperation.CREDIT, "20.00")),
+                balanceGroupCommitter.submit(command(account, BalanceOperation.DEBIT, "60.00")));
+
+        assertThat(results.get(0).get(10, TimeUnit.SECONDS).getError()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(results.get(1).get(10, TimeUnit.SECONDS).getNewBalance()).isEqualByComparingTo("6.00");
+        assertThat(results.get(2).get(10, TimeUnit.SECONDS).getNewBalance()).isEqualByComparingTo("70.00");
+        assertThat(results.get(3).get(10, TimeUnit.SECONDS).getNewBalance()).isEqualByComparingTo("10.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("10.00");
+        assertThat(balanceOf(other)).isEqualByComparingTo("6.00");
+    }
+
+    private static BalanceUpdateCommand command(Account account, BalanceOperation operation, String amount) {
+        return new BalanceUpdateCommand(account.getId(), operation, new BigDecimal(amount), "test");
+    }
+}
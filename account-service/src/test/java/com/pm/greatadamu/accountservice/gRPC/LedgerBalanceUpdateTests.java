@@ -0,0 +1,73 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.repository.AccountLedgerRepository;
+import com.pm.greatadamu.accountservice.service.LedgerCompactor;
+import com.pm.greatadamu.grpc.account.OperationType;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//the scheduled compactor is held off, tests run it themselves
+@TestPropertySource(properties = {
+        "account.balance.update-mode=LEDGER",
+        "account.ledger.compaction-interval-ms=3600000"
+})
+class LedgerBalanceUpdateTests extends BalanceUpdateModeTests {
+
+    @Autowired
+    private LedgerCompactor ledgerCompactor;
+    @Autowired
+    private AccountLedgerRepository accountLedgerRepository;
+
+    @Test
+    void credits_areAppendedAndCompactionFoldsThemIntoTheRow() throws Exception {
+        Account account = createAccount("0.00");
+        runConcurrently(10, () -> outcome(update(account, OperationType.CREDIT, "5.00")));
+
+        assertThat(accountLedgerRepository.sumUncompacted(account.getId())).isEqualByComparingTo("50.00");
+        assertThat(liveBalance(account)).isEqualByComparingTo("50.00");
+
+        ledgerCompactor.compact();
+
+        assertThat(accountLedgerRepository.sumUncompacted(account.getId())).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("50.00");
+        assertThat(liveBalance(account)).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void compactionRunningAlongsideUpdates_neverChangesTheLiveBalance() throws Exception {
+        Account account = createAccount("100.00");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<Void> compactions = CompletableFuture.runAsync(() -> {
+            while (writing.get()) {
+                ledgerCompactor.compact();
+            }
+        });
+
+        List<Status.Code> credits;
+        List<Status.Code> debits;
+        try {
+            credits = runConcurrently(20, () -> outcome(update(account, OperationType.CREDIT, "1.00")));
+            debits = runConcurrently(20, () -> outcome(update(account, OperationType.DEBIT, "7.00")));
+        } finally {
+            writing.set(false);
+        }
+        compactions.join();
+        ledgerCompactor.compact();
+
+        assertThat(credits).containsOnly(Status.Code.OK);
+        //120.00 covers 17 debits of 7.00
+        assertThat(debits).filteredOn(code -> code == Status.Code.OK).hasSize(17);
+        assertThat(accountLedgerRepository.sumUncompacted(account.getId())).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("1.00");
+        assertThat(liveBalance(account)).isEqualByComparingTo("1.00");
+    }
+}
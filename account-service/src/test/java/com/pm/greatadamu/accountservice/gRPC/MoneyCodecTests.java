@@ -0,0 +1,49 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.grpc.account.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyCodecTests {
+
+    @Test
+    void money_isPreferredOverTheLegacyString() {
+        Money money = Money.newBuilder().setUnitsMinor(1250).setScale(2).setCurrency("USD").build();
+
+        assertThat(MoneyCodec.fromMoneyOrString(money, "999.99")).isEqualTo(new BigDecimal("12.50"));
+    }
+
+    @Test
+    void legacyString_isUsedWhenMoneyIsNotSet() {
+        assertThat(MoneyCodec.fromMoneyOrString(null, "12.50")).isEqualTo(new BigDecimal("12.50"));
+        assertThat(MoneyCodec.fromMoneyOrString(null, "")).isNull();
+        assertThat(MoneyCodec.fromMoneyOrString(null, null)).isNull();
+        assertThatThrownBy(() -> MoneyCodec.fromMoneyOrString(null, "12,50"))
+                .isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void missingCurrency_isTheDefault() {
+        Money money = Money.newBuilder().setUnitsMinor(5).setScale(0).build();
+
+        assertThat(MoneyCodec.fromMoney(money)).isEqualTo(new BigDecimal("5"));
+    }
+
+    @Test
+    void outOfRangeScaleOrOtherCurrency_isRejected() {
+        assertThatThrownBy(() -> MoneyCodec.fromMoney(Money.newBuilder().setUnitsMinor(1).setScale(-1).build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("scale");
+        assertThatThrownBy(() -> MoneyCodec.fromMoney(Money.newBuilder().setUnitsMinor(1).setScale(19).build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("scale");
+        assertThatThrownBy(() -> MoneyCodec.fromMoney(
+                Money.newBuilder().setUnitsMinor(1).setScale(2).setCurrency("EUR").build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("currency");
+    }
+}
@@ -0,0 +1,45 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateCommand;
+import com.pm.greatadamu.accountservice.dto.BalanceUpdateResult;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.BalanceOperation;
+import com.pm.greatadamu.accountservice.service.BalanceSequencer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "account.balance.update-mode=SEQUENCED")
+class SequencedBalanceUpdateTests extends BalanceUpdateModeTests {
+
+    @Autowired
+    private BalanceSequencer balanceSequencer;
+
+    @Test
+    void updatesOfOneAccount_areAppliedInArrivalOrder() throws Exception {
+        Account account = createAccount("50.00");
+
+        //submitted back to back, so they usually land in one lane batch
+        List<CompletableFuture<BalanceUpdateResult>> results = List.of(
+                balanceSequencer.submit(command(account, BalanceOperation.DEBIT, "60.00")),
+                balanceSequencer.submit(command(account, BalanceOperation.CREDIT, "20.00")),
+                balanceSequencer.submit(command(account, BalanceOperation.DEBIT, "60.00")));
+
+        assertThat(results.get(0).get(10, TimeUnit.SECONDS).getError()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(results.get(1).get(10, TimeUnit.SECONDS).getNewBalance()).isEqualByComparingTo("70.00");
+        assertThat(results.get(2).get(10, TimeUnit.SECONDS).getNewBalance()).isEqualByComparingTo("10.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("10.00");
+    }
+
+    private static BalanceUpdateCommand command(Account account, BalanceOperation operation, String amount) {
+        return new BalanceUpdateCommand(account.getId(), operation, new BigDecimal(amount), "test");
+    }
+}
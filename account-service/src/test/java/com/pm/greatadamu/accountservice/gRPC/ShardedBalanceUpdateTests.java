@@ -0,0 +1,192 @@
+package com.pm.greatadamu.accountservice.gRPC;
+
+import com.pm.greatadamu.accountservice.PostgresIntegrationTest;
+import com.pm.greatadamu.accountservice.dto.BatchTransferResult;
+import com.pm.greatadamu.accountservice.dto.TransferCommand;
+import com.pm.greatadamu.accountservice.dto.TransferResult;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.repository.AccountBalanceSlotRepository;
+import com.pm.greatadamu.accountservice.service.BalanceService;
+import com.pm.greatadamu.accountservice.service.ShardedBalanceService;
+import com.pm.greatadamu.grpc.account.OperationType;
+import com.pm.greatadamu.grpc.account.UpdateBalanceRequest;
+import com.pm.greatadamu.grpc.account.UpdateBalanceResponse;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//the sharded id is fixed by configuration, so the test account is moved onto it
+@TestPropertySource(properties = {
+        "account.balance.sharded.account-ids=" + ShardedBalanceUpdateTests.SHARDED_ID,
+        "account.balance.sharded.slots=8"
+})
+class ShardedBalanceUpdateTests extends PostgresIntegrationTest {
+    static final long SHARDED_ID = 900_000_001L;
+
+    @Autowired
+    private AccountGrpcService accountGrpcService;
+    @Autowired
+    private BalanceService balanceService;
+    @Autowired
+    private ShardedBalanceService shardedBalanceService;
+    @Autowired
+    private AccountBalanceSlotRepository accountBalanceSlotRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private DataSource dataSource;
+
+    private Account account;
+
+    @BeforeEach
+    void createShardedAccount() {
+        jdbcTemplate.update("delete from account_balance_slots where account_id = ?", SHARDED_ID);
+        jdbcTemplate.update("delete from account_ledger where account_id = ?", SHARDED_ID);
+        jdbcTemplate.update("delete from accounts where id = ?", SHARDED_ID);
+        Account created = createAccount("0.00");
+        jdbcTemplate.update("update accounts set id = ? where id = ?", SHARDED_ID, created.getId());
+        shardedBalanceService.provisionSlots();
+        account = accountRepository.findById(SHARDED_ID).orElseThrow();
+    }
+
+    @Test
+    void concurrentCredits_landOnTheSlotsAndAreAllApplied() throws Exception {
+        List<Status.Code> outcomes = runConcurrently(40, () -> outcome(OperationType.CREDIT, "2.50"));
+
+        assertThat(outcomes).containsOnly(Status.Code.OK);
+        assertThat(accountBalanceSlotRepository.sumByAccountId(SHARDED_ID)).isEqualByComparingTo("100.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("0.00");
+        assertThat(liveBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void concurrentDebits_neverOverdrawAcrossSlots() throws Exception {
+        runConcurrently(10, () -> outcome(OperationType.CREDIT, "10.00"));
+
+        List<Status.Code> outcomes = runConcurrently(25, () -> outcome(OperationType.DEBIT, "10.00"));
+
+        assertThat(outcomes).filteredOn(code -> code == Status.Code.OK).hasSize(10);
+        assertThat(outcomes).filteredOn(code -> code == Status.Code.FAILED_PRECONDITION).hasSize(15);
+        assertThat(liveBalance()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void debitNoSlotCovers_consolidatesTheSlotsIntoTheRow() throws Exception {
+        runConcurrently(16, () -> outcome(OperationType.CREDIT, "5.00"));
+        double before = consolidations();
+
+        assertThat(outcome(OperationType.DEBIT, "70.00")).isEqualTo(Status.Code.OK);
+
+        assertThat(consolidations()).isEqualTo(before + 1);
+        assertThat(accountBalanceSlotRepository.sumByAccountId(SHARDED_ID)).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("10.00");
+        assertThat(outcome(OperationType.DEBIT, "10.01")).isEqualTo(Status.Code.FAILED_PRECONDITION);
+        assertThat(liveBalance()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void transferIn_creditsASlotWithoutTheRowLock() throws Exception {
+        Account from = createAccount("100.00");
+
+        TransferResult result;
+        //another transaction holds the sharded row for the whole transfer
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("select id from accounts where id = " + SHARDED_ID + " for update");
+            result = CompletableFuture.supplyAsync(() -> balanceService.transfer(from.getId(), SHARDED_ID,
+                    new BigDecimal("40.00"), key(), null)).get(10, TimeUnit.SECONDS);
+            connection.rollback();
+        }
+
+        assertThat(result.getToNewBalance()).isEqualByComparingTo("40.00");
+        assertThat(accountBalanceSlotRepository.sumByAccountId(SHARDED_ID)).isEqualByComparingTo("40.00");
+        assertThat(balanceOf(account)).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(from)).isEqualByComparingTo("60.00");
+    }
+
+    @Test
+    void transferOut_paysFromACoveringSlot_andConsolidatesOnlyWhenNoneCovers() throws Exception {
+        Account other = createAccount("0.00");
+        runConcurrently(16, () -> outcome(OperationType.CREDIT, "5.00"));
+        double before = consolidations();
+
+        TransferResult covered = balanceService.transfer(SHARDED_ID, other.getId(), new BigDecimal("5.00"), key(), null);
+
+        assertThat(covered.getFromNewBalance()).isEqualByComparingTo("75.00");
+        assertThat(consolidations()).isEqualTo(before);
+        assertThat(balanceOf(account)).isEqualByComparingTo("0.00");
+
+        balanceService.transfer(SHARDED_ID, other.getId(), new BigDecimal("60.00"), key(), null);
+
+        assertThat(consolidations()).isEqualTo(before + 1);
+        assertThat(balanceOf(account)).isEqualByComparingTo("15.00");
+        assertThat(accountBalanceSlotRepository.sumByAccountId(SHARDED_ID)).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(other)).isEqualByComparingTo("65.00");
+    }
+
+    @Test
+    void transferBatch_movesSlotMoneyBothWays() {
+        Account a = createAccount("100.00");
+        Account b = createAccount("0.00");
+
+        List<BatchTransferResult> results = balanceService.transferBatch(List.of(
+                new TransferCommand(a.getId(), SHARDED_ID, new BigDecimal("30.00"), key(), null),
+                //spends the slot credited by the first item
+                new TransferCommand(SHARDED_ID, b.getId(), new BigDecimal("30.00"), key(), null),
+                new TransferCommand(SHARDED_ID, b.getId(), new BigDecimal("0.01"), key(), null)));
+
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(1).getError()).isNull();
+        assertThat(results.get(2).getError()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(balanceOf(a)).isEqualByComparingTo("70.00");
+        assertThat(balanceOf(b)).isEqualByComparingTo("30.00");
+        assertThat(liveBalance()).isEqualByComparingTo("0.00");
+    }
+
+    private Status.Code outcome(OperationType operation, String amount) throws Exception {
+        FutureObserver<UpdateBalanceResponse> response = new FutureObserver<>();
+        accountGrpcService.updateBalance(UpdateBalanceRequest.newBuilder()
+                .setAccountId(SHARDED_ID)
+                .setOperation(operation)
+                .setAmount(amount)
+                .setDescription("test")
+                .build(), response);
+        try {
+            response.get(30, TimeUnit.SECONDS);
+            return Status.Code.OK;
+        } catch (ExecutionException e) {
+            return Status.fromThrowable(e.getCause()).getCode();
+        }
+    }
+
+    private static String key() {
+        return UUID.randomUUID().toString();
+    }
+
+    private BigDecimal liveBalance() {
+        return balanceService.findBalances(List.of(SHARDED_ID)).get(SHARDED_ID);
+    }
+
+    private double consolidations() {
+        return meterRegistry.get("account.balance.sharded.consolidations").counter().count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.PostgresIntegrationTest;
+import com.pm.greatadamu.accountservice.dto.BatchTransferResult;
+import com.pm.greatadamu.accountservice.dto.TransferCommand;
+import com.pm.greatadamu.accountservice.exception.AccountNotFoundException;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceServiceTransferBatchTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Test
+    void rejectedItemsDoNotAffectTheOthers() {
+        Account a = createAccount("100.00");
+        Account b = createAccount("0.00");
+        Account c = createAccount("0.00");
+        String prefix = UUID.randomUUID().toString();
+
+        List<BatchTransferResult> results = balanceService.transferBatch(List.of(
+                command(a, b, "50.00", prefix + "-1"),
+                command(a, b, "80.00", prefix + "-2"),
+                //spends money credited by the first item
+                command(b, c, "30.00", prefix + "-3"),
+                new TransferCommand(a.getId(), Long.MAX_VALUE, BigDecimal.ONE, prefix + "-4", null)));
+
+        assertThat(results.get(0).getResult().getFromNewBalance()).isEqualByComparingTo("50.00");
+        assertThat(results.get(1).getError()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(results.get(2).getResult().getToNewBalance()).isEqualByComparingTo("30.00");
+        assertThat(results.get(3).getError()).isInstanceOf(AccountNotFoundException.class);
+        assertThat(balanceOf(a)).isEqualByComparingTo("50.00");
+        assertThat(balanceOf(b)).isEqualByComparingTo("20.00");
+        assertThat(balanceOf(c)).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void resentBatchIsReplayed() {
+        Account a = createAccount("100.00");
+        Account b = createAccount("0.00");
+        String prefix = UUID.randomUUID().toString();
+        List<TransferCommand> batch = List.of(command(a, b, "10.00", prefix + "-1"), command(a, b, "15.00", prefix + "-2"));
+
+        balanceService.transferBatch(batch);
+        List<BatchTransferResult> retry = balanceService.transferBatch(batch);
+
+        assertThat(retry).allSatisfy(result -> assertThat(result.getResult().isAlreadyApplied()).isTrue());
+        assertThat(balanceOf(a)).isEqualByComparingTo("75.00");
+        assertThat(balanceOf(b)).isEqualByComparingTo("25.00");
+    }
+
+    @Test
+    void keyReusedForADifferentTransferIsRejected() {
+        Account a = createAccount("100.00");
+        Account b = createAccount("0.00");
+        String prefix = UUID.randomUUID().toString();
+        balanceService.transferBatch(List.of(command(a, b, "10.00", prefix + "-1")));
+
+        List<BatchTransferResult> results = balanceService.transferBatch(List.of(
+                command(a, b, "20.00", prefix + "-1"),
+                command(a, b, "15.00", prefix + "-2"),
+                //same key twice in one batch: the second one must match the first as well
+                command(b, a, "15.00", prefix + "-2")));
+
+        assertThat(results.get(0).getError()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(results.get(1).getResult().isAlreadyApplied()).isFalse();
+        assertThat(results.get(2).getError()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(balanceOf(a)).isEqualByComparingTo("75.00");
+        assertThat(balanceOf(b)).isEqualByComparingTo("25.00");
+    }
+
+    private static TransferCommand command(Account from, Account to, String amount, String key) {
+        return new TransferCommand(from.getId(), to.getId(), new BigDecimal(amount), key, null);
+    }
+}
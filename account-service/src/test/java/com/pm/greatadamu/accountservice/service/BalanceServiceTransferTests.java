@@ -0,0 +1,171 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.PostgresIntegrationTest;
+import com.pm.greatadamu.accountservice.dto.TransferResult;
+import com.pm.greatadamu.accountservice.exception.AccountNotActiveException;
+import com.pm.greatadamu.accountservice.exception.InsufficientFundsException;
+import com.pm.greatadamu.accountservice.model.Account;
+import com.pm.greatadamu.accountservice.model.AccountStatus;
+import com.pm.greatadamu.accountservice.repository.AccountTransferRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BalanceServiceTransferTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private AccountTransferRepository accountTransferRepository;
+
+    @Test
+    void transferMovesMoneyInOneStep() {
+        Account from = createAccount("100.00");
+        Account to = createAccount("5.00");
+
+        TransferResult result = balanceService.transfer(from.getId(), to.getId(), new BigDecimal("40.00"), key(), "rent");
+
+        assertThat(result.isAlreadyApplied()).isFalse();
+        assertThat(result.getFromNewBalance()).isEqualByComparingTo("60.00");
+        assertThat(result.getToNewBalance()).isEqualByComparingTo("45.00");
+        assertThat(balanceOf(from)).isEqualByComparingTo("60.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("45.00");
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstResult() {
+        Account from = createAccount("100.00");
+        Account to = createAccount("0.00");
+        String key = key();
+
+        TransferResult first = balanceService.transfer(from.getId(), to.getId(), new BigDecimal("30.00"), key, null);
+        TransferResult retry = balanceService.transfer(from.getId(), to.getId(), new BigDecimal("30.00"), key, null);
+
+        assertThat(retry.isAlreadyApplied()).isTrue();
+        assertThat(retry.getFromNewBalance()).isEqualByComparingTo(first.getFromNewBalance());
+        assertThat(retry.getToNewBalance()).isEqualByComparingTo(first.getToNewBalance());
+        assertThat(balanceOf(from)).isEqualByComparingTo("70.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void keyReusedForADifferentTransferIsRejected() {
+        Account from = createAccount("100.00");
+        Account to = createAccount("0.00");
+        Account other = createAccount("0.00");
+        String key = key();
+        balanceService.transfer(from.getId(), to.getId(), new BigDecimal("30.00"), key, null);
+
+        assertThatThrownBy(() -> balanceService.transfer(from.getId(), to.getId(), new BigDecimal("31.00"), key, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different transfer");
+        assertThatThrownBy(() -> balanceService.transfer(from.getId(), other.getId(), new BigDecimal("30.00"), key, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> balanceService.transfer(to.getId(), from.getId(), new BigDecimal("30.00"), key, null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        //the scale of the amount doesn't make it a different transfer
+        assertThat(balanceService.transfer(from.getId(), to.getId(), new BigDecimal("30.0"), key, null)
+                .isAlreadyApplied()).isTrue();
+        assertThat(balanceOf(from)).isEqualByComparingTo("70.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("30.00");
+        assertThat(balanceOf(other)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void concurrentRetriesOfOneKeyApplyItOnce() throws Exception {
+        Account from = createAccount("100.00");
+        Account to = createAccount("0.00");
+        String key = key();
+
+        List<TransferResult> results = runConcurrently(8, () ->
+                balanceService.transfer(from.getId(), to.getId(), new BigDecimal("25.00"), key, null));
+
+        assertThat(results).filteredOn(result -> !result.isAlreadyApplied()).hasSize(1);
+        assertThat(balanceOf(from)).isEqualByComparingTo("75.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("25.00");
+        assertThat(accountTransferRepository.findByIdempotencyKey(key)).isPresent();
+    }
+
+    @Test
+    void insufficientFundsLeavesBothAccountsUntouched() {
+        Account from = createAccount("10.00");
+        Account to = createAccount("0.00");
+        String key = key();
+
+        assertThatThrownBy(() -> balanceService.transfer(from.getId(), to.getId(), new BigDecimal("10.01"), key, null))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        assertThat(balanceOf(from)).isEqualByComparingTo("10.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("0.00");
+        assertThat(accountTransferRepository.findByIdempotencyKey(key)).isEmpty();
+    }
+
+    @Test
+    void inactiveDestinationIsRejected() {
+        Account from = createAccount("10.00");
+        Account to = createAccount("0.00");
+        to.setAccountStatus(AccountStatus.CLOSED);
+        accountRepository.save(to);
+
+        assertThatThrownBy(() -> balanceService.transfer(from.getId(), to.getId(), BigDecimal.ONE, key(), null))
+                .isInstanceOf(AccountNotActiveException.class);
+        assertThat(balanceOf(from)).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void concurrentTransfersNeverOverdraw() throws Exception {
+        Account from = createAccount("100.00");
+        Account to = createAccount("0.00");
+
+        //20 transfers of 10 against a balance of 100: exactly 10 can succeed
+        List<Boolean> outcomes = runConcurrently(20, () -> {
+            try {
+                balanceService.transfer(from.getId(), to.getId(), BigDecimal.TEN, key(), null);
+                return true;
+            } catch (InsufficientFundsException e) {
+                return false;
+            }
+        });
+
+        assertThat(outcomes).filteredOn(Boolean::booleanValue).hasSize(10);
+        assertThat(balanceOf(from)).isEqualByComparingTo("0.00");
+        assertThat(balanceOf(to)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void oppositeTransfersDoNotDeadlock() throws Exception {
+        Account a = createAccount("1000.00");
+        Account b = createAccount("1000.00");
+
+        List<TransferResult> results = runConcurrently(20, new Callable<>() {
+            private int next;
+
+            @Override
+            public TransferResult call() {
+                boolean forward;
+                synchronized (this) {
+                    forward = next++ % 2 == 0;
+                }
+                return forward
+                        ? balanceService.transfer(a.getId(), b.getId(), BigDecimal.ONE, key(), null)
+                        : balanceService.transfer(b.getId(), a.getId(), BigDecimal.ONE, key(), null);
+            }
+        });
+
+        assertThat(results).hasSize(20);
+        assertThat(balanceOf(a).add(balanceOf(b))).isEqualByComparingTo("2000.00");
+    }
+
+    private static String key() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.pm.greatadamu.accountservice.service;
+
+import com.pm.greatadamu.accountservice.dto.LiveBalance;
+import com.pm.greatadamu.accountservice.repository.AccountRepository;
+import com.pm.greatadamu.grpc.account.BalanceUpdate;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceWatchRegistryTests {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<Long, BigDecimal> balances = new ConcurrentHashMap<>();
+    private BalanceWatchRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(accountRepository.findLiveBalances(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(balances::containsKey)
+                    .<LiveBalance>map(id -> new Live(id, balances.get(id), 1L))
+                    .toList();
+        });
+        registry = new BalanceWatchRegistry(accountRepository, meterRegistry, 1, 1, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void subscribe_sendsTheCurrentBalanceOfEveryWatchedAccount() {
+        balances.put(1L, new BigDecimal("10.00"));
+        balances.put(2L, new BigDecimal("20.00"));
+        FakeObserver observer = new FakeObserver();
+
+        registry.subscribe(List.of(1L, 2L), observer);
+
+        awaitTrue(() -> observer.received().size() == 2);
+        assertThat(observer.received()).extracting(BalanceUpdate::getAccountId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(observer.received()).extracting(BalanceUpdate::getBalance).containsExactlyInAnyOrder("10.00", "20.00");
+    }
+
+    @Test
+    void committedChange_isReadBackAndSent() {
+        balances.put(1L, new BigDecimal("10.00"));
+        FakeObserver observer = new FakeObserver();
+        registry.subscribe(List.of(1L), observer);
+        awaitTrue(() -> observer.received().size() == 1);
+
+        balances.put(1L, new BigDecimal("7.50"));
+        registry.onBalanceChanged(new BalanceChangedEvent(1L));
+
+        awaitTrue(() -> observer.received().size() == 2);
+        assertThat(observer.received().get(1).getBalance()).isEqualTo("7.50");
+    }
+
+    @Test
+    void updatesWhileNotReady_areCoalescedToTheNewest() {
+        balances.put(1L, new BigDecimal("10.00"));
+        FakeObserver observer = new FakeObserver();
+        observer.ready = false;
+        registry.subscribe(List.of(1L), observer);
+
+        for (String balance : List.of("9.00", "8.00", "7.00")) {
+            double replaced = coalesced() + 1;
+            balances.put(1L, new BigDecimal(balance));
+            registry.onBalanceChanged(new BalanceChangedEvent(1L));
+            awaitTrue(() -> coalesced() == replaced);
+        }
+        observer.becomeReady();
+
+        awaitTrue(() -> observer.received().size() == 1);
+        assertThat(observer.received().get(0).getBalance()).isEqualTo("7.00");
+    }
+
+    @Test
+    void subscriberThatFallsBehind_isDropped() throws Exception {
+        registry.shutdown();
+        registry = new BalanceWatchRegistry(accountRepository, meterRegistry, 1, 1, 100);
+        balances.put(1L, new BigDecimal("10.00"));
+        FakeObserver observer = new FakeObserver();
+        observer.ready = false;
+        registry.subscribe(List.of(1L), observer);
+
+        Thread.sleep(200);
+        balances.put(1L, new BigDecimal("9.00"));
+        registry.onBalanceChanged(new BalanceChangedEvent(1L));
+
+        Throwable error = observer.error.get(5, TimeUnit.SECONDS);
+        assertThat(Status.fromThrowable(error).getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        assertThat(meterRegistry.get("account.balance.watch.dropped").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("account.balance.watch.subscribers").gauge().value()).isZero();
+    }
+
+    @Test
+    void cancelledSubscriber_noLongerTriggersReads() {
+        balances.put(1L, new BigDecimal("10.00"));
+        FakeObserver observer = new FakeObserver();
+        registry.subscribe(List.of(1L), observer);
+        awaitTrue(() -> observer.received().size() == 1);
+
+        observer.cancel();
+        clearInvocations(accountRepository);
+        registry.onBalanceChanged(new BalanceChangedEvent(1L));
+
+        verify(accountRepository, never()).findLiveBalances(anyCollection());
+        assertThat(meterRegistry.get("account.balance.watch.subscribers").gauge().value()).isZero();
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("account.balance.watch.coalesced").counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private record Live(Long id, BigDecimal balance, Long version) implements LiveBalance {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public BigDecimal getAccountBalance() {
+            return balance;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+    }
+
+    //records what the registry sends; readiness and cancellation are driven by the test
+    private final class FakeObserver extends ServerCallStreamObserver<BalanceUpdate> {
+        private final List<BalanceUpdate> received = new ArrayList<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        private volatile boolean ready = true;
+        private volatile boolean cancelled;
+        private Runnable onReadyHandler = () -> { };
+        private Runnable onCancelHandler = () -> { };
+
+        synchronized List<BalanceUpdate> received() {
+            return List.copyOf(received);
+        }
+
+        void becomeReady() {
+            ready = true;
+            onReadyHandler.run();
+        }
+
+        void cancel() {
+            cancelled = true;
+            onCancelHandler.run();
+        }
+
+        @Override
+        public synchronized void onNext(BalanceUpdate value) {
+            received.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error.complete(t);
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancelHandler = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pm.greatadamu.analyticsservice.config;
+
+import com.pm.greatadamu.analyticsservice.service.AnalyticsWriteBehindStore;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+
+@Configuration
+public class KafkaConfig {
+
+    //flush buffered events before partitions move to another consumer, while their offsets are still ours to commit
+    @Bean
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> writeBehindRebalanceCustomizer(
+            AnalyticsWriteBehindStore analyticsWriteBehindStore) {
+        return container -> container.getContainerProperties().setConsumerRebalanceListener(
+                new ConsumerAwareRebalanceListener() {
+                    @Override
+                    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                                Collection<TopicPartition> partitions) {
+                        analyticsWriteBehindStore.flush();
+                    }
+                });
+    }
+}
@@ -1,11 +1,15 @@
 package com.pm.greatadamu.analyticsservice.controller;
 import com.pm.greatadamu.analyticsservice.dto.AnalyticsResponseDTO;
+import com.pm.greatadamu.analyticsservice.dto.AnalyticsSeriesPointDTO;
 import com.pm.greatadamu.analyticsservice.model.Month;
+import com.pm.greatadamu.analyticsservice.service.AnalyticsSeriesService;
 import com.pm.greatadamu.analyticsservice.service.MonthlyAnalyticsService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -13,6 +17,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MonthlyAnalyticsController {
     private final MonthlyAnalyticsService monthlyAnalyticsService;
+    private final AnalyticsSeriesService analyticsSeriesService;
 
     @GetMapping
     public ResponseEntity<AnalyticsResponseDTO> getMonthlyAnalytics(
@@ -51,4 +56,15 @@ public class MonthlyAnalyticsController {
 
     }
 
+    //bucketed totals (granularity=day|week|month) between from and to (inclusive), empty buckets as zeros
+    @GetMapping("/customer/{customerId}/series")
+    public ResponseEntity<List<AnalyticsSeriesPointDTO>> getSeries(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ){
+        return ResponseEntity.ok(analyticsSeriesService.getSeries(customerId, granularity, from, to));
+    }
+
 }
@@ -0,0 +1,21 @@
+package com.pm.greatadamu.analyticsservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+//one bucket of a series; buckets without transactions are returned with zero totals
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsSeriesPointDTO {
+    private LocalDate bucketStart;
+    private BigDecimal totalSpent;
+    private BigDecimal totalReceived;
+    private Long transactionCount;
+}
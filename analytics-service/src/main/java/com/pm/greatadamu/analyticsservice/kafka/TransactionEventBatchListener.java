@@ -0,0 +1,69 @@
+package com.pm.greatadamu.analyticsservice.kafka;
+
+import com.pm.greatadamu.analyticsservice.service.AnalyticsWriteBehindStore;
+import com.pm.greatadamu.analyticsservice.service.MonthlyAnalyticsService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Receives whole poll results (up to spring.kafka.consumer.max-poll-records events).
+ * With write-behind they go to AnalyticsWriteBehindStore and are acknowledged by its flush; otherwise they
+ * are applied with one write per distinct (customerId, month, year) and acknowledged once that DB
+ * transaction committed. Either way a batch that never reaches the DB is redelivered.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "analytics.kafka.batch-listener", havingValue = "true", matchIfMissing = true)
+public class TransactionEventBatchListener {
+    private final MonthlyAnalyticsService monthlyAnalyticsService;
+    private final AnalyticsWriteBehindStore analyticsWriteBehindStore;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary rowsWritten;
+    private final Timer applyTimer;
+
+    @Value("${analytics.write-behind.enabled:true}")
+    private boolean writeBehind;
+
+    public TransactionEventBatchListener(MonthlyAnalyticsService monthlyAnalyticsService,
+                                         AnalyticsWriteBehindStore analyticsWriteBehindStore,
+                                         MeterRegistry meterRegistry) {
+        this.monthlyAnalyticsService = monthlyAnalyticsService;
+        this.analyticsWriteBehindStore = analyticsWriteBehindStore;
+        this.batchSize = DistributionSummary.builder("analytics.events.batch.size")
+                .description("Transaction events received in one poll")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rowsWritten = DistributionSummary.builder("analytics.events.batch.rows")
+                .description("Analytics rows written for one batch (distinct customer/month/year)")
+                .register(meterRegistry);
+        this.applyTimer = Timer.builder("analytics.events.batch.apply")
+                .description("Time to fold and write one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "transactions", groupId = "analytics-service", batch = "true")
+    public void handleTransactionEvents(List<TransactionEvent> transactionEvents, Acknowledgment ack) {
+        log.info("Received {} transaction events", transactionEvents.size());
+        batchSize.record(transactionEvents.size());
+
+        if (writeBehind) {
+            analyticsWriteBehindStore.add(transactionEvents, ack);
+            return;
+        }
+
+        //hand off to business logic
+        int rows = applyTimer.record(() -> monthlyAnalyticsService.applyTransactionBatch(transactionEvents));
+        rowsWritten.record(rows);
+        ack.acknowledge();
+    }
+}
@@ -1,22 +1,41 @@
 package com.pm.greatadamu.analyticsservice.kafka;
 
+import com.pm.greatadamu.analyticsservice.service.AnalyticsWriteBehindStore;
 import com.pm.greatadamu.analyticsservice.service.MonthlyAnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+//one event per call, used when analytics.kafka.batch-listener=false
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "analytics.kafka.batch-listener", havingValue = "false")
 public class TransactionEventListener {
     private final MonthlyAnalyticsService monthlyAnalyticsService;
+    private final AnalyticsWriteBehindStore analyticsWriteBehindStore;
+
+    @Value("${analytics.write-behind.enabled:true}")
+    private boolean writeBehind;
 
     @KafkaListener(topics = "transactions",groupId = "analytics-service")
-    public void handleTransactionEvent(TransactionEvent transactionEvent) {
+    public void handleTransactionEvent(TransactionEvent transactionEvent, Acknowledgment ack) {
         log.info("Received transaction event {}", transactionEvent);
 
+        //write-behind: the offset is committed after the next flush
+        if (writeBehind) {
+            analyticsWriteBehindStore.add(List.of(transactionEvent), ack);
+            return;
+        }
+
         //hand off to business logic
         monthlyAnalyticsService.updateAnalyticsFromTransaction(transactionEvent);
+        ack.acknowledge();
     }
 }
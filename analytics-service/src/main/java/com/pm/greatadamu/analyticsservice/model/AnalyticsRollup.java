@@ -0,0 +1,59 @@
+package com.pm.greatadamu.analyticsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//Daily and ISO-week totals, kept next to monthly_analytics from the same events
+//(the unique key doubles as the index for series range scans)
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(
+        name = "analytics_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"customerId", "granularity", "bucketStart"})
+)
+public class AnalyticsRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_rollups_seq")
+    @SequenceGenerator(name = "analytics_rollups_seq", sequenceName = "analytics_rollups_seq", allocationSize = 50)
+    private Long id;
+
+    private Long customerId;
+
+    //DAY or WEEK
+    @Enumerated(EnumType.STRING)
+    private BucketGranularity granularity;
+
+    //the day itself, or the Monday of the ISO week
+    private LocalDate bucketStart;
+
+    private BigDecimal totalSpent;
+
+    private BigDecimal totalReceived;
+
+    private Long transactionCount;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        LocalDateTime now = LocalDateTime.now();
+        createdAt = now;
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
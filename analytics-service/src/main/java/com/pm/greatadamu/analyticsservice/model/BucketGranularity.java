@@ -0,0 +1,8 @@
+package com.pm.greatadamu.analyticsservice.model;
+
+//series bucket size; DAY and WEEK (ISO, starting Monday) live in analytics_rollups, MONTH in monthly_analytics
+public enum BucketGranularity {
+    DAY,
+    WEEK,
+    MONTH
+}
@@ -21,7 +21,8 @@ import java.time.Year;
 )
 public class MonthlyAnalytics {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "monthly_analytics_seq")
+    @SequenceGenerator(name = "monthly_analytics_seq", sequenceName = "monthly_analytics_seq", allocationSize = 50)
     private Long id;
 
     private Long customerId;
@@ -0,0 +1,27 @@
+package com.pm.greatadamu.analyticsservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//transactionIds already counted in monthly_analytics, written in the same DB transaction as the increment
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(
+        name = "processed_transaction_events",
+        indexes = @Index(name = "idx_processed_event_processed_at", columnList = "processedAt")
+)
+public class ProcessedTransactionEvent {
+    @Id
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,42 @@
+package com.pm.greatadamu.analyticsservice.repository;
+
+import com.pm.greatadamu.analyticsservice.model.AnalyticsRollup;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, Long> {
+    //buckets of one customer in [from, to], oldest first
+    List<AnalyticsRollup> findByCustomerIdAndGranularityAndBucketStartBetweenOrderByBucketStart(
+            Long customerId,
+            BucketGranularity granularity,
+            LocalDate from,
+            LocalDate to
+    );
+
+    //same single-statement increment as MonthlyAnalyticsRepository.upsertIncrement
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into analytics_rollups (id, customer_id, granularity, bucket_start, total_spent, total_received,
+                                           transaction_count, created_at, updated_at)
+            values (nextval('analytics_rollups_seq'), :customerId, :granularity, :bucketStart, :totalSpent,
+                    :totalReceived, :transactionCount, now(), now())
+            on conflict (customer_id, granularity, bucket_start) do update
+            set total_spent = analytics_rollups.total_spent + excluded.total_spent,
+                total_received = analytics_rollups.total_received + excluded.total_received,
+                transaction_count = analytics_rollups.transaction_count + excluded.transaction_count,
+                updated_at = now()
+            """)
+    int upsertIncrement(@Param("customerId") Long customerId,
+                        @Param("granularity") String granularity,
+                        @Param("bucketStart") LocalDate bucketStart,
+                        @Param("totalSpent") BigDecimal totalSpent,
+                        @Param("totalReceived") BigDecimal totalReceived,
+                        @Param("transactionCount") long transactionCount);
+}
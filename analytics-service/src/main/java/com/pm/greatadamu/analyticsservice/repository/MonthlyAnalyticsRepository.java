@@ -3,7 +3,11 @@ package com.pm.greatadamu.analyticsservice.repository;
 import com.pm.greatadamu.analyticsservice.model.Month;
 import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +24,29 @@ public interface MonthlyAnalyticsRepository extends JpaRepository<MonthlyAnalyti
     //Find analytics for a specific year
     List<MonthlyAnalytics> findByCustomerIdAndYear(Long customerId,int year);
 
+    //monthly series: the rows of a range of years (filtered to the requested months by the caller)
+    List<MonthlyAnalytics> findByCustomerIdAndYearBetween(Long customerId, int fromYear, int toYear);
+
+    //adds a delta to the row in one statement, creating it on the first event of the month
+    //(safe to run concurrently: the row lock of the conflicting insert serializes increments)
+    //nextval is evaluated even when the row exists; that only skips ids
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into monthly_analytics (id, customer_id, month, year, total_spent, total_received,
+                                           transaction_count, created_at, updated_at)
+            values (nextval('monthly_analytics_seq'), :customerId, :month, :year, :totalSpent, :totalReceived,
+                    :transactionCount, now(), now())
+            on conflict (customer_id, month, year) do update
+            set total_spent = monthly_analytics.total_spent + excluded.total_spent,
+                total_received = monthly_analytics.total_received + excluded.total_received,
+                transaction_count = monthly_analytics.transaction_count + excluded.transaction_count,
+                updated_at = now()
+            """)
+    int upsertIncrement(@Param("customerId") Long customerId,
+                        @Param("month") String month,
+                        @Param("year") int year,
+                        @Param("totalSpent") BigDecimal totalSpent,
+                        @Param("totalReceived") BigDecimal totalReceived,
+                        @Param("transactionCount") long transactionCount);
+
 }
@@ -0,0 +1,35 @@
+package com.pm.greatadamu.analyticsservice.repository;
+
+import com.pm.greatadamu.analyticsservice.model.ProcessedTransactionEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProcessedTransactionEventRepository extends JpaRepository<ProcessedTransactionEvent, Long> {
+
+    //records the ids and returns only those not recorded before (the check and the write are one statement);
+    //one array parameter: a collection would be expanded to (?, ?, ...), which Postgres reads as one row value
+    @Query(nativeQuery = true, value = """
+            insert into processed_transaction_events (transaction_id, processed_at)
+            select id, now() from unnest(cast(:ids as bigint[])) as id
+            on conflict (transaction_id) do nothing
+            returning transaction_id
+            """)
+    List<Long> insertNew(@Param("ids") Long[] ids);
+
+    //bounded delete, so a large backlog doesn't become one long transaction
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from processed_transaction_events
+            where transaction_id in (select transaction_id from processed_transaction_events
+                                     where processed_at < :cutoff
+                                     limit :limit)
+            """)
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
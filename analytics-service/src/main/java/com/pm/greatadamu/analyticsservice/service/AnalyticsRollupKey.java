@@ -0,0 +1,32 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+
+//one analytics_rollups row: (customerId, DAY|WEEK, bucket start)
+public record AnalyticsRollupKey(Long customerId, BucketGranularity granularity, LocalDate bucketStart) {
+    //upsert order of every write path, so concurrent writers lock rollup rows in the same order
+    public static final Comparator<AnalyticsRollupKey> ROW_ORDER = Comparator
+            .comparing(AnalyticsRollupKey::customerId)
+            .thenComparing(AnalyticsRollupKey::granularity)
+            .thenComparing(key -> key.bucketStart());
+
+    public static AnalyticsRollupKey of(TransactionEvent transactionEvent, BucketGranularity granularity) {
+        return new AnalyticsRollupKey(transactionEvent.getCustomerId(), granularity,
+                bucketStart(transactionEvent.getTransactionDate().toLocalDate(), granularity));
+    }
+
+    //first day of the bucket containing date (ISO weeks start on Monday)
+    public static LocalDate bucketStart(LocalDate date, BucketGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.dto.AnalyticsSeriesPointDTO;
+import com.pm.greatadamu.analyticsservice.model.AnalyticsRollup;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
+import com.pm.greatadamu.analyticsservice.repository.AnalyticsRollupRepository;
+import com.pm.greatadamu.analyticsservice.repository.MonthlyAnalyticsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bucketed totals of one customer over a date range: DAY and WEEK buckets come from analytics_rollups,
+ * MONTH buckets from monthly_analytics. Deltas still buffered by the write-behind store are added, and
+ * every bucket between from and to is returned, with zero totals where nothing happened.
+ * An unknown granularity or an invalid/too long range is answered with 400.
+ */
+@Service
+public class AnalyticsSeriesService {
+    private final AnalyticsRollupRepository analyticsRollupRepository;
+    private final MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    private final AnalyticsWriteBehindStore analyticsWriteBehindStore;
+    private final int maxBuckets;
+
+    public AnalyticsSeriesService(AnalyticsRollupRepository analyticsRollupRepository,
+                                  MonthlyAnalyticsRepository monthlyAnalyticsRepository,
+                                  AnalyticsWriteBehindStore analyticsWriteBehindStore,
+                                  @Value("${analytics.series.max-buckets:1000}") int maxBuckets) {
+        this.analyticsRollupRepository = analyticsRollupRepository;
+        this.monthlyAnalyticsRepository = monthlyAnalyticsRepository;
+        this.analyticsWriteBehindStore = analyticsWriteBehindStore;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public List<AnalyticsSeriesPointDTO> getSeries(Long customerId, String granularity, LocalDate from, LocalDate to) {
+        BucketGranularity bucketGranularity = parseGranularity(granularity);
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must not be after 'to'");
+        }
+        LocalDate first = AnalyticsRollupKey.bucketStart(from, bucketGranularity);
+        LocalDate last = AnalyticsRollupKey.bucketStart(to, bucketGranularity);
+        long buckets = unit(bucketGranularity).between(first, last) + 1;
+        if (buckets > maxBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Range spans " + buckets + " buckets, at most " + maxBuckets + " allowed");
+        }
+
+        Map<LocalDate, MonthlyAnalyticsDelta> totals = analyticsWriteBehindStore.readConsistent(() ->
+                bucketGranularity == BucketGranularity.MONTH
+                        ? monthTotals(customerId, first, last)
+                        : rollupTotals(customerId, bucketGranularity, first, last));
+
+        //gap filling: one point per bucket, in order
+        List<AnalyticsSeriesPointDTO> series = new ArrayList<>((int) buckets);
+        for (LocalDate bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, unit(bucketGranularity))) {
+            MonthlyAnalyticsDelta total = totals.get(bucket);
+            series.add(AnalyticsSeriesPointDTO.builder()
+                    .bucketStart(bucket)
+                    .totalSpent(total != null ? total.getTotalSpent() : BigDecimal.ZERO)
+                    .totalReceived(total != null ? total.getTotalReceived() : BigDecimal.ZERO)
+                    .transactionCount(total != null ? total.getTransactionCount() : 0L)
+                    .build());
+        }
+        return series;
+    }
+
+    private Map<LocalDate, MonthlyAnalyticsDelta> rollupTotals(Long customerId, BucketGranularity granularity,
+                                                                 LocalDate first, LocalDate last) {
+        Map<LocalDate, MonthlyAnalyticsDelta> totals = new HashMap<>();
+        for (AnalyticsRollup rollup : analyticsRollupRepository
+                .findByCustomerIdAndGranularityAndBucketStartBetweenOrderByBucketStart(customerId, granularity, first, last)) {
+            add(totals, rollup.getBucketStart(), rollup.getTotalSpent(), rollup.getTotalReceived(),
+                    rollup.getTransactionCount());
+        }
+        analyticsWriteBehindStore.pendingRollups(customerId, granularity).forEach((bucket, pending) -> {
+            if (!bucket.isBefore(first) && !bucket.isAfter(last)) {
+                add(totals, bucket, pending.getTotalSpent(), pending.getTotalReceived(), pending.getTransactionCount());
+            }
+        });
+        return totals;
+    }
+
+    private Map<LocalDate, MonthlyAnalyticsDelta> monthTotals(Long customerId, LocalDate first, LocalDate last) {
+        Map<LocalDate, MonthlyAnalyticsDelta> totals = new HashMap<>();
+        for (MonthlyAnalytics row : monthlyAnalyticsRepository
+                .findByCustomerIdAndYearBetween(customerId, first.getYear(), last.getYear())) {
+            add(totals, LocalDate.of(row.getYear(), row.getMonth().ordinal() + 1, 1),
+                    row.getTotalSpent(), row.getTotalReceived(), row.getTransactionCount());
+        }
+        analyticsWriteBehindStore.pendingDeltas(customerId, null).forEach((key, pending) ->
+                add(totals, LocalDate.of(key.year(), key.month().ordinal() + 1, 1),
+                        pending.getTotalSpent(), pending.getTotalReceived(), pending.getTransactionCount()));
+        //months of the first and last year outside the range are not returned
+        totals.keySet().removeIf(bucket -> bucket.isBefore(first) || bucket.isAfter(last));
+        return totals;
+    }
+
+    private static void add(Map<LocalDate, MonthlyAnalyticsDelta> totals, LocalDate bucket,
+                            BigDecimal spent, BigDecimal received, Long count) {
+        MonthlyAnalyticsDelta total = totals.computeIfAbsent(bucket, k -> new MonthlyAnalyticsDelta());
+        total.setTotalSpent(total.getTotalSpent().add(spent));
+        total.setTotalReceived(total.getTotalReceived().add(received));
+        total.setTransactionCount(total.getTransactionCount() + count);
+    }
+
+    private static ChronoUnit unit(BucketGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+        };
+    }
+
+    private static BucketGranularity parseGranularity(String granularity) {
+        try {
+            return BucketGranularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be one of day, week, month", e);
+        }
+    }
+}
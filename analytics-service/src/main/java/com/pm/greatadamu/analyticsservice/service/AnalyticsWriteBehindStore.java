@@ -0,0 +1,425 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+import com.pm.greatadamu.analyticsservice.model.Month;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind aggregates (analytics.write-behind.enabled=true): the listener adds events to an in-memory
+ * buffer keyed by a packed (customerId, year, month) long (day/week rollups by AnalyticsRollupKey), with amounts
+ * as long minor units, and
+ * returns without touching Postgres. Every flush-interval-ms the buffer is swapped for an empty one and
+ * written to monthly_analytics (and the day/week analytics_rollups) as JDBC batches of upserts; the Kafka offsets of its events are
+ * acknowledged only after that transaction committed.
+ * Writers never lock: they register on the buffer they write to, and the flusher waits for them to leave
+ * before reading it. Buffers are flushed oldest first; a failed flush is retried and newer buffers wait,
+ * so offsets are never committed past unflushed events. While flushes keep failing, the listener containers
+ * are paused once max-pending-events are buffered, instead of buffering without limit.
+ */
+@Component
+@Slf4j
+public class AnalyticsWriteBehindStore {
+    private static final String UPSERT_SQL = """
+            insert into monthly_analytics (id, customer_id, month, year, total_spent, total_received,
+                                           transaction_count, created_at, updated_at)
+            values (nextval('monthly_analytics_seq'), ?, ?, ?, ?, ?, ?, ?, ?)
+            on conflict (customer_id, month, year) do update
+            set total_spent = monthly_analytics.total_spent + excluded.total_spent,
+                total_received = monthly_analytics.total_received + excluded.total_received,
+                transaction_count = monthly_analytics.transaction_count + excluded.transaction_count,
+                updated_at = excluded.updated_at
+            """;
+    private static final String ROLLUP_UPSERT_SQL = """
+            insert into analytics_rollups (id, customer_id, granularity, bucket_start, total_spent, total_received,
+                                           transaction_count, created_at, updated_at)
+            values (nextval('analytics_rollups_seq'), ?, ?, ?, ?, ?, ?, ?, ?)
+            on conflict (customer_id, granularity, bucket_start) do update
+            set total_spent = analytics_rollups.total_spent + excluded.total_spent,
+                total_received = analytics_rollups.total_received + excluded.total_received,
+                transaction_count = analytics_rollups.transaction_count + excluded.transaction_count,
+                updated_at = excluded.updated_at
+            """;
+    private static final Month[] MONTHS = Month.values();
+
+    //running totals of one (customerId, year, month)
+    private static final class Cell {
+        final LongAdder spentMinor = new LongAdder();
+        final LongAdder receivedMinor = new LongAdder();
+        final LongAdder count = new LongAdder();
+    }
+
+    //kept so a flush can leave out events another consumer already counted (redelivery after a rebalance)
+    private record PendingEvent(Long transactionId, long key, AnalyticsRollupKey dayKey, AnalyticsRollupKey weekKey,
+                                long spentMinor, long receivedMinor) {
+    }
+
+    //ConcurrentHashMap with boxed Long keys rather than a primitive long map: listener threads add concurrently
+    //without locks, which none of the primitive-collection libraries offers (and none is on the classpath)
+    private static final class Buffer {
+        final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+        //day and week rollups: record keys, a bucket start doesn't pack safely next to a full customer id
+        final Map<AnalyticsRollupKey, Cell> rollupCells = new ConcurrentHashMap<>();
+        final Queue<PendingEvent> events = new ConcurrentLinkedQueue<>();
+        final Queue<Acknowledgment> acks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger writers = new AtomicInteger();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private final TransactionEventDeduplicator transactionEventDeduplicator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Buffer current = new Buffer();
+    //swapped out, not flushed yet (oldest first)
+    private final Deque<Buffer> sealed = new ConcurrentLinkedDeque<>();
+    //held by a flush while its rows commit and its buffer is dropped, so reads never count a delta twice
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    //backpressure: listener containers are paused at maxPendingEvents and resumed once a flush got below half of it
+    private final ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry;
+    private final long maxPendingEvents;
+    private final int failureAlertThreshold;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final Object pauseLock = new Object();
+    private volatile boolean paused;
+
+    private final Timer flushTimer;
+    private final DistributionSummary flushRows;
+    private final Counter flushFailures;
+
+    public AnalyticsWriteBehindStore(TransactionEventDeduplicator transactionEventDeduplicator,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${analytics.write-behind.max-pending-events:200000}") long maxPendingEvents,
+                                     @Value("${analytics.write-behind.failure-alert-threshold:5}") int failureAlertThreshold) {
+        this.transactionEventDeduplicator = transactionEventDeduplicator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.listenerRegistry = listenerRegistry;
+        this.maxPendingEvents = maxPendingEvents;
+        this.failureAlertThreshold = failureAlertThreshold;
+
+        Gauge.builder("analytics.write-behind.pending.events", pendingEvents, AtomicLong::get)
+                .description("Events received but not flushed to monthly_analytics yet")
+                .register(meterRegistry);
+        Gauge.builder("analytics.write-behind.flush.consecutive-failures", consecutiveFailures, AtomicInteger::get)
+                .description("Flushes failed in a row (alert when this keeps growing: consumers are paused)")
+                .register(meterRegistry);
+        Gauge.builder("analytics.write-behind.paused", this, store -> store.paused ? 1 : 0)
+                .description("1 while the listener containers are paused because too many events are pending")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("analytics.write-behind.flush.failures")
+                .description("Flushes that failed and will be retried")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("analytics.write-behind.flush")
+                .description("Time to write one buffer to monthly_analytics")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushRows = DistributionSummary.builder("analytics.write-behind.flush.rows")
+                .description("Rows upserted by one flush")
+                .register(meterRegistry);
+    }
+
+    //ack is acknowledged once every event of this call is in a committed flush
+    public void add(List<TransactionEvent> transactionEvents, Acknowledgment ack) {
+        Buffer buffer = enter();
+        try {
+            for (TransactionEvent transactionEvent : transactionEvents) {
+                PendingEvent event = toPendingEvent(transactionEvent);
+                addTo(buffer.cells.computeIfAbsent(event.key(), key -> new Cell()), event);
+                addTo(buffer.rollupCells.computeIfAbsent(event.dayKey(), key -> new Cell()), event);
+                addTo(buffer.rollupCells.computeIfAbsent(event.weekKey(), key -> new Cell()), event);
+                buffer.events.add(event);
+            }
+            buffer.size.addAndGet(transactionEvents.size());
+            buffer.acks.add(ack);
+        } finally {
+            buffer.writers.decrementAndGet();
+        }
+        //a poll already in hand is still buffered, so memory is bounded by the cap plus one poll per consumer
+        if (pendingEvents.addAndGet(transactionEvents.size()) >= maxPendingEvents && !paused) {
+            pauseListeners();
+        }
+    }
+
+    //own lock, not the flush monitor: a listener thread must never wait for a (slow or failing) flush
+    private void pauseListeners() {
+        synchronized (pauseLock) {
+            if (paused) {
+                return;
+            }
+            paused = true;
+            log.warn("Write-behind: {} events pending (limit {}), pausing Kafka listeners until a flush catches up",
+                    pendingEvents.get(), maxPendingEvents);
+            //paused containers keep polling (without records), so the consumers stay in the group
+            listenerRegistry.getObject().getListenerContainers().forEach(MessageListenerContainer::pause);
+        }
+    }
+
+    private void resumeListenersIfDrained() {
+        synchronized (pauseLock) {
+            if (!paused || pendingEvents.get() > maxPendingEvents / 2) {
+                return;
+            }
+            paused = false;
+            log.info("Write-behind: {} events pending, resuming Kafka listeners", pendingEvents.get());
+            listenerRegistry.getObject().getListenerContainers().forEach(MessageListenerContainer::resume);
+        }
+    }
+
+    private static void addTo(Cell cell, PendingEvent event) {
+        cell.spentMinor.add(event.spentMinor());
+        cell.receivedMinor.add(event.receivedMinor());
+        cell.count.increment();
+    }
+
+    //registers as a writer on the current buffer; retries if the flusher swapped it in between
+    private Buffer enter() {
+        while (true) {
+            Buffer buffer = current;
+            buffer.writers.incrementAndGet();
+            if (buffer == current) {
+                return buffer;
+            }
+            buffer.writers.decrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Buffer buffer = current;
+        if (!buffer.acks.isEmpty()) {
+            //sealed before the swap, so a concurrent read always finds the buffer in one of the two places
+            sealed.addLast(buffer);
+            current = new Buffer();
+            while (buffer.writers.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        Buffer oldest;
+        while ((oldest = sealed.peekFirst()) != null) {
+            if (!flushBuffer(oldest)) {
+                return;
+            }
+            oldest.acks.forEach(Acknowledgment::acknowledge);
+            pendingEvents.addAndGet(-oldest.size.get());
+        }
+        resumeListenersIfDrained();
+    }
+
+    private boolean flushBuffer(Buffer buffer) {
+        long start = System.nanoTime();
+        flushLock.writeLock().lock();
+        try {
+            int rows = transactionTemplate.execute(status -> writeRows(buffer));
+            sealed.pollFirst();
+            flushRows.record(rows);
+            log.info("Flushed {} transaction events to {} analytics rows", buffer.size.get(), rows);
+            consecutiveFailures.set(0);
+            return true;
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            int failures = consecutiveFailures.incrementAndGet();
+            if (failures >= failureAlertThreshold) {
+                log.error("Analytics flush failed {} times in a row, {} events pending and not acknowledged: {}",
+                        failures, pendingEvents.get(), e.getMessage(), e);
+            } else {
+                log.error("Analytics flush of {} events failed, retrying next run: {}", buffer.size.get(), e.getMessage());
+            }
+            return false;
+        } finally {
+            flushLock.writeLock().unlock();
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //runs inside the flush transaction: records the event ids, then upserts one row per key in key order
+    private int writeRows(Buffer buffer) {
+        List<Long> ids = buffer.events.stream().map(PendingEvent::transactionId).filter(Objects::nonNull).toList();
+        Set<Long> claimed = transactionEventDeduplicator.claimIds(ids);
+
+        Map<Long, long[]> totals = new TreeMap<>();
+        Map<AnalyticsRollupKey, long[]> rollupTotals = new TreeMap<>(AnalyticsRollupKey.ROW_ORDER);
+        if (claimed.size() == ids.size()) {
+            //common case: nothing in the buffer was counted before
+            buffer.cells.forEach((key, cell) -> totals.put(key, totalOf(cell)));
+            buffer.rollupCells.forEach((key, cell) -> rollupTotals.put(key, totalOf(cell)));
+        } else {
+            for (PendingEvent event : buffer.events) {
+                if (event.transactionId() == null || claimed.remove(event.transactionId())) {
+                    addTo(totals.computeIfAbsent(event.key(), key -> new long[3]), event);
+                    addTo(rollupTotals.computeIfAbsent(event.dayKey(), key -> new long[3]), event);
+                    addTo(rollupTotals.computeIfAbsent(event.weekKey(), key -> new long[3]), event);
+                }
+            }
+        }
+
+        //monthly rows first, then rollups: the same order as the direct write path
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> rows.add(new Object[]{
+                customerIdOf(key), monthOf(key).name(), yearOf(key),
+                BigDecimal.valueOf(total[0], 2), BigDecimal.valueOf(total[1], 2), total[2], now, now}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+
+        List<Object[]> rollupRows = new ArrayList<>(rollupTotals.size());
+        rollupTotals.forEach((key, total) -> rollupRows.add(new Object[]{
+                key.customerId(), key.granularity().name(), key.bucketStart(),
+                BigDecimal.valueOf(total[0], 2), BigDecimal.valueOf(total[1], 2), total[2], now, now}));
+        jdbcTemplate.batchUpdate(ROLLUP_UPSERT_SQL, rollupRows);
+        return rows.size() + rollupRows.size();
+    }
+
+    private static long[] totalOf(Cell cell) {
+        return new long[]{cell.spentMinor.sum(), cell.receivedMinor.sum(), cell.count.sum()};
+    }
+
+    private static void addTo(long[] total, PendingEvent event) {
+        total[0] += event.spentMinor();
+        total[1] += event.receivedMinor();
+        total[2]++;
+    }
+
+    /**
+     * Runs a DB read and the pending-delta lookups it makes without a flush committing in between,
+     * so a delta is seen either in its row or in the buffer, never in both.
+     */
+    public <T> T readConsistent(Supplier<T> read) {
+        flushLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    //unflushed deltas of one customer (optionally one year), by row
+    public Map<MonthlyAnalyticsKey, MonthlyAnalyticsDelta> pendingDeltas(Long customerId, Integer year) {
+        Map<MonthlyAnalyticsKey, MonthlyAnalyticsDelta> deltas = new HashMap<>();
+        for (Buffer buffer : unflushedBuffers()) {
+            buffer.cells.forEach((key, cell) -> {
+                if (customerIdOf(key) != customerId || (year != null && yearOf(key) != year)) {
+                    return;
+                }
+                addTo(deltas.computeIfAbsent(new MonthlyAnalyticsKey(customerId, monthOf(key), yearOf(key)),
+                        k -> new MonthlyAnalyticsDelta()), cell);
+            });
+        }
+        return deltas;
+    }
+
+    //unflushed day or week rollups of one customer, by bucket start
+    public Map<LocalDate, MonthlyAnalyticsDelta> pendingRollups(Long customerId, BucketGranularity granularity) {
+        Map<LocalDate, MonthlyAnalyticsDelta> deltas = new HashMap<>();
+        for (Buffer buffer : unflushedBuffers()) {
+            buffer.rollupCells.forEach((key, cell) -> {
+                if (!key.customerId().equals(customerId) || key.granularity() != granularity) {
+                    return;
+                }
+                addTo(deltas.computeIfAbsent(key.bucketStart(), k -> new MonthlyAnalyticsDelta()), cell);
+            });
+        }
+        return deltas;
+    }
+
+    private Set<Buffer> unflushedBuffers() {
+        //current first: if it is sealed meanwhile it shows up in both, the set keeps it once
+        Set<Buffer> buffers = new LinkedHashSet<>();
+        buffers.add(current);
+        buffers.addAll(sealed);
+        return buffers;
+    }
+
+    private static void addTo(MonthlyAnalyticsDelta delta, Cell cell) {
+        delta.setTotalSpent(delta.getTotalSpent().add(BigDecimal.valueOf(cell.spentMinor.sum(), 2)));
+        delta.setTotalReceived(delta.getTotalReceived().add(BigDecimal.valueOf(cell.receivedMinor.sum(), 2)));
+        delta.setTransactionCount(delta.getTransactionCount() + cell.count.sum());
+    }
+
+    private static PendingEvent toPendingEvent(TransactionEvent transactionEvent) {
+        MonthlyAnalyticsKey key = MonthlyAnalyticsKey.of(transactionEvent);
+        //same rounding as the numeric(…, 2) columns
+        long minor = transactionEvent.getAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        AnalyticsRollupKey dayKey = AnalyticsRollupKey.of(transactionEvent, BucketGranularity.DAY);
+        AnalyticsRollupKey weekKey = AnalyticsRollupKey.of(transactionEvent, BucketGranularity.WEEK);
+        return switch (transactionEvent.getTransactionType()) {
+            case TRANSFER, WITHDRAWAL, PAYMENT ->
+                    new PendingEvent(transactionEvent.getTransactionId(), pack(key), dayKey, weekKey, minor, 0);
+            case DEPOSIT ->
+                    new PendingEvent(transactionEvent.getTransactionId(), pack(key), dayKey, weekKey, 0, minor);
+        };
+    }
+
+    // key layout: customerId (45 bits) | year (14 bits) | month ordinal (4 bits); orders like (customer, year, month)
+    private static long pack(MonthlyAnalyticsKey key) {
+        //rejected rather than silently merged into another customer's or year's row
+        if (key.customerId() < 0 || key.customerId() >= 1L << 45 || key.year() < 0 || key.year() >= 1 << 14) {
+            throw new IllegalArgumentException("Out of range for the write-behind key: " + key);
+        }
+        return (key.customerId() << 18) | ((long) key.year() << 4) | key.month().ordinal();
+    }
+
+    private static long customerIdOf(long key) {
+        return key >>> 18;
+    }
+
+    private static int yearOf(long key) {
+        return (int) ((key >>> 4) & 0x3FFF);
+    }
+
+    private static Month monthOf(long key) {
+        return MONTHS[(int) (key & 0xF)];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        //the listener containers are stopped by now; acks that can't be committed any more only cause redelivery
+        flush();
+    }
+}
@@ -0,0 +1,23 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+//what a run of events adds to one monthly_analytics row
+@Data
+public class MonthlyAnalyticsDelta {
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+    private BigDecimal totalReceived = BigDecimal.ZERO;
+    private long transactionCount;
+
+    public void add(TransactionEvent transactionEvent) {
+        BigDecimal amount = transactionEvent.getAmount();
+        switch (transactionEvent.getTransactionType()) {
+            case TRANSFER, WITHDRAWAL, PAYMENT -> totalSpent = totalSpent.add(amount);
+            case DEPOSIT -> totalReceived = totalReceived.add(amount);
+        }
+        transactionCount++;
+    }
+}
@@ -0,0 +1,15 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.Month;
+
+//one monthly_analytics row: (customerId, month, year)
+public record MonthlyAnalyticsKey(Long customerId, Month month, int year) {
+
+    //month and year come from the transaction date
+    public static MonthlyAnalyticsKey of(TransactionEvent transactionEvent) {
+        return new MonthlyAnalyticsKey(transactionEvent.getCustomerId(),
+                Month.valueOf(transactionEvent.getTransactionDate().getMonth().name()),
+                transactionEvent.getTransactionDate().getYear());
+    }
+}
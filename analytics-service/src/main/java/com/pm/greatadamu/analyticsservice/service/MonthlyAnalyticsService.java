@@ -4,96 +4,179 @@ import com.pm.greatadamu.analyticsservice.dto.AnalyticsRequestDTO;
 import com.pm.greatadamu.analyticsservice.dto.AnalyticsResponseDTO;
 import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
 import com.pm.greatadamu.analyticsservice.mapper.MonthlyAnalyticsMapper;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
 import com.pm.greatadamu.analyticsservice.model.Month;
 import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
+import com.pm.greatadamu.analyticsservice.repository.AnalyticsRollupRepository;
 import com.pm.greatadamu.analyticsservice.repository.MonthlyAnalyticsRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MonthlyAnalyticsService {
+    private static final Comparator<MonthlyAnalyticsKey> ROW_ORDER = Comparator
+            .comparing(MonthlyAnalyticsKey::customerId)
+            .thenComparingInt(MonthlyAnalyticsKey::year)
+            .thenComparing(MonthlyAnalyticsKey::month);
+    //kept in analytics_rollups next to the monthly row
+    private static final List<BucketGranularity> ROLLUPS = List.of(BucketGranularity.DAY, BucketGranularity.WEEK);
+
     private final MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+    private final AnalyticsRollupRepository analyticsRollupRepository;
     private final MonthlyAnalyticsMapper monthlyAnalyticsMapper;
+    private final TransactionEventDeduplicator transactionEventDeduplicator;
+    private final AnalyticsWriteBehindStore analyticsWriteBehindStore;
 
+  //reads add the deltas still buffered by AnalyticsWriteBehindStore (read-your-writes)
   public AnalyticsResponseDTO getMonthlyAnalytics(Long customerId, Month month, int year) {
-      //get the month and year analytics from db
-     MonthlyAnalytics analytics = monthlyAnalyticsRepository
-             .findByCustomerIdAndMonthAndYear(customerId,month,year)
-             .orElseThrow(()->new RuntimeException("No Analytics found"));
+      return analyticsWriteBehindStore.readConsistent(() -> {
+          //get the month and year analytics from db
+          MonthlyAnalytics analytics = monthlyAnalyticsRepository
+                  .findByCustomerIdAndMonthAndYear(customerId, month, year)
+                  .orElse(null);
+          MonthlyAnalyticsDelta pending = analyticsWriteBehindStore.pendingDeltas(customerId, year)
+                  .get(new MonthlyAnalyticsKey(customerId, month, year));
+          if (analytics == null && pending == null) {
+              throw new RuntimeException("No Analytics found");
+          }
 
-      //analytics entity -> analyticsResponse user can see
-      return monthlyAnalyticsMapper.mapToResponseDTO(analytics);
+          //analytics entity -> analyticsResponse user can see
+          return withPending(analytics, new MonthlyAnalyticsKey(customerId, month, year), pending);
+      });
   }
 
   public List<AnalyticsResponseDTO> getAllMonthlyAnalytics(Long customerId){
       // Get all analytics rows for this customer (all months / all years in DB)
-     List <MonthlyAnalytics> analyticsList = monthlyAnalyticsRepository.findByCustomerId(customerId);
+      List<AnalyticsResponseDTO> analyticsList = analyticsWriteBehindStore.readConsistent(() -> withPending(
+              monthlyAnalyticsRepository.findByCustomerId(customerId),
+              analyticsWriteBehindStore.pendingDeltas(customerId, null)));
 
      if(analyticsList.isEmpty()){
          throw new RuntimeException("No Analytics found for the given customerId: " + customerId);
      }
 
-      return analyticsList.stream()
-              .map(monthlyAnalyticsMapper::mapToResponseDTO)
-              .toList();
+      return analyticsList;
 
   }
 
   public List<AnalyticsResponseDTO>getMonthlyAnalyticsByYear(Long customerId,int year){
-      List<MonthlyAnalytics> analyticsList = monthlyAnalyticsRepository.findByCustomerIdAndYear(customerId ,year);
+      List<AnalyticsResponseDTO> analyticsList = analyticsWriteBehindStore.readConsistent(() -> withPending(
+              monthlyAnalyticsRepository.findByCustomerIdAndYear(customerId, year),
+              analyticsWriteBehindStore.pendingDeltas(customerId, year)));
 
       if(analyticsList.isEmpty()){
           throw new RuntimeException("No Analytics found for customerId: " + customerId + "and year" + year);
       }
 
-      return analyticsList.stream().map(monthlyAnalyticsMapper::mapToResponseDTO)
-              .toList();
+      return analyticsList;
   }
 
+  @Transactional
   public void updateAnalyticsFromTransaction(TransactionEvent transactionEvent){
-      //Derive month and year from transactionDate
-      java.time.Month javaMonth =transactionEvent.getTransactionDate().getMonth();
-      int year = transactionEvent.getTransactionDate().getYear();
-
-     Month month=Month.valueOf(javaMonth.name());
-
-      //find existing analytics row or create new one
-      MonthlyAnalytics analytics = monthlyAnalyticsRepository
-              .findByCustomerIdAndMonthAndYear(transactionEvent
-                      .getCustomerId(),month,year)
-              .orElseGet(()->MonthlyAnalytics.builder()
-                      .customerId(transactionEvent.getCustomerId())
-                      .month(month)
-                      .year(year)
-                      .totalSpent(BigDecimal.ZERO)
-                      .totalReceived(BigDecimal.ZERO)
-                      .transactionCount(0L)
-                      .build()
-              );
+      //redelivered event: already counted
+      if (transactionEventDeduplicator.claimNew(List.of(transactionEvent)).isEmpty()) {
+          return;
+      }
 
-      //update total based on transaction type
-      BigDecimal amount = transactionEvent.getAmount();
+      MonthlyAnalyticsDelta delta = new MonthlyAnalyticsDelta();
+      delta.add(transactionEvent);
 
-      switch (transactionEvent.getTransactionType()) {
-          case TRANSFER, WITHDRAWAL, PAYMENT -> {
-              analytics.setTotalSpent(analytics.getTotalSpent().add(amount));
-          }
-          case DEPOSIT -> {
-              analytics.setTotalReceived(analytics.getTotalReceived().add(amount));
+      //single INSERT ... ON CONFLICT DO UPDATE per row, no read-modify-write
+      upsert(MonthlyAnalyticsKey.of(transactionEvent), delta);
+      for (BucketGranularity granularity : ROLLUPS) {
+          upsertRollup(AnalyticsRollupKey.of(transactionEvent, granularity), delta);
+      }
+  }
+
+  /**
+   * Fold a batch of events into one delta per (customerId, month, year) and per day/week rollup,
+   * then upsert each row once,
+   * all in one DB transaction: the batch is applied completely or not at all (and redelivered).
+   * Returns the number of rows written.
+   */
+  @Transactional
+  public int applyTransactionBatch(List<TransactionEvent> transactionEvents){
+      //redelivered events are dropped; their ids are recorded in this same transaction
+      List<TransactionEvent> fresh = transactionEventDeduplicator.claimNew(transactionEvents);
+
+      Map<MonthlyAnalyticsKey, MonthlyAnalyticsDelta> deltas = new LinkedHashMap<>();
+      Map<AnalyticsRollupKey, MonthlyAnalyticsDelta> rollupDeltas = new LinkedHashMap<>();
+      for (TransactionEvent transactionEvent : fresh) {
+          deltas.computeIfAbsent(MonthlyAnalyticsKey.of(transactionEvent), key -> new MonthlyAnalyticsDelta())
+                  .add(transactionEvent);
+          for (BucketGranularity granularity : ROLLUPS) {
+              rollupDeltas.computeIfAbsent(AnalyticsRollupKey.of(transactionEvent, granularity),
+                      key -> new MonthlyAnalyticsDelta()).add(transactionEvent);
           }
       }
-      //increase Transaction count
-      analytics.setTransactionCount(analytics.getTransactionCount()+1);
 
-      //save back to DB
-      monthlyAnalyticsRepository.save(analytics);
+      //fixed row order (monthly rows, then rollups), so concurrent batches touching the same rows can't deadlock
+      deltas.entrySet().stream()
+              .sorted(Map.Entry.comparingByKey(ROW_ORDER))
+              .forEach(entry -> upsert(entry.getKey(), entry.getValue()));
+      rollupDeltas.entrySet().stream()
+              .sorted(Map.Entry.comparingByKey(AnalyticsRollupKey.ROW_ORDER))
+              .forEach(entry -> upsertRollup(entry.getKey(), entry.getValue()));
+
+      log.info("Applied {} of {} transaction events to {} analytics rows and {} rollups",
+              fresh.size(), transactionEvents.size(), deltas.size(), rollupDeltas.size());
+      return deltas.size() + rollupDeltas.size();
+  }
+
+  private void upsert(MonthlyAnalyticsKey key, MonthlyAnalyticsDelta delta) {
+      monthlyAnalyticsRepository.upsertIncrement(key.customerId(), key.month().name(), key.year(),
+              delta.getTotalSpent(), delta.getTotalReceived(), delta.getTransactionCount());
+  }
 
+  private void upsertRollup(AnalyticsRollupKey key, MonthlyAnalyticsDelta delta) {
+      analyticsRollupRepository.upsertIncrement(key.customerId(), key.granularity().name(), key.bucketStart(),
+              delta.getTotalSpent(), delta.getTotalReceived(), delta.getTransactionCount());
+  }
 
+  //rows first, then months that so far only exist in the buffer
+  private List<AnalyticsResponseDTO> withPending(List<MonthlyAnalytics> rows,
+                                                 Map<MonthlyAnalyticsKey, MonthlyAnalyticsDelta> pending) {
+      Map<MonthlyAnalyticsKey, MonthlyAnalyticsDelta> remaining = new HashMap<>(pending);
+      List<AnalyticsResponseDTO> result = new ArrayList<>(rows.size() + pending.size());
+      for (MonthlyAnalytics row : rows) {
+          MonthlyAnalyticsKey key = new MonthlyAnalyticsKey(row.getCustomerId(), row.getMonth(), row.getYear());
+          result.add(withPending(row, key, remaining.remove(key)));
+      }
+      remaining.entrySet().stream()
+              .sorted(Map.Entry.comparingByKey(ROW_ORDER))
+              .forEach(entry -> result.add(withPending(null, entry.getKey(), entry.getValue())));
+      return result;
   }
 
-}
+  private AnalyticsResponseDTO withPending(MonthlyAnalytics row, MonthlyAnalyticsKey key, MonthlyAnalyticsDelta pending) {
+      AnalyticsResponseDTO responseDTO = row != null
+              ? monthlyAnalyticsMapper.mapToResponseDTO(row)
+              : AnalyticsResponseDTO.builder()
+                      .customerId(key.customerId())
+                      .month(key.month())
+                      .year(key.year())
+                      .totalSpent(BigDecimal.ZERO)
+                      .totalReceived(BigDecimal.ZERO)
+                      .transactionCount(0L)
+                      .build();
+      if (pending != null) {
+          responseDTO.setTotalSpent(responseDTO.getTotalSpent().add(pending.getTotalSpent()));
+          responseDTO.setTotalReceived(responseDTO.getTotalReceived().add(pending.getTotalReceived()));
+          responseDTO.setTransactionCount(responseDTO.getTransactionCount() + pending.getTransactionCount());
+      }
+      return responseDTO;
+  }
 
+}
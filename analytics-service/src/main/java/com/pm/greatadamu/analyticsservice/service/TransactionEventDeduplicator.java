@@ -0,0 +1,123 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.repository.ProcessedTransactionEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Drops redelivered transaction events (Kafka is at-least-once: rebalances and crashes replay
+ * uncommitted offsets). Every applied transactionId is recorded in processed_transaction_events in the
+ * same DB transaction as the analytics increment, so an event is counted exactly once even when two
+ * consumers see it. Records are kept for retention-days, which must exceed the topic's retention.
+ */
+@Component
+@Slf4j
+public class TransactionEventDeduplicator {
+    private static final int CLAIM_CHUNK_SIZE = 10_000;
+
+    private final ProcessedTransactionEventRepository processedTransactionEventRepository;
+    private final Counter newEvents;
+    private final Counter duplicateEvents;
+    private final Counter purged;
+
+    @Value("${analytics.dedup.retention-days:14}")
+    private int retentionDays;
+
+    @Value("${analytics.dedup.purge-batch-size:10000}")
+    private int purgeBatchSize;
+
+    public TransactionEventDeduplicator(ProcessedTransactionEventRepository processedTransactionEventRepository,
+                                        MeterRegistry meterRegistry) {
+        this.processedTransactionEventRepository = processedTransactionEventRepository;
+        this.newEvents = Counter.builder("analytics.events.dedup")
+                .description("Transaction events checked against processed_transaction_events")
+                .tag("outcome", "new")
+                .register(meterRegistry);
+        this.duplicateEvents = Counter.builder("analytics.events.dedup")
+                .description("Transaction events checked against processed_transaction_events")
+                .tag("outcome", "duplicate")
+                .register(meterRegistry);
+        this.purged = Counter.builder("analytics.events.dedup.purged")
+                .description("Processed-event records removed after the retention window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the events' ids and returns the events seen for the first time, in their original order.
+     * Runs in the caller's transaction: if the increment rolls back, so do the records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<TransactionEvent> claimNew(List<TransactionEvent> transactionEvents) {
+        Set<Long> claimed = claimIds(transactionEvents.stream()
+                .map(TransactionEvent::getTransactionId)
+                .filter(Objects::nonNull)
+                .toList());
+
+        List<TransactionEvent> fresh = new ArrayList<>(transactionEvents.size());
+        for (TransactionEvent transactionEvent : transactionEvents) {
+            Long id = transactionEvent.getTransactionId();
+            if (id == null) {
+                //nothing to deduplicate on: counted as before
+                log.warn("Transaction event without transactionId, applied without deduplication: {}", transactionEvent);
+                fresh.add(transactionEvent);
+            } else if (claimed.remove(id)) {
+                fresh.add(transactionEvent);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Records the ids and returns the ones not recorded before (each id once, however often it was passed).
+     * Runs in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> claimIds(Collection<Long> transactionIds) {
+        List<Long> ids = transactionIds.stream().distinct().sorted().toList();
+        Set<Long> claimed = new HashSet<>();
+        //chunked: keeps each claim statement (and its array) bounded
+        for (int from = 0; from < ids.size(); from += CLAIM_CHUNK_SIZE) {
+            claimed.addAll(processedTransactionEventRepository.insertNew(
+                    ids.subList(from, Math.min(from + CLAIM_CHUNK_SIZE, ids.size())).toArray(Long[]::new)));
+        }
+
+        newEvents.increment(claimed.size());
+        int duplicates = transactionIds.size() - claimed.size();
+        if (duplicates > 0) {
+            duplicateEvents.increment(duplicates);
+            log.info("Skipped {} already processed transaction events", duplicates);
+        }
+        return claimed;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.dedup.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = processedTransactionEventRepository.deleteProcessedBefore(cutoff, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (total > 0) {
+            purged.increment(total);
+            log.info("Purged {} processed-event records older than {} days", total, retentionDays);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- monthly_analytics ids move to monthly_analytics_seq (see account-service/src/main/resources/db/migrate-identity-to-sequence.sql
+-- for how and when to run these scripts). analytics_rollups and processed_transaction_events are newer
+-- tables and were never on IDENTITY.
+
+create sequence if not exists monthly_analytics_seq start with 1 increment by 50;
+select setval('monthly_analytics_seq', coalesce((select max(id) from monthly_analytics), 0) + 50, false);
@@ -0,0 +1,69 @@
+package com.pm.greatadamu.analyticsservice;
+
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.TransactionStatus;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import com.pm.greatadamu.analyticsservice.repository.AnalyticsRollupRepository;
+import com.pm.greatadamu.analyticsservice.repository.MonthlyAnalyticsRepository;
+import com.pm.greatadamu.analyticsservice.repository.ProcessedTransactionEventRepository;
+import com.pm.greatadamu.analyticsservice.service.AnalyticsWriteBehindStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base for tests that need the real Postgres semantics (upserts, ON CONFLICT claims, native queries).
+ * One container for the whole run, so cached application contexts keep a valid connection;
+ * skipped where Docker isn't available. No listener is started and the scheduled flush/purge only run
+ * their first pass, tests call them directly.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.listener.auto-startup=false",
+        "analytics.write-behind.flush-interval-ms=3600000",
+        "analytics.dedup.purge-interval-ms=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+    private static final AtomicLong TRANSACTION_IDS = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @Autowired
+    protected MonthlyAnalyticsRepository monthlyAnalyticsRepository;
+
+    @Autowired
+    protected AnalyticsRollupRepository analyticsRollupRepository;
+
+    @Autowired
+    protected ProcessedTransactionEventRepository processedTransactionEventRepository;
+
+    @Autowired
+    protected AnalyticsWriteBehindStore analyticsWriteBehindStore;
+
+    @BeforeEach
+    void cleanTables() {
+        //whatever an earlier test left in the buffer is written now, not into this test's rows
+        analyticsWriteBehindStore.flush();
+        monthlyAnalyticsRepository.deleteAllInBatch();
+        analyticsRollupRepository.deleteAllInBatch();
+        processedTransactionEventRepository.deleteAllInBatch();
+    }
+
+    //completed event with a transaction id no other test uses
+    protected static TransactionEvent event(Long customerId, String amount, TransactionType type, LocalDateTime date) {
+        return new TransactionEvent(TRANSACTION_IDS.incrementAndGet(), customerId, new BigDecimal(amount), type,
+                TransactionStatus.COMPLETED, date);
+    }
+}
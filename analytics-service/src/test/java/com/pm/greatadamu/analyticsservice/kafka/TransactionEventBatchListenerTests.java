@@ -0,0 +1,92 @@
+package com.pm.greatadamu.analyticsservice.kafka;
+
+import com.pm.greatadamu.analyticsservice.model.TransactionStatus;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import com.pm.greatadamu.analyticsservice.service.AnalyticsWriteBehindStore;
+import com.pm.greatadamu.analyticsservice.service.MonthlyAnalyticsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionEventBatchListenerTests {
+
+    @Mock
+    private MonthlyAnalyticsService monthlyAnalyticsService;
+    @Mock
+    private AnalyticsWriteBehindStore analyticsWriteBehindStore;
+    @Mock
+    private Acknowledgment ack;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionEventBatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new TransactionEventBatchListener(monthlyAnalyticsService, analyticsWriteBehindStore, meterRegistry);
+    }
+
+    @Test
+    void directWrite_appliesTheWholePollThenAcknowledges() {
+        ReflectionTestUtils.setField(listener, "writeBehind", false);
+        List<TransactionEvent> events = List.of(event(1L), event(2L), event(3L));
+        when(monthlyAnalyticsService.applyTransactionBatch(events)).thenReturn(4);
+
+        listener.handleTransactionEvents(events, ack);
+
+        InOrder order = inOrder(monthlyAnalyticsService, ack);
+        order.verify(monthlyAnalyticsService).applyTransactionBatch(events);
+        order.verify(ack).acknowledge();
+        verifyNoInteractions(analyticsWriteBehindStore);
+        assertThat(meterRegistry.get("analytics.events.batch.size").summary().totalAmount()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("analytics.events.batch.rows").summary().totalAmount()).isEqualTo(4.0);
+    }
+
+    @Test
+    void directWrite_failedBatchIsNotAcknowledged() {
+        ReflectionTestUtils.setField(listener, "writeBehind", false);
+        when(monthlyAnalyticsService.applyTransactionBatch(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        assertThatThrownBy(() -> listener.handleTransactionEvents(List.of(event(1L)), ack))
+                .hasMessage("db down");
+
+        verify(ack, never()).acknowledge();
+    }
+
+    @Test
+    void writeBehind_handsThePollAndItsAckToTheStore() {
+        ReflectionTestUtils.setField(listener, "writeBehind", true);
+        List<TransactionEvent> events = List.of(event(1L), event(2L));
+
+        listener.handleTransactionEvents(events, ack);
+
+        verify(analyticsWriteBehindStore).add(events, ack);
+        verify(ack, never()).acknowledge();
+        verifyNoInteractions(monthlyAnalyticsService);
+    }
+
+    private static TransactionEvent event(Long transactionId) {
+        return new TransactionEvent(transactionId, 7L, new BigDecimal("10.00"), TransactionType.PAYMENT,
+                TransactionStatus.COMPLETED, LocalDateTime.of(2025, 3, 14, 12, 0));
+    }
+}
@@ -0,0 +1,116 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.PostgresIntegrationTest;
+import com.pm.greatadamu.analyticsservice.dto.AnalyticsSeriesPointDTO;
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class AnalyticsSeriesServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private AnalyticsSeriesService analyticsSeriesService;
+    @Autowired
+    private MonthlyAnalyticsService monthlyAnalyticsService;
+
+    @Test
+    void daySeries_hasOnePointPerDayInOrderWithZerosForEmptyDays() {
+        apply(event(1L, "10.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 1).atTime(9, 0)),
+                event(1L, "4.00", TransactionType.DEPOSIT, LocalDate.of(2025, 3, 3).atTime(9, 0)),
+                event(1L, "99.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 5).atTime(9, 0)));
+
+        List<AnalyticsSeriesPointDTO> series = analyticsSeriesService.getSeries(1L, "day",
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 4));
+
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getBucketStart).containsExactly(
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 4));
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getTransactionCount).containsExactly(1L, 0L, 1L, 0L);
+        assertThat(series.get(0).getTotalSpent()).isEqualByComparingTo("10.00");
+        assertThat(series.get(1).getTotalSpent()).isEqualByComparingTo("0");
+        assertThat(series.get(2).getTotalReceived()).isEqualByComparingTo("4.00");
+    }
+
+    @Test
+    void weekSeries_startsOnTheMondayOfTheFirstDay() {
+        //Wednesday 12 and Sunday 16 March fall in the week of Monday 10 March
+        apply(event(1L, "1.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 12).atTime(9, 0)),
+                event(1L, "2.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 16).atTime(23, 0)),
+                event(1L, "3.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 24).atTime(9, 0)));
+
+        List<AnalyticsSeriesPointDTO> series = analyticsSeriesService.getSeries(1L, "WEEK",
+                LocalDate.of(2025, 3, 12), LocalDate.of(2025, 3, 26));
+
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getBucketStart).containsExactly(
+                LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 17), LocalDate.of(2025, 3, 24));
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getTransactionCount).containsExactly(2L, 0L, 1L);
+        assertThat(series.get(0).getTotalSpent()).isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void monthSeries_spansYearsAndLeavesOutMonthsOutsideTheRange() {
+        apply(event(1L, "1.00", TransactionType.PAYMENT, LocalDate.of(2024, 10, 31).atTime(9, 0)),
+                event(1L, "2.00", TransactionType.PAYMENT, LocalDate.of(2024, 11, 15).atTime(9, 0)),
+                event(1L, "3.00", TransactionType.PAYMENT, LocalDate.of(2025, 2, 1).atTime(9, 0)),
+                event(1L, "4.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 1).atTime(9, 0)));
+
+        List<AnalyticsSeriesPointDTO> series = analyticsSeriesService.getSeries(1L, "month",
+                LocalDate.of(2024, 11, 20), LocalDate.of(2025, 2, 10));
+
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getBucketStart).containsExactly(
+                LocalDate.of(2024, 11, 1), LocalDate.of(2024, 12, 1), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1));
+        assertThat(series).extracting(AnalyticsSeriesPointDTO::getTransactionCount).containsExactly(1L, 0L, 0L, 1L);
+    }
+
+    @Test
+    void eventsNotFlushedYet_areIncluded() {
+        apply(event(1L, "10.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 1).atTime(9, 0)));
+        analyticsWriteBehindStore.add(List.of(
+                event(1L, "5.00", TransactionType.PAYMENT, LocalDate.of(2025, 3, 1).atTime(10, 0)),
+                event(1L, "7.00", TransactionType.PAYMENT, LocalDate.of(2025, 4, 2).atTime(10, 0))),
+                mock(Acknowledgment.class));
+
+        List<AnalyticsSeriesPointDTO> days = analyticsSeriesService.getSeries(1L, "day",
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2));
+        List<AnalyticsSeriesPointDTO> months = analyticsSeriesService.getSeries(1L, "month",
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+        assertThat(days).extracting(AnalyticsSeriesPointDTO::getTransactionCount).containsExactly(2L, 0L);
+        assertThat(days.get(0).getTotalSpent()).isEqualByComparingTo("15.00");
+        assertThat(months).singleElement().satisfies(march -> {
+            assertThat(march.getTransactionCount()).isEqualTo(2L);
+            assertThat(march.getTotalSpent()).isEqualByComparingTo("15.00");
+        });
+    }
+
+    @Test
+    void invalidRequests_areBadRequests() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        assertBadRequest(() -> analyticsSeriesService.getSeries(1L, "hour", day, day));
+        assertBadRequest(() -> analyticsSeriesService.getSeries(1L, "day", day, day.minusDays(1)));
+        //1001 days, one more than analytics.series.max-buckets
+        assertBadRequest(() -> analyticsSeriesService.getSeries(1L, "day", day, day.plusDays(1000)));
+        assertThat(analyticsSeriesService.getSeries(1L, "day", day, day.plusDays(999))).hasSize(1000);
+    }
+
+    private void apply(TransactionEvent... events) {
+        monthlyAnalyticsService.applyTransactionBatch(List.of(events));
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,176 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.PostgresIntegrationTest;
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.Month;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//a store of its own per test: failures are injected through its JdbcTemplate, pausing through a mock container
+class AnalyticsWriteBehindStoreTests extends PostgresIntegrationTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2025, 9, 10, 10, 0);
+
+    @Autowired
+    private TransactionEventDeduplicator transactionEventDeduplicator;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = spy(new JdbcTemplate(dataSource));
+    }
+
+    @Test
+    void flush_writesTheBufferedEventsThenAcknowledgesThem() {
+        AnalyticsWriteBehindStore store = store(1000);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        store.add(List.of(event(1L, "10.00", TransactionType.PAYMENT, DATE),
+                event(1L, "2.00", TransactionType.DEPOSIT, DATE)), ack);
+
+        verify(ack, never()).acknowledge();
+        assertThat(monthlyAnalyticsRepository.findByCustomerId(1L)).isEmpty();
+        assertThat(pendingCount(store)).isEqualTo(2);
+
+        store.flush();
+
+        verify(ack).acknowledge();
+        assertThat(pendingCount(store)).isZero();
+        assertThat(monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.SEPTEMBER, 2025))
+                .hasValueSatisfying(row -> {
+                    assertThat(row.getTotalSpent()).isEqualByComparingTo("10.00");
+                    assertThat(row.getTotalReceived()).isEqualByComparingTo("2.00");
+                    assertThat(row.getTransactionCount()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void failedFlush_keepsTheEventsUnacknowledgedAndTheNextFlushWritesThem() {
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .doCallRealMethod()
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        AnalyticsWriteBehindStore store = store(1000);
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+
+        store.add(List.of(event(1L, "10.00", TransactionType.PAYMENT, DATE)), first);
+        store.flush();
+
+        verify(first, never()).acknowledge();
+        assertThat(monthlyAnalyticsRepository.findByCustomerId(1L)).isEmpty();
+        //the claimed ids rolled back with the rows, so the retry counts the events
+        assertThat(processedTransactionEventRepository.count()).isZero();
+        assertThat(pendingCount(store)).isEqualTo(1);
+        assertThat(gauge("analytics.write-behind.flush.consecutive-failures")).isEqualTo(1.0);
+
+        store.add(List.of(event(1L, "5.00", TransactionType.PAYMENT, DATE)), second);
+        store.flush();
+
+        InOrder order = inOrder(first, second);
+        order.verify(first).acknowledge();
+        order.verify(second).acknowledge();
+        assertThat(monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.SEPTEMBER, 2025))
+                .hasValueSatisfying(row -> assertThat(row.getTotalSpent()).isEqualByComparingTo("15.00"));
+        assertThat(gauge("analytics.write-behind.flush.consecutive-failures")).isZero();
+        assertThat(meterRegistry.get("analytics.write-behind.flush.failures").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void redeliveredEvents_areAcknowledgedWithoutBeingCountedAgain() {
+        AnalyticsWriteBehindStore store = store(1000);
+        TransactionEvent event = event(1L, "10.00", TransactionType.PAYMENT, DATE);
+        store.add(List.of(event), mock(Acknowledgment.class));
+        store.flush();
+
+        //the offset commit was lost: the same event arrives again, next to a new one
+        Acknowledgment redelivery = mock(Acknowledgment.class);
+        store.add(List.of(event, event(1L, "1.00", TransactionType.PAYMENT, DATE)), redelivery);
+        store.flush();
+
+        verify(redelivery).acknowledge();
+        assertThat(monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.SEPTEMBER, 2025))
+                .hasValueSatisfying(row -> {
+                    assertThat(row.getTotalSpent()).isEqualByComparingTo("11.00");
+                    assertThat(row.getTransactionCount()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void listenersArePausedAtTheCapUntilAFlushSucceeds() {
+        doThrow(new DataAccessResourceFailureException("db down"))
+                .doCallRealMethod()
+                .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        AnalyticsWriteBehindStore store = store(4);
+
+        store.add(List.of(event(1L, "1.00", TransactionType.PAYMENT, DATE),
+                event(1L, "1.00", TransactionType.PAYMENT, DATE)), mock(Acknowledgment.class));
+        verify(container, never()).pause();
+
+        store.add(List.of(event(1L, "1.00", TransactionType.PAYMENT, DATE),
+                event(1L, "1.00", TransactionType.PAYMENT, DATE)), mock(Acknowledgment.class));
+        verify(container).pause();
+        assertThat(gauge("analytics.write-behind.paused")).isEqualTo(1.0);
+
+        store.flush();
+        verify(container, never()).resume();
+
+        store.flush();
+        verify(container).resume();
+        assertThat(gauge("analytics.write-behind.paused")).isZero();
+        assertThat(gauge("analytics.write-behind.pending.events")).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnalyticsWriteBehindStore store(long maxPendingEvents) {
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainers()).thenReturn(List.of(container));
+        ObjectProvider<KafkaListenerEndpointRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(registry);
+        return new AnalyticsWriteBehindStore(transactionEventDeduplicator, jdbcTemplate, transactionManager,
+                provider, meterRegistry, maxPendingEvents, 5);
+    }
+
+    private static long pendingCount(AnalyticsWriteBehindStore store) {
+        MonthlyAnalyticsDelta delta = store.pendingDeltas(1L, 2025)
+                .get(new MonthlyAnalyticsKey(1L, Month.SEPTEMBER, 2025));
+        return delta == null ? 0 : delta.getTransactionCount();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
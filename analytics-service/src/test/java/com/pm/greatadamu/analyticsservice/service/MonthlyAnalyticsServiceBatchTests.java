@@ -0,0 +1,70 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.PostgresIntegrationTest;
+import com.pm.greatadamu.analyticsservice.model.AnalyticsRollup;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+import com.pm.greatadamu.analyticsservice.model.Month;
+import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonthlyAnalyticsServiceBatchTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private MonthlyAnalyticsService monthlyAnalyticsService;
+
+    @Test
+    void batch_isFoldedIntoOneWritePerRow() {
+        LocalDateTime march14 = LocalDateTime.of(2025, 3, 14, 9, 0);
+        LocalDateTime march15 = LocalDateTime.of(2025, 3, 15, 18, 30);
+        LocalDateTime april2 = LocalDateTime.of(2025, 4, 2, 8, 0);
+
+        int rows = monthlyAnalyticsService.applyTransactionBatch(List.of(
+                event(1L, "10.00", TransactionType.PAYMENT, march14),
+                event(1L, "2.50", TransactionType.WITHDRAWAL, march14),
+                event(1L, "100.00", TransactionType.DEPOSIT, march15),
+                event(1L, "7.25", TransactionType.TRANSFER, april2),
+                event(2L, "1.00", TransactionType.PAYMENT, march14)));
+
+        //monthly: 1/March, 1/April, 2/March; days: 14, 15, 2 Apr for 1 and 14 for 2;
+        //weeks: 10 Mar (14 and 15 Mar), 31 Mar for 1 and 10 Mar for 2
+        assertThat(rows).isEqualTo(3 + 4 + 3);
+
+        MonthlyAnalytics march = monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.MARCH, 2025).orElseThrow();
+        assertThat(march.getTotalSpent()).isEqualByComparingTo("12.50");
+        assertThat(march.getTotalReceived()).isEqualByComparingTo("100.00");
+        assertThat(march.getTransactionCount()).isEqualTo(3);
+        MonthlyAnalytics april = monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.APRIL, 2025).orElseThrow();
+        assertThat(april.getTotalSpent()).isEqualByComparingTo("7.25");
+        assertThat(april.getTransactionCount()).isEqualTo(1);
+
+        List<AnalyticsRollup> weeks = analyticsRollupRepository.findByCustomerIdAndGranularityAndBucketStartBetweenOrderByBucketStart(
+                1L, BucketGranularity.WEEK, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 30));
+        assertThat(weeks).extracting(AnalyticsRollup::getBucketStart)
+                .containsExactly(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 31));
+        assertThat(weeks.get(0).getTransactionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void secondBatch_addsToTheExistingRows() {
+        LocalDateTime date = LocalDateTime.of(2025, 6, 1, 12, 0);
+        monthlyAnalyticsService.applyTransactionBatch(List.of(event(3L, "5.00", TransactionType.PAYMENT, date)));
+
+        monthlyAnalyticsService.applyTransactionBatch(List.of(
+                event(3L, "5.00", TransactionType.PAYMENT, date),
+                event(3L, "20.00", TransactionType.DEPOSIT, date)));
+
+        MonthlyAnalytics june = monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(3L, Month.JUNE, 2025).orElseThrow();
+        assertThat(june.getTotalSpent()).isEqualByComparingTo("10.00");
+        assertThat(june.getTotalReceived()).isEqualByComparingTo("20.00");
+        assertThat(june.getTransactionCount()).isEqualTo(3);
+        assertThat(monthlyAnalyticsRepository.findByCustomerId(3L)).hasSize(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.PostgresIntegrationTest;
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.AnalyticsRollup;
+import com.pm.greatadamu.analyticsservice.model.BucketGranularity;
+import com.pm.greatadamu.analyticsservice.model.Month;
+import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonthlyAnalyticsUpsertTests extends PostgresIntegrationTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2025, 5, 20, 10, 0);
+
+    @Autowired
+    private MonthlyAnalyticsService monthlyAnalyticsService;
+
+    @Test
+    void concurrentFirstEventsOfAMonth_createOneRowWithEveryIncrement() throws Exception {
+        runConcurrently(20, i -> monthlyAnalyticsService.updateAnalyticsFromTransaction(
+                event(1L, "1.50", TransactionType.PAYMENT, DATE)));
+
+        MonthlyAnalytics may = monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(1L, Month.MAY, 2025).orElseThrow();
+        assertThat(may.getTotalSpent()).isEqualByComparingTo("30.00");
+        assertThat(may.getTransactionCount()).isEqualTo(20);
+        assertThat(monthlyAnalyticsRepository.findByCustomerId(1L)).hasSize(1);
+        assertThat(rollup(BucketGranularity.DAY, DATE.toLocalDate()).getTransactionCount()).isEqualTo(20);
+        assertThat(rollup(BucketGranularity.WEEK, LocalDate.of(2025, 5, 19)).getTransactionCount()).isEqualTo(20);
+    }
+
+    @Test
+    void concurrentBatchesOverTheSameRows_neitherLoseIncrementsNorDeadlock() throws Exception {
+        //each batch touches customers 1..5 in a different order
+        runConcurrently(8, i -> {
+            List<TransactionEvent> batch = new ArrayList<>();
+            for (long customerId = 1; customerId <= 5; customerId++) {
+                batch.add(event(customerId, "2.00", TransactionType.DEPOSIT, DATE));
+            }
+            Collections.rotate(batch, i);
+            monthlyAnalyticsService.applyTransactionBatch(batch);
+        });
+
+        for (long customerId = 1; customerId <= 5; customerId++) {
+            MonthlyAnalytics may = monthlyAnalyticsRepository
+                    .findByCustomerIdAndMonthAndYear(customerId, Month.MAY, 2025).orElseThrow();
+            assertThat(may.getTotalReceived()).isEqualByComparingTo("16.00");
+            assertThat(may.getTransactionCount()).isEqualTo(8);
+        }
+    }
+
+    private AnalyticsRollup rollup(BucketGranularity granularity, LocalDate bucketStart) {
+        return analyticsRollupRepository.findByCustomerIdAndGranularityAndBucketStartBetweenOrderByBucketStart(
+                1L, granularity, bucketStart, bucketStart).get(0);
+    }
+
+    //task i for i in [0, tasks), all started at once; a task's exception fails the test
+    private static void runConcurrently(int tasks, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> task.accept(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pm.greatadamu.analyticsservice.service;
+
+import com.pm.greatadamu.analyticsservice.PostgresIntegrationTest;
+import com.pm.greatadamu.analyticsservice.kafka.TransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.Month;
+import com.pm.greatadamu.analyticsservice.model.MonthlyAnalytics;
+import com.pm.greatadamu.analyticsservice.model.ProcessedTransactionEvent;
+import com.pm.greatadamu.analyticsservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionEventDeduplicatorTests extends PostgresIntegrationTest {
+    private static final LocalDateTime DATE = LocalDateTime.of(2025, 8, 5, 10, 0);
+
+    @Autowired
+    private TransactionEventDeduplicator transactionEventDeduplicator;
+    @Autowired
+    private MonthlyAnalyticsService monthlyAnalyticsService;
+
+    @Test
+    void redeliveredEvent_isCountedOnce() {
+        TransactionEvent event = event(1L, "10.00", TransactionType.PAYMENT, DATE);
+
+        monthlyAnalyticsService.updateAnalyticsFromTransaction(event);
+        monthlyAnalyticsService.updateAnalyticsFromTransaction(event);
+
+        assertThat(august(1L).getTransactionCount()).isEqualTo(1);
+        assertThat(august(1L).getTotalSpent()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void batch_dropsRepeatsWithinItAndEventsOfEarlierBatches() {
+        TransactionEvent first = event(1L, "10.00", TransactionType.PAYMENT, DATE);
+        TransactionEvent second = event(1L, "5.00", TransactionType.DEPOSIT, DATE);
+        monthlyAnalyticsService.applyTransactionBatch(List.of(first));
+
+        monthlyAnalyticsService.applyTransactionBatch(List.of(first, second, second));
+
+        assertThat(august(1L).getTransactionCount()).isEqualTo(2);
+        assertThat(august(1L).getTotalSpent()).isEqualByComparingTo("10.00");
+        assertThat(august(1L).getTotalReceived()).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void eventWithoutTransactionId_isAppliedEveryTime() {
+        TransactionEvent event = event(1L, "1.00", TransactionType.PAYMENT, DATE);
+        event.setTransactionId(null);
+
+        monthlyAnalyticsService.applyTransactionBatch(List.of(event));
+        monthlyAnalyticsService.applyTransactionBatch(List.of(event));
+
+        assertThat(august(1L).getTransactionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void twoConsumersApplyingTheSameBatch_countItOnce() {
+        List<TransactionEvent> batch = List.of(
+                event(1L, "3.00", TransactionType.PAYMENT, DATE),
+                event(1L, "4.00", TransactionType.PAYMENT, DATE),
+                event(2L, "5.00", TransactionType.PAYMENT, DATE));
+
+        CompletableFuture<Integer> one = CompletableFuture.supplyAsync(() -> monthlyAnalyticsService.applyTransactionBatch(batch));
+        CompletableFuture<Integer> other = CompletableFuture.supplyAsync(() -> monthlyAnalyticsService.applyTransactionBatch(batch));
+        CompletableFuture.allOf(one, other).orTimeout(30, TimeUnit.SECONDS).join();
+
+        assertThat(august(1L).getTransactionCount()).isEqualTo(2);
+        assertThat(august(1L).getTotalSpent()).isEqualByComparingTo("7.00");
+        assertThat(august(2L).getTransactionCount()).isEqualTo(1);
+        assertThat(processedTransactionEventRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void claim_mustJoinTheCallersTransaction() {
+        assertThatThrownBy(() -> transactionEventDeduplicator.claimIds(List.of(1L)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    void purge_removesRecordsOlderThanTheRetention() {
+        processedTransactionEventRepository.saveAll(List.of(
+                new ProcessedTransactionEvent(1L, LocalDateTime.now().minusDays(15)),
+                new ProcessedTransactionEvent(2L, LocalDateTime.now().minusDays(15)),
+                new ProcessedTransactionEvent(3L, LocalDateTime.now().minusDays(13))));
+
+        transactionEventDeduplicator.purgeExpired();
+
+        assertThat(processedTransactionEventRepository.findAll())
+                .extracting(ProcessedTransactionEvent::getTransactionId)
+                .containsExactly(3L);
+    }
+
+    private MonthlyAnalytics august(Long customerId) {
+        return monthlyAnalyticsRepository.findByCustomerIdAndMonthAndYear(customerId, Month.AUGUST, 2025).orElseThrow();
+    }
+}
@@ -0,0 +1,9 @@
+-- users and refresh_tokens ids move to pooled sequences (see
+-- account-service/src/main/resources/db/migrate-identity-to-sequence.sql for how and when to run these scripts).
+-- refresh_tokens gets a row on every login and refresh, so it is the busier of the two sequences.
+
+create sequence if not exists users_seq start with 1 increment by 50;
+select setval('users_seq', coalesce((select max(id) from users), 0) + 50, false);
+
+create sequence if not exists refresh_tokens_seq start with 1 increment by 50;
+select setval('refresh_tokens_seq', coalesce((select max(id) from refresh_tokens), 0) + 50, false);
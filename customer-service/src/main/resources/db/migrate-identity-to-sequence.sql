@@ -0,0 +1,5 @@
+-- customers ids move to customers_seq (see account-service/src/main/resources/db/migrate-identity-to-sequence.sql
+-- for how and when to run these scripts).
+
+create sequence if not exists customers_seq start with 1 increment by 50;
+select setval('customers_seq', coalesce((select max(id) from customers), 0) + 50, false);
@@ -0,0 +1,55 @@
+package com.pm.greatadamu.transactionservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+    //set by handlers whose async response may legitimately outlive the default async request timeout
+    public static final String EXPORT_REQUEST_ATTRIBUTE = AsyncConfig.class.getName() + ".EXPORT";
+
+    private final long exportTimeoutMs;
+
+    public AsyncConfig(@Value("${transactions.export.timeout-ms:300000}") long exportTimeoutMs) {
+        this.exportTimeoutMs = exportTimeoutMs;
+    }
+
+    //streamed exports get their own timeout, every other async request keeps the default
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                if (request.getAttribute(EXPORT_REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null
+                        && request instanceof AsyncWebRequest asyncRequest) {
+                    asyncRequest.setTimeout(exportTimeoutMs);
+                }
+            }
+        });
+    }
+
+    //runs the blocking JPA/Kafka steps of the async transfer pipeline, so request and gRPC threads never wait on the DB
+    @Bean
+    public ThreadPoolTaskExecutor transactionPersistenceExecutor(
+            @Value("${transactions.async.pool-size:16}") int poolSize,
+            @Value("${transactions.async.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("tx-persist-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,16 +1,33 @@
 package com.pm.greatadamu.transactionservice.controller;
 
+import com.pm.greatadamu.transactionservice.config.AsyncConfig;
+import com.pm.greatadamu.transactionservice.dto.BatchTransactionResultDTO;
+import com.pm.greatadamu.transactionservice.dto.ExportFormat;
+import com.pm.greatadamu.transactionservice.dto.TransactionPageDTO;
 import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
 import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
 import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.service.TransactionBatchService;
+import com.pm.greatadamu.transactionservice.service.TransactionExportService;
 import com.pm.greatadamu.transactionservice.service.TransactionServices;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 @RestController
@@ -18,6 +35,8 @@ import java.util.List;
 
 public class TransactionController {
     private final TransactionServices transactionServices;
+    private final TransactionBatchService transactionBatchService;
+    private final TransactionExportService transactionExportService;
 
 
     @GetMapping
@@ -30,6 +49,14 @@ public class TransactionController {
     }
 
 
+    //one page of all transactions, pass nextCursor back as ?cursor= for the next page
+    @GetMapping("/page")
+    public ResponseEntity<TransactionPageDTO> getTransactionsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(transactionServices.getTransactionsPage(cursor, size));
+    }
+
     //get a single transaction by transaction id
     @GetMapping("/{id}")
     public ResponseEntity<TransactionResponseDTO> getTransactionById(@PathVariable Long id) {
@@ -50,15 +77,90 @@ public class TransactionController {
 
     }
 
+    //one page of a customer's transactions (newest id first), pass nextCursor back as ?cursor= for the next page
+    @GetMapping("/customer/{customerId}/page")
+    public ResponseEntity<TransactionPageDTO> getTransactionsByCustomerIdPage(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(transactionServices.getTransactionsByCustomerIdPage(customerId, cursor, size));
+    }
+
+    //download a customer's statement, streamed (NDJSON or CSV) with optional date range (inclusive)
+    @GetMapping("/customer/{customerId}/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+        StreamingResponseBody body = transactionExportService.exportTransactions(customerId, format, from, to);
+        //long statements: transactions.export.timeout-ms instead of the default async timeout
+        request.setAttribute(AsyncConfig.EXPORT_REQUEST_ATTRIBUTE, Boolean.TRUE);
+
+        boolean csv = format == ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions-" + customerId + (csv ? ".csv" : ".ndjson"))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<TransactionResponseDTO> createTransaction(
             @RequestBody @Valid TransactionRequestDTO transactionRequestDTO) {
         //call your service:this return a single transactionResponseDTO
         TransactionResponseDTO responseDTO =transactionServices.createTransaction(transactionRequestDTO);
 
+        return settledOrAccepted(responseDTO);
+
+    }
+
+    //fire-and-forget: 202 + Location as soon as the PENDING row is saved, settled later by a background
+    //worker; poll GET /api/transactions/{id} for the outcome
+    @PostMapping("/submit")
+    public ResponseEntity<TransactionResponseDTO> submitTransaction(
+            @RequestBody @Valid TransactionRequestDTO transactionRequestDTO) {
+        TransactionResponseDTO responseDTO = transactionServices.submitTransaction(transactionRequestDTO);
+
+        return ResponseEntity.accepted().location(location(responseDTO)).body(responseDTO);
+    }
+
+    //same contract as POST /api/transactions (201 once settled, 202 if the outcome is unknown), but the
+    //servlet thread is released while the transfer is in flight; the client still waits for the settlement
+    @PostMapping("/async")
+    public CompletableFuture<ResponseEntity<TransactionResponseDTO>> createTransactionAsync(
+            @RequestBody @Valid TransactionRequestDTO transactionRequestDTO) {
+        //call your service:this return a future that completes once the transfer is settled
+        return transactionServices.createTransactionAsync(transactionRequestDTO)
+                .thenApply(TransactionController::settledOrAccepted);
+    }
+
+    //submit many transfers at once, every item gets its own result (same order as the request)
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchTransactionResultDTO>> createTransactions(
+            @RequestBody List<TransactionRequestDTO> transactionRequestDTOs) {
+        //items are validated one by one in the service so one bad item doesn't reject the batch
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(transactionRequestDTOs);
+
+        return ResponseEntity.ok(results);
+    }
+
+    //201 once settled; 202 + Location while the outcome is unknown (the transfer is re-driven in the background)
+    private static ResponseEntity<TransactionResponseDTO> settledOrAccepted(TransactionResponseDTO responseDTO) {
+        if (responseDTO.getTransactionStatus() == TransactionStatus.PENDING) {
+            return ResponseEntity.accepted().location(location(responseDTO)).body(responseDTO);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(responseDTO);
+    }
 
+    private static URI location(TransactionResponseDTO responseDTO) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/transactions/{id}")
+                .buildAndExpand(responseDTO.getId())
+                .toUri();
     }
 
 }
-
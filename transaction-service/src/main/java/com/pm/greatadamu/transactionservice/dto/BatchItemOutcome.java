@@ -0,0 +1,10 @@
+package com.pm.greatadamu.transactionservice.dto;
+
+public enum BatchItemOutcome {
+    COMPLETED,
+    FAILED,
+    //outcome not known yet (TransferBatch call failed), settled in the background: poll the transaction
+    PENDING,
+    DUPLICATE,
+    REJECTED
+}
@@ -0,0 +1,18 @@
+package com.pm.greatadamu.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransactionResultDTO {
+    //position of the item in the submitted list
+    private int index;
+    private String idempotencyKey;
+    private BatchItemOutcome outcome;
+    //null when the item was REJECTED before anything was stored
+    private TransactionResponseDTO transaction;
+    private String error;
+}
@@ -0,0 +1,6 @@
+package com.pm.greatadamu.transactionservice.dto;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV
+}
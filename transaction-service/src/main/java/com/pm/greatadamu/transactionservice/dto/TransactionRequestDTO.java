@@ -2,6 +2,7 @@ package com.pm.greatadamu.transactionservice.dto;
 
 import com.pm.greatadamu.transactionservice.model.TransactionType;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
@@ -20,7 +21,9 @@ public class TransactionRequestDTO {
 
     private String idempotencyKey;
 
+    //numeric(19, 2) column, and at most 18 digits so the amount also fits Money's int64 minor units
     @NotNull
+    @Digits(integer = 16, fraction = 2)
     private BigDecimal amount;
 
     @NotNull
@@ -2,61 +2,168 @@ package com.pm.greatadamu.transactionservice.gRPC;
 
 import com.pm.greatadamu.grpc.account.*;
 import com.pm.greatadamu.grpc.account.AccountServiceGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
+@RequiredArgsConstructor
 public class AccountGrpcClient {
 
+    private static final String SERVICE_NAME = "account.AccountService";
+
+    private final AccountValidationCache accountValidationCache;
+    private final MeterRegistry meterRegistry;
+
     @Value("${grpc.account-service.host:localhost}")
     private String accountServiceHost;
 
     @Value("${grpc.account-service.port:9090}")
     private int accountServicePort;
 
-    @Value("2000")
+    //comma separated host:port list of account-service replicas, falls back to host/port
+    @Value("${grpc.account-service.addresses:}")
+    private String accountServiceAddresses;
+
+    @Value("${grpc.account-service.deadline-ms:2000}")
     private long deadlineMs;
 
-    private ManagedChannel channel;
-    private AccountServiceGrpc.AccountServiceBlockingStub blockingStub;
+    @Value("${grpc.account-service.batch-deadline-ms:10000}")
+    private long batchDeadlineMs;
+
+    //channels in the pool, each keeps its own HTTP/2 connection to every replica
+    @Value("${grpc.account-service.channel-pool-size:4}")
+    private int channelPoolSize;
+
+    @Value("${grpc.account-service.keepalive-time-seconds:30}")
+    private long keepAliveTimeSeconds;
+
+    @Value("${grpc.account-service.keepalive-timeout-seconds:10}")
+    private long keepAliveTimeoutSeconds;
+
+    @Value("${grpc.account-service.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${grpc.account-service.hedging.delay-ms:50}")
+    private long hedgingDelayMs;
+
+    @Value("${grpc.account-service.send-legacy-amount:true}")
+    private boolean sendLegacyAmount;
+
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final List<AccountServiceGrpc.AccountServiceBlockingStub> blockingStubs = new ArrayList<>();
+    private final List<AccountServiceGrpc.AccountServiceFutureStub> futureStubs = new ArrayList<>();
+    private final AtomicInteger nextStub = new AtomicInteger();
 
     @PostConstruct
     public void init() {
-        log.info("Initializing gRPC client for Account Service at {}:{}",
-                accountServiceHost, accountServicePort);
+        String addresses = accountServiceAddresses.isBlank()
+                ? accountServiceHost + ":" + accountServicePort
+                : accountServiceAddresses;
+        log.info("Initializing gRPC client for Account Service at {} ({} channels, round_robin)",
+                addresses, channelPoolSize);
 
-        channel = ManagedChannelBuilder
-                .forAddress(accountServiceHost, accountServicePort)
-                .usePlaintext()
-                .build();
-
-        blockingStub = AccountServiceGrpc.newBlockingStub(channel);
+        GrpcLatencyInterceptor latencyInterceptor = new GrpcLatencyInterceptor(meterRegistry);
+        Map<String, ?> serviceConfig = serviceConfig();
+        for (int i = 0; i < channelPoolSize; i++) {
+            //static:// resolver (grpc-client-spring-boot-starter) turns the address list into round_robin subchannels
+            ManagedChannel channel = ManagedChannelBuilder
+                    .forTarget("static://" + addresses)
+                    .defaultServiceConfig(serviceConfig)
+                    .enableRetry()
+                    .keepAliveTime(keepAliveTimeSeconds, TimeUnit.SECONDS)
+                    .keepAliveTimeout(keepAliveTimeoutSeconds, TimeUnit.SECONDS)
+                    .keepAliveWithoutCalls(true)
+                    .intercept(latencyInterceptor)
+                    .usePlaintext()
+                    .build();
+            channels.add(channel);
+            blockingStubs.add(AccountServiceGrpc.newBlockingStub(channel));
+            futureStubs.add(AccountServiceGrpc.newFutureStub(channel));
+        }
 
         log.info("gRPC client initialized successfully");
     }
 
+    /**
+     * round_robin over all replicas, retries for ValidateAccount(s) and hedging for GetBalance(s)
+     * (both read-only, so a second attempt is always safe). Writes are never retried here:
+     * Transfer is retried by the caller with the same idempotency key.
+     */
+    private Map<String, ?> serviceConfig() {
+        Map<String, Object> retryPolicy = Map.of(
+                "maxAttempts", (double) retryMaxAttempts,
+                "initialBackoff", "0.05s",
+                "maxBackoff", "0.5s",
+                "backoffMultiplier", 2.0,
+                "retryableStatusCodes", List.of("UNAVAILABLE"));
+        Map<String, Object> hedgingPolicy = Map.of(
+                "maxAttempts", 2.0,
+                "hedgingDelay", (hedgingDelayMs / 1000.0) + "s",
+                "nonFatalStatusCodes", List.of("UNAVAILABLE"));
+
+        return Map.of(
+                "loadBalancingConfig", List.of(Map.of("round_robin", Map.of())),
+                "methodConfig", List.of(
+                        Map.of("name", List.of(
+                                        Map.of("service", SERVICE_NAME, "method", "ValidateAccount"),
+                                        Map.of("service", SERVICE_NAME, "method", "ValidateAccounts")),
+                                "retryPolicy", retryPolicy),
+                        Map.of("name", List.of(
+                                        Map.of("service", SERVICE_NAME, "method", "GetBalance"),
+                                        Map.of("service", SERVICE_NAME, "method", "GetBalances")),
+                                "hedgingPolicy", hedgingPolicy)));
+    }
+
+    //spread calls over the channel pool
+    private AccountServiceGrpc.AccountServiceBlockingStub blockingStub() {
+        return blockingStubs.get(Math.floorMod(nextStub.getAndIncrement(), blockingStubs.size()));
+    }
+
+    private AccountServiceGrpc.AccountServiceFutureStub futureStub() {
+        return futureStubs.get(Math.floorMod(nextStub.getAndIncrement(), futureStubs.size()));
+    }
+
     @PreDestroy
     public void shutdown() {
-        if (channel != null && !channel.isShutdown()) {
-            log.info("Shutting down gRPC channel");
-            channel.shutdown();
+        log.info("Shutting down gRPC channels");
+        for (ManagedChannel channel : channels) {
+            if (!channel.isShutdown()) {
+                channel.shutdown();
+            }
         }
     }
 
     /**
-     * Validate if account exists and is active
+     * Validate if account exists and is active (served from AccountValidationCache when possible)
      */
     public ValidateAccountResponse validateAccount(Long accountId) {
+        ValidateAccountResponse cached = accountValidationCache.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
         try {
             log.info("gRPC Client: Validating account ID: {}", accountId);
 
@@ -65,9 +172,11 @@ public class AccountGrpcClient {
                     .build();
 
             //deadline
-            return blockingStub
+            ValidateAccountResponse response = blockingStub()
                     .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
                     .validateAccount(request);
+            accountValidationCache.put(accountId, response);
+            return response;
         }catch (StatusRuntimeException e) {
             // handle gRPC status errors
             log.error("validateAccount failed: status={}, msg={}", e.getStatus(), e.getMessage());
@@ -85,7 +194,7 @@ public class AccountGrpcClient {
                     .build();
 
             // apply deadline
-            return blockingStub
+            return blockingStub()
                     .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
                     .getBalance(request);
 
@@ -95,20 +204,79 @@ public class AccountGrpcClient {
         }
     }
 
+    /**
+     * Validate many accounts in one RPC (one query on account-service); cached accounts never go over the wire
+     */
+    public Map<Long, ValidateAccountResponse> validateAccounts(Collection<Long> accountIds) {
+        Map<Long, ValidateAccountResponse> results = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            ValidateAccountResponse cached = accountValidationCache.get(accountId);
+            if (cached != null) {
+                results.put(accountId, cached);
+            } else {
+                misses.add(accountId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return results;
+        }
+        try {
+            ValidateAccountsRequest request = ValidateAccountsRequest.newBuilder()
+                    .addAllAccountIds(misses)
+                    .build();
+
+            // apply deadline
+            ValidateAccountsResponse response = blockingStub()
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .validateAccounts(request);
+            for (AccountValidation result : response.getResultsList()) {
+                accountValidationCache.put(result.getAccountId(), result.getValidation());
+                results.put(result.getAccountId(), result.getValidation());
+            }
+            return results;
+
+        } catch (StatusRuntimeException e) {
+            log.error("validateAccounts failed: status={}, msg={}", e.getStatus(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Get many balances in one RPC, keyed by account id (unknown accounts are left out)
+     */
+    public Map<Long, GetBalanceResponse> getBalances(Collection<Long> accountIds) {
+        try {
+            GetBalancesRequest request = GetBalancesRequest.newBuilder()
+                    .addAllAccountIds(accountIds)
+                    .build();
+
+            // apply deadline
+            GetBalancesResponse response = blockingStub()
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .getBalances(request);
+
+            Map<Long, GetBalanceResponse> balances = new HashMap<>();
+            for (AccountBalance balance : response.getBalancesList()) {
+                balances.put(balance.getAccountId(), balance.getBalance());
+            }
+            return balances;
+
+        } catch (StatusRuntimeException e) {
+            log.error("getBalances failed: status={}, msg={}", e.getStatus(), e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * Debit account (subtract from balance)
      */
     public UpdateBalanceResponse debitAccount(Long accountId, BigDecimal amount, String description) {
         try {
-            UpdateBalanceRequest request = UpdateBalanceRequest.newBuilder()
-                    .setAccountId(accountId)
-                    .setAmount(amount.toString())
-                    .setOperation(OperationType.DEBIT)
-                    .setDescription(description == null ? "" : description)
-                    .build();
+            UpdateBalanceRequest request = buildUpdateBalanceRequest(accountId, amount, OperationType.DEBIT, description);
 
             //  apply deadline
-            return blockingStub
+            return blockingStub()
                     .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
                     .updateBalance(request);
 
@@ -123,15 +291,10 @@ public class AccountGrpcClient {
      */
     public UpdateBalanceResponse creditAccount(Long accountId, BigDecimal amount, String description) {
         try {
-            UpdateBalanceRequest request = UpdateBalanceRequest.newBuilder()
-                    .setAccountId(accountId)
-                    .setAmount(amount.toString())
-                    .setOperation(OperationType.CREDIT)
-                    .setDescription(description == null ? "" : description)
-                    .build();
+            UpdateBalanceRequest request = buildUpdateBalanceRequest(accountId, amount, OperationType.CREDIT, description);
 
             // apply deadline
-            return blockingStub
+            return blockingStub()
                     .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
                     .updateBalance(request);
 
@@ -141,4 +304,133 @@ public class AccountGrpcClient {
         }
     }
 
+    /**
+     * Transfer between two accounts in one RPC (validate, debit and credit happen in one DB transaction)
+     */
+    public TransferResponse transfer(Long fromAccountId, Long toAccountId, BigDecimal amount,
+                                     String idempotencyKey, String description) {
+        try {
+            TransferRequest request = buildTransferRequest(fromAccountId, toAccountId, amount, idempotencyKey, description);
+
+            // apply deadline
+            return blockingStub()
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .transfer(request);
+
+        } catch (StatusRuntimeException e) {
+            log.error("transfer failed: status={}, msg={}", e.getStatus(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Apply many transfers in one RPC and one DB transaction on the account-service side
+     */
+    public TransferBatchResponse transferBatch(List<TransferRequest> transfers) {
+        try {
+            TransferBatchRequest request = TransferBatchRequest.newBuilder()
+                    .addAllTransfers(transfers)
+                    .build();
+
+            // a batch gets its own (longer) deadline
+            return blockingStub()
+                    .withDeadlineAfter(batchDeadlineMs, TimeUnit.MILLISECONDS)
+                    .transferBatch(request);
+
+        } catch (StatusRuntimeException e) {
+            log.error("transferBatch failed: status={}, msg={}", e.getStatus(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking validateAccount: the calling thread is released right away (cache hits complete immediately)
+     */
+    public CompletableFuture<ValidateAccountResponse> validateAccountAsync(Long accountId) {
+        ValidateAccountResponse cached = accountValidationCache.get(accountId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        ValidateAccountRequest request = ValidateAccountRequest.newBuilder()
+                .setAccountId(accountId)
+                .build();
+
+        return toCompletableFuture("validateAccountAsync", futureStub()
+                .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                .validateAccount(request))
+                .thenApply(response -> {
+                    accountValidationCache.put(accountId, response);
+                    return response;
+                });
+    }
+
+    /**
+     * Non-blocking transfer: the calling thread is released right away
+     */
+    public CompletableFuture<TransferResponse> transferAsync(Long fromAccountId, Long toAccountId, BigDecimal amount,
+                                                             String idempotencyKey, String description) {
+        TransferRequest request;
+        try {
+            request = buildTransferRequest(fromAccountId, toAccountId, amount, idempotencyKey, description);
+        } catch (IllegalArgumentException e) {
+            //the amount can't be encoded: reported through the future like any other failure
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return toCompletableFuture("transferAsync", futureStub()
+                .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                .transfer(request));
+    }
+
+    /**
+     * Amounts travel as fixed-point Money; the string form is only added while
+     * grpc.account-service.send-legacy-amount is on (account-service replicas that predate Money)
+     */
+    public TransferRequest buildTransferRequest(Long fromAccountId, Long toAccountId, BigDecimal amount,
+                                                String idempotencyKey, String description) {
+        TransferRequest.Builder request = TransferRequest.newBuilder()
+                .setFromAccountId(fromAccountId)
+                .setToAccountId(toAccountId)
+                .setAmountMoney(MoneyCodec.toMoney(amount))
+                .setIdempotencyKey(idempotencyKey)
+                .setDescription(description == null ? "" : description);
+        if (sendLegacyAmount) {
+            request.setAmount(amount.toString());
+        }
+        return request.build();
+    }
+
+    private UpdateBalanceRequest buildUpdateBalanceRequest(Long accountId, BigDecimal amount,
+                                                           OperationType operation, String description) {
+        UpdateBalanceRequest.Builder request = UpdateBalanceRequest.newBuilder()
+                .setAccountId(accountId)
+                .setAmountMoney(MoneyCodec.toMoney(amount))
+                .setOperation(operation)
+                .setDescription(description == null ? "" : description);
+        if (sendLegacyAmount) {
+            request.setAmount(amount.toString());
+        }
+        return request.build();
+    }
+
+    //bridge gRPC's ListenableFuture to CompletableFuture (callback runs on the gRPC thread that completed the call)
+    private static <T> CompletableFuture<T> toCompletableFuture(String operation, ListenableFuture<T> listenableFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Futures.addCallback(listenableFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof StatusRuntimeException e) {
+                    log.error("{} failed: status={}, msg={}", operation, e.getStatus(), e.getMessage());
+                }
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.pm.greatadamu.transactionservice.gRPC;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.greatadamu.grpc.account.ValidateAccountResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, TTL-based cache of ValidateAccount results keyed by account id.
+ * Entries are also evicted as soon as account-service publishes a change for that account,
+ * the TTL only bounds staleness if such an event is lost.
+ */
+@Component
+@Slf4j
+public class AccountValidationCache {
+
+    private final Cache<Long, ValidateAccountResponse> cache;
+    private final Counter invalidations;
+
+    public AccountValidationCache(MeterRegistry meterRegistry,
+                                  @Value("${transactions.account-cache.max-size:10000}") long maxSize,
+                                  @Value("${transactions.account-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size ... tagged cache=account.validation
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "account.validation");
+        this.invalidations = Counter.builder("account.validation.cache.invalidations")
+                .description("Entries evicted because account-service published an account change")
+                .register(meterRegistry);
+    }
+
+    public ValidateAccountResponse get(Long accountId) {
+        return cache.getIfPresent(accountId);
+    }
+
+    public void put(Long accountId, ValidateAccountResponse response) {
+        cache.put(accountId, response);
+    }
+
+    public void evict(Long accountId) {
+        cache.invalidate(accountId);
+        invalidations.increment();
+        log.debug("Evicted cached validation for account {}", accountId);
+    }
+}
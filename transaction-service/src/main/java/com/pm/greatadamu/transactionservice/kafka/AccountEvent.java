@@ -0,0 +1,15 @@
+package com.pm.greatadamu.transactionservice.kafka;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountEvent {
+    private Long accountId;
+    private Long customerId;
+    private AccountStatus accountStatus;
+    private AccountEventType eventType;
+}
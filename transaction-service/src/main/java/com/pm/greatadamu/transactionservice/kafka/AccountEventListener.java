@@ -0,0 +1,24 @@
+package com.pm.greatadamu.transactionservice.kafka;
+
+import com.pm.greatadamu.transactionservice.gRPC.AccountValidationCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AccountEventListener {
+    private final AccountValidationCache accountValidationCache;
+
+    //every instance has its own group id (see application.properties) so each one evicts its own cache
+    @KafkaListener(topics = "accounts",
+            groupId = "${transactions.account-cache.group-id}",
+            properties = "auto.offset.reset=latest")
+    public void handleAccountEvent(AccountEvent accountEvent) {
+        log.info("Received account event {}", accountEvent);
+
+        accountValidationCache.evict(accountEvent.getAccountId());
+    }
+}
@@ -0,0 +1,7 @@
+package com.pm.greatadamu.transactionservice.kafka;
+
+public enum AccountEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -2,8 +2,12 @@ package com.pm.greatadamu.transactionservice.kafka;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @RequiredArgsConstructor
 public class TransactionEventProducer {
@@ -12,12 +16,21 @@ public class TransactionEventProducer {
 
     private static final String TOPIC = "transactions";
 
-    public void sendTransactionEvent(TransactionEvent transactionEvent) {
+    public CompletableFuture<SendResult<String, TransactionEvent>> sendTransactionEvent(TransactionEvent transactionEvent) {
         //you can use customerId or TransactionId as key
         String key = transactionEvent.getCustomerId() !=null
                 ? transactionEvent.getCustomerId().toString()
                 :transactionEvent.getTransactionId().toString();
 
-        kafkaTemplate.send(TOPIC, key,transactionEvent);
+        return kafkaTemplate.send(TOPIC, key,transactionEvent);
+    }
+
+    // send a batch of events and flush once, the returned future completes when the broker acked all of them
+    public CompletableFuture<Void> sendTransactionEvents(List<TransactionEvent> transactionEvents) {
+        CompletableFuture<?>[] sends = transactionEvents.stream()
+                .map(this::sendTransactionEvent)
+                .toArray(CompletableFuture[]::new);
+        kafkaTemplate.flush();
+        return CompletableFuture.allOf(sends);
     }
 }
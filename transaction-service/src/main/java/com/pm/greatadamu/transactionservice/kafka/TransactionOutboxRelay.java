@@ -0,0 +1,120 @@
+package com.pm.greatadamu.transactionservice.kafka;
+
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.TransactionOutbox;
+import com.pm.greatadamu.transactionservice.repository.TransactionOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains transaction_outbox to Kafka.
+ * A short transaction leases the next batch (claimed_until), the events are sent with no DB transaction open,
+ * and the rows are deleted once the broker acked the whole batch; a failed send releases the lease.
+ * Rows go out in (txId, id) order and a customer is only ever in flight with one relay, so per-customer order
+ * holds with several instances. A broker outage just lets the outbox grow and never touches transfer latency
+ * or status. Delivery is at-least-once: a crash between ack and delete re-sends that batch after the lease expires.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionOutboxRelay {
+    //pg_try_advisory_xact_lock key serializing the claim step across relay instances
+    private static final long CLAIM_LOCK_KEY = 0x7478_6f75_7462_6f78L;
+    private static final Comparator<TransactionOutbox> RELAY_ORDER = Comparator
+            .comparing(TransactionOutbox::getTxId)
+            .thenComparing(TransactionOutbox::getId);
+
+    private final TransactionOutboxRepository transactionOutboxRepository;
+    private final TransactionEventProducer transactionEventProducer;
+    private final TransactionMapper transactionMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${transactions.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transactions.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    //must be well above send-timeout-ms, or a slow batch could be claimed and sent again by another relay
+    @Value("${transactions.outbox.claim-lease-ms:60000}")
+    private long claimLeaseMs;
+
+    @Scheduled(fixedDelayString = "${transactions.outbox.poll-interval-ms:200}")
+    public void relay() {
+        //keep draining while batches come back full
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    private int relayBatch() {
+        List<TransactionOutbox> batch;
+        try {
+            batch = claimNextBatch();
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed to claim rows, will retry: {}", e.getMessage());
+            return 0;
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<TransactionEvent> events = batch.stream().map(transactionMapper::mapToEvent).toList();
+        List<Long> ids = batch.stream().map(TransactionOutbox::getId).toList();
+        try {
+            transactionEventProducer.sendTransactionEvents(events).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(ids, e);
+            return 0;
+        } catch (ExecutionException | TimeoutException e) {
+            release(ids, e);
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> transactionOutboxRepository.deleteAllByIdInBatch(ids));
+        } catch (RuntimeException e) {
+            //sent but not deleted: re-sent once the lease expires (at-least-once)
+            log.error("Outbox relay failed to delete {} published rows: {}", ids.size(), e.getMessage());
+            return 0;
+        }
+        log.info("Relayed {} TransactionEvents from outbox", batch.size());
+        return batch.size();
+    }
+
+    private List<TransactionOutbox> claimNextBatch() {
+        List<TransactionOutbox> batch = transactionTemplate.execute(status -> {
+            if (!transactionOutboxRepository.tryClaimLock(CLAIM_LOCK_KEY)) {
+                //another instance is claiming right now
+                return List.of();
+            }
+            LocalDateTime now = LocalDateTime.now();
+            return transactionOutboxRepository.claimNextBatch(batchSize, now, now.plusNanos(claimLeaseMs * 1_000_000));
+        });
+        return batch == null ? List.of() : batch.stream().sorted(RELAY_ORDER).toList();
+    }
+
+    //the rows keep their order and are retried by the next poll (of any instance)
+    private void release(List<Long> ids, Exception cause) {
+        log.error("Publishing outbox batch of {} failed, will retry: {}", ids.size(), cause.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> transactionOutboxRepository.releaseClaim(ids));
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed to release {} rows, they are retried when the lease expires: {}",
+                    ids.size(), e.getMessage());
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.pm.greatadamu.transactionservice.mapper;
 
 import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
 import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.kafka.TransactionEvent;
 import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionOutbox;
 import com.pm.greatadamu.transactionservice.model.TransactionStatus;
 import org.springframework.stereotype.Component;
 
@@ -38,4 +40,26 @@ public class TransactionMapper {
         );
     }
 
+    public TransactionOutbox mapToOutbox(Transaction transaction) {
+        return TransactionOutbox.builder()
+                .transactionId(transaction.getId())
+                .customerId(transaction.getCustomerId())
+                .amount(transaction.getAmount())
+                .transactionType(transaction.getTransactionType())
+                .transactionStatus(transaction.getTransactionStatus())
+                .transactionDate(transaction.getTransactionDate())
+                .build();
+    }
+
+    public TransactionEvent mapToEvent(TransactionOutbox outbox) {
+        return new TransactionEvent(
+                outbox.getTransactionId(),
+                outbox.getCustomerId(),
+                outbox.getAmount(),
+                outbox.getTransactionType(),
+                outbox.getTransactionStatus(),
+                outbox.getTransactionDate()
+        );
+    }
+
 }
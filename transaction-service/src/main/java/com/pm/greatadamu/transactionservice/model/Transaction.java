@@ -18,13 +18,16 @@ import java.time.LocalDateTime;
 @Table(name = "transactions",
         indexes = {
                 @Index(name = "idx_tx_customer_date", columnList = "customerId,transactionDate"),
+                @Index(name = "idx_tx_customer_id", columnList = "customerId,id"),
                 @Index(name = "idx_tx_from_account", columnList = "fromAccountId"),
                 @Index(name = "idx_tx_to_account", columnList = "toAccountId"),
                 @Index(name = "idx_tx_status", columnList = "transactionStatus")
         })
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //pooled sequence: ids are handed out 50 per round trip, so inserts can be JDBC-batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 80)
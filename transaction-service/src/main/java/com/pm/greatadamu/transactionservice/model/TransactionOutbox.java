@@ -0,0 +1,63 @@
+package com.pm.greatadamu.transactionservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//TransactionEvent waiting to be published, written in the same DB transaction that completes the transfer
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Table(name = "transaction_outbox",
+        indexes = {
+                @Index(name = "idx_outbox_tx_order", columnList = "txId,id"),
+                @Index(name = "idx_outbox_customer", columnList = "customerId")
+        })
+public class TransactionOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_outbox_seq")
+    @SequenceGenerator(name = "transaction_outbox_seq", sequenceName = "transaction_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long transactionId;
+
+    //Kafka key, events of one customer are relayed in (txId, id) order
+    @Column(nullable = false)
+    private Long customerId;
+
+    //id of the DB transaction that wrote the row, set by Postgres: a transaction that starts writing after
+    //another one committed gets a higher id, so (txId, id) orders events by commit causality
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint default txid_current()")
+    private Long txId;
+
+    //set while a relay is publishing the row; an expired lease (relay died) makes it claimable again
+    private LocalDateTime claimedUntil;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TransactionStatus transactionStatus;
+
+    private LocalDateTime transactionDate;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,47 @@
+package com.pm.greatadamu.transactionservice.repository;
+
+import com.pm.greatadamu.transactionservice.model.TransactionOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TransactionOutboxRepository extends JpaRepository<TransactionOutbox, Long> {
+
+    // one relay claims at a time; the others skip this round instead of waiting.
+    // Released when the (short) claim transaction ends.
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryClaimLock(@Param("key") long key);
+
+    // leases the oldest publishable rows (Postgres UPDATE ... RETURNING, order is restored by the caller):
+    //  - only rows of transactions older than every running one, so no row can commit later with a lower txId
+    //  - no row of a customer that has rows in flight with another relay, so one customer is never sent in parallel
+    @Query(nativeQuery = true, value = """
+            update transaction_outbox
+            set claimed_until = :leaseUntil
+            where id in (
+                select o.id
+                from transaction_outbox o
+                where o.tx_id < txid_snapshot_xmin(txid_current_snapshot())
+                  and (o.claimed_until is null or o.claimed_until < :now)
+                  and not exists (select 1 from transaction_outbox f
+                                  where f.customer_id = o.customer_id
+                                    and f.claimed_until >= :now)
+                order by o.tx_id, o.id
+                limit :limit
+                for update skip locked)
+            returning *
+            """)
+    List<TransactionOutbox> claimNextBatch(@Param("limit") int limit,
+                                           @Param("now") LocalDateTime now,
+                                           @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    //publishing failed: make the rows claimable again right away
+    @Modifying
+    @Query("update TransactionOutbox o set o.claimedUntil = null where o.id in :ids")
+    int releaseClaim(@Param("ids") Collection<Long> ids);
+}
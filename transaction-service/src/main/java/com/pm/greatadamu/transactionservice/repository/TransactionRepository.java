@@ -1,14 +1,111 @@
 package com.pm.greatadamu.transactionservice.repository;
 
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
 import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByCustomerId(Long customerId);
 
     Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
 
+    List<Transaction> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+
+    //stale PENDING rows for the settlement sweeper (idx_tx_status)
+    List<Transaction> findByTransactionStatusAndTransactionDateBeforeOrderById(TransactionStatus transactionStatus,
+                                                                             LocalDateTime before,
+                                                                             Limit limit);
+
+    // ----- guarded status transitions: one UPDATE touching only status + date, no SELECT/merge -----
+
+    //returns 0 if the transaction is no longer in the expected status
+    @Modifying
+    @Query("""
+            update Transaction t
+            set t.transactionStatus = :to, t.transactionDate = :now
+            where t.id = :id
+              and t.transactionStatus = :from
+            """)
+    int updateStatus(@Param("id") Long id,
+                     @Param("from") TransactionStatus from,
+                     @Param("to") TransactionStatus to,
+                     @Param("now") LocalDateTime now);
+
+    //batch form, returns the ids that actually moved (Postgres UPDATE ... RETURNING)
+    @Query(nativeQuery = true, value = """
+            update transactions
+            set transaction_status = :to, transaction_date = :now
+            where id in (:ids)
+              and transaction_status = :from
+            returning id
+            """)
+    List<Long> updateStatusIn(@Param("ids") Collection<Long> ids,
+                              @Param("from") String from,
+                              @Param("to") String to,
+                              @Param("now") LocalDateTime now);
+
+    // ----- keyset pagination: DTO projections, newest id first -----
+    // keyed on the id alone: transactionDate changes when a transaction settles, which would move rows
+    // across a client's cursor (skipped or served twice)
+
+    //one customer's rows below the cursor id, served by idx_tx_customer_id
+    @Query("""
+            select new com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO(
+                t.id, t.customerId, t.amount, t.fromAccountId, t.toAccountId, t.description,
+                t.transactionType, t.transactionStatus, t.transactionDate)
+            from Transaction t
+            where t.customerId = :customerId
+              and t.id < :id
+            order by t.id desc
+            """)
+    List<TransactionResponseDTO> findPageByCustomerIdBeforeId(@Param("customerId") Long customerId,
+                                                             @Param("id") Long id,
+                                                             Limit limit);
+
+    @Query("""
+            select new com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO(
+                t.id, t.customerId, t.amount, t.fromAccountId, t.toAccountId, t.description,
+                t.transactionType, t.transactionStatus, t.transactionDate)
+            from Transaction t
+            where t.id < :id
+            order by t.id desc
+            """)
+    List<TransactionResponseDTO> findPageBeforeId(@Param("id") Long id, Limit limit);
+
+    // ----- export: server-side cursor (needs an open transaction), rows fetched EXPORT_FETCH_SIZE at a time -----
+
+    int EXPORT_FETCH_SIZE = 500;
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO(
+                t.id, t.customerId, t.amount, t.fromAccountId, t.toAccountId, t.description,
+                t.transactionType, t.transactionStatus, t.transactionDate)
+            from Transaction t
+            where t.customerId = :customerId
+              and t.transactionDate >= :from
+              and t.transactionDate < :to
+            order by t.transactionDate, t.id
+            """)
+    Stream<TransactionResponseDTO> streamByCustomerIdAndDateRange(@Param("customerId") Long customerId,
+                                                                  @Param("from") LocalDateTime from,
+                                                                  @Param("to") LocalDateTime to);
+
 }
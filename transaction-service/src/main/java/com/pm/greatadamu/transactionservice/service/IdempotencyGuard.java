@@ -0,0 +1,191 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.exception.IdempotencyConflictReturnExisting;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * In-memory idempotency layer in front of the unique idempotency_key constraint.
+ * Tier 1: recently finished keys -> their response, a retry is answered without touching the DB.
+ * Tier 2: keys currently being processed, a concurrent duplicate waits for the first request's result
+ * instead of doing its own gRPC work.
+ * Both tiers are per instance; the DB constraint stays the source of truth across instances.
+ */
+@Component
+@Slf4j
+public class IdempotencyGuard {
+    private static final String STILL_PROCESSING =
+            "Transaction with this idempotency key is still being processed; try again";
+
+    private final Cache<String, TransactionResponseDTO> completed;
+    private final ConcurrentMap<String, CompletableFuture<TransactionResponseDTO>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutMs;
+
+    private final Counter cacheHits;
+    private final Counter coalesced;
+    private final Counter misses;
+
+    public IdempotencyGuard(MeterRegistry meterRegistry,
+                            @Value("${transactions.idempotency.cache-max-size:100000}") long maxSize,
+                            @Value("${transactions.idempotency.cache-ttl-seconds:600}") long ttlSeconds,
+                            @Value("${transactions.idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.waitTimeoutMs = waitTimeoutMs;
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size ... tagged cache=transaction.idempotency
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "transaction.idempotency");
+        Gauge.builder("transactions.idempotency.in.flight", inFlight, ConcurrentMap::size)
+                .description("Idempotency keys currently being processed")
+                .register(meterRegistry);
+        this.cacheHits = outcomeCounter(meterRegistry, "cache_hit");
+        this.coalesced = outcomeCounter(meterRegistry, "coalesced");
+        this.misses = outcomeCounter(meterRegistry, "miss");
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("transactions.idempotency.requests")
+                .description("createTransaction calls by idempotency outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run action once per key. A duplicate gets IdempotencyConflictReturnExisting with the first result
+     * (same contract as the DB lookup), or the first request's exception if that one failed.
+     */
+    public TransactionResponseDTO execute(String key, Supplier<TransactionResponseDTO> action) {
+        CompletableFuture<TransactionResponseDTO> mine = claim(key);
+        try {
+            TransactionResponseDTO result = action.get();
+            finish(key, mine, result);
+            return result;
+        } catch (IdempotencyConflictReturnExisting e) {
+            //the key was already in the DB: remember it so the next retry doesn't go there again
+            finish(key, mine, e.getExisting());
+            throw e;
+        } catch (RuntimeException e) {
+            fail(key, mine, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of execute: a duplicate gets a future that completes with the first request's outcome,
+     * or with the same "still being processed" error as execute once wait-timeout-ms has passed.
+     */
+    public CompletableFuture<TransactionResponseDTO> executeAsync(String key,
+                                                                  Supplier<CompletableFuture<TransactionResponseDTO>> action) {
+        TransactionResponseDTO cached = completed.getIfPresent(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.failedFuture(new IdempotencyConflictReturnExisting(cached));
+        }
+        CompletableFuture<TransactionResponseDTO> mine = new CompletableFuture<>();
+        CompletableFuture<TransactionResponseDTO> first = inFlight.putIfAbsent(key, mine);
+        if (first != null) {
+            coalesced.increment();
+            log.info("Idempotency key {} already in flight, waiting for the first request", key);
+            //the timeout goes on a copy: it must not complete the first request's own future
+            return first.copy()
+                    .orTimeout(waitTimeoutMs, TimeUnit.MILLISECONDS)
+                    .handle((result, e) -> {
+                        if (e == null) {
+                            throw new IdempotencyConflictReturnExisting(result);
+                        }
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof TimeoutException) {
+                            throw new RuntimeException(STILL_PROCESSING);
+                        }
+                        throw cause instanceof RuntimeException re ? re : new CompletionException(cause);
+                    });
+        }
+        misses.increment();
+
+        CompletableFuture<TransactionResponseDTO> started;
+        try {
+            started = action.get();
+        } catch (RuntimeException e) {
+            fail(key, mine, e);
+            throw e;
+        }
+        return started.whenComplete((result, e) -> {
+            if (e == null) {
+                finish(key, mine, result);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IdempotencyConflictReturnExisting conflict) {
+                finish(key, mine, conflict.getExisting());
+            } else {
+                fail(key, mine, cause);
+            }
+        });
+    }
+
+    //returns the future this caller now owns, or throws for a duplicate
+    private CompletableFuture<TransactionResponseDTO> claim(String key) {
+        TransactionResponseDTO cached = completed.getIfPresent(key);
+        if (cached != null) {
+            cacheHits.increment();
+            throw new IdempotencyConflictReturnExisting(cached);
+        }
+        CompletableFuture<TransactionResponseDTO> mine = new CompletableFuture<>();
+        CompletableFuture<TransactionResponseDTO> first = inFlight.putIfAbsent(key, mine);
+        if (first == null) {
+            misses.increment();
+            return mine;
+        }
+
+        coalesced.increment();
+        log.info("Idempotency key {} already in flight, waiting for the first request", key);
+        try {
+            throw new IdempotencyConflictReturnExisting(first.get(waitTimeoutMs, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause);
+        } catch (TimeoutException e) {
+            throw new RuntimeException(STILL_PROCESSING);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for transaction with the same idempotency key");
+        }
+    }
+
+    private void finish(String key, CompletableFuture<TransactionResponseDTO> mine, TransactionResponseDTO result) {
+        //a PENDING result is still settling: not cached, so a retry reads the current status from the DB
+        if (result.getTransactionStatus() != TransactionStatus.PENDING) {
+            completed.put(key, result);
+        }
+        inFlight.remove(key, mine);
+        mine.complete(result);
+    }
+
+    //failures are not cached: the FAILED row is in the DB, a later retry is answered from there
+    private void fail(String key, CompletableFuture<TransactionResponseDTO> mine, Throwable e) {
+        inFlight.remove(key, mine);
+        mine.completeExceptionally(e);
+    }
+}
@@ -0,0 +1,227 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferBatchItemResult;
+import com.pm.greatadamu.grpc.account.TransferBatchResponse;
+import com.pm.greatadamu.grpc.account.TransferRequest;
+import com.pm.greatadamu.transactionservice.dto.BatchItemOutcome;
+import com.pm.greatadamu.transactionservice.dto.BatchTransactionResultDTO;
+import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import io.grpc.StatusRuntimeException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Payroll-style batches: one idempotency lookup, one PENDING insert transaction,
+ * one TransferBatch RPC per chunk and one settle transaction (which also fills the outbox) for the whole batch.
+ * Items are only marked FAILED from their own TransferOutcome; a chunk whose call failed stays PENDING
+ * and is settled in the background (TransferBatch is idempotent per key).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionBatchService {
+    private final TransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final AccountGrpcClient accountGrpcClient;
+    private final TransactionPersistenceService transactionPersistenceService;
+    private final TransactionSettlementWorkers transactionSettlementWorkers;
+
+    @Value("${transactions.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    @Value("${transactions.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public List<BatchTransactionResultDTO> createTransactions(List<TransactionRequestDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one transaction");
+        }
+        if (dtos.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + dtos.size() + " exceeds limit of " + maxBatchSize);
+        }
+        log.info("Creating batch of {} transactions", dtos.size());
+
+        BatchTransactionResultDTO[] results = new BatchTransactionResultDTO[dtos.size()];
+
+        // ========== STEP 1: Validate items (a bad item is rejected, the rest carry on) ==========
+        Map<String, Integer> indexByKey = new LinkedHashMap<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            TransactionRequestDTO dto = dtos.get(i);
+            String error = validate(dto);
+            if (error == null && indexByKey.containsKey(dto.getIdempotencyKey())) {
+                error = "Duplicate idempotency key in batch";
+            }
+            if (error != null) {
+                results[i] = new BatchTransactionResultDTO(i, dto == null ? null : dto.getIdempotencyKey(),
+                        BatchItemOutcome.REJECTED, null, error);
+                continue;
+            }
+            indexByKey.put(dto.getIdempotencyKey(), i);
+        }
+
+        // ========== STEP 2: One idempotency lookup for the whole batch ==========
+        if (!indexByKey.isEmpty()) {
+            markDuplicates(indexByKey, results);
+        }
+
+        if (indexByKey.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        // ========== STEP 3: Persist all PENDING rows in one transaction ==========
+        List<Transaction> saved = savePending(dtos, indexByKey, results);
+        if (saved.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        log.info("Batch: {} transactions saved as PENDING", saved.size());
+
+        // ========== STEP 4: Move the money, one TransferBatch RPC per chunk ==========
+        Map<Long, String> failures = new HashMap<>();
+        for (int from = 0; from < saved.size(); from += chunkSize) {
+            List<Transaction> chunk = saved.subList(from, Math.min(from + chunkSize, saved.size()));
+            settleChunk(chunk, failures);
+        }
+
+        // ========== STEP 5: Mark COMPLETED / FAILED (+ outbox events) in one transaction ==========
+        // a row the re-drive settled meanwhile comes back with the status the DB has
+        List<Transaction> decided = saved.stream()
+                .filter(tx -> tx.getTransactionStatus() != TransactionStatus.PENDING)
+                .toList();
+        if (!decided.isEmpty()) {
+            transactionPersistenceService.saveSettledBatch(decided);
+        }
+
+        // ========== STEP 6: Per-item results ==========
+        int pendingCount = 0;
+        int failedCount = 0;
+        for (Transaction tx : saved) {
+            int i = indexByKey.get(tx.getIdempotencyKey());
+            BatchItemOutcome outcome = switch (tx.getTransactionStatus()) {
+                case COMPLETED -> BatchItemOutcome.COMPLETED;
+                case PENDING -> BatchItemOutcome.PENDING;
+                case FAILED, REVERSED -> BatchItemOutcome.FAILED;
+            };
+            if (outcome == BatchItemOutcome.PENDING) {
+                //outcome unknown: re-driven with the same key by the settlement workers (or the sweeper)
+                transactionSettlementWorkers.submit(tx);
+                pendingCount++;
+            } else if (outcome == BatchItemOutcome.FAILED) {
+                failedCount++;
+            }
+            results[i] = new BatchTransactionResultDTO(i, tx.getIdempotencyKey(), outcome,
+                    transactionMapper.mapToResponseDTO(tx),
+                    outcome == BatchItemOutcome.FAILED ? failures.get(tx.getId()) : null);
+        }
+
+        log.info("Batch finished: {} completed, {} failed, {} pending",
+                saved.size() - failedCount - pendingCount, failedCount, pendingCount);
+        return Arrays.asList(results);
+    }
+
+    //items whose key is already in the DB are answered with the existing transaction
+    private void markDuplicates(Map<String, Integer> indexByKey, BatchTransactionResultDTO[] results) {
+        for (Transaction existing : transactionRepository.findByIdempotencyKeyIn(indexByKey.keySet())) {
+            int i = indexByKey.remove(existing.getIdempotencyKey());
+            results[i] = new BatchTransactionResultDTO(i, existing.getIdempotencyKey(),
+                    BatchItemOutcome.DUPLICATE, transactionMapper.mapToResponseDTO(existing), null);
+        }
+    }
+
+    // a concurrent request may insert one of our keys between the lookup and the insert: the unique key rejects
+    // the whole insert transaction, so the keys that now exist become DUPLICATE and the rest is inserted again
+    private List<Transaction> savePending(List<TransactionRequestDTO> dtos, Map<String, Integer> indexByKey,
+                                          BatchTransactionResultDTO[] results) {
+        while (!indexByKey.isEmpty()) {
+            //fresh entities on every attempt: the rolled-back ones already carry ids
+            List<Transaction> pending = new ArrayList<>(indexByKey.size());
+            for (Map.Entry<String, Integer> entry : indexByKey.entrySet()) {
+                Transaction transaction = transactionMapper.mapToEntity(dtos.get(entry.getValue()));
+                transaction.setIdempotencyKey(entry.getKey());
+                pending.add(transaction);
+            }
+            try {
+                return transactionPersistenceService.savePendingBatch(pending);
+            } catch (DataIntegrityViolationException e) {
+                int before = indexByKey.size();
+                markDuplicates(indexByKey, results);
+                if (indexByKey.size() == before) {
+                    //not an idempotency key race
+                    throw e;
+                }
+                log.info("Batch: {} idempotency keys were inserted concurrently, retrying the other {}",
+                        before - indexByKey.size(), indexByKey.size());
+            }
+        }
+        return List.of();
+    }
+
+    // sets COMPLETED/FAILED from the per-item outcomes, failure reasons go into failures;
+    // transactions without a definitive outcome stay PENDING
+    private void settleChunk(List<Transaction> chunk, Map<Long, String> failures) {
+        List<TransferRequest> requests = chunk.stream()
+                .map(tx -> accountGrpcClient.buildTransferRequest(
+                        tx.getFromAccountId(),
+                        tx.getToAccountId(),
+                        tx.getAmount(),
+                        tx.getIdempotencyKey(),
+                        "Transaction #" + tx.getId()))
+                .toList();
+
+        TransferBatchResponse response;
+        try {
+            response = accountGrpcClient.transferBatch(requests);
+        } catch (StatusRuntimeException e) {
+            //e.g. the deadline passed after account-service committed: some or all transfers may be applied
+            log.warn("Batch: TransferBatch call for {} transactions failed, leaving them PENDING: {}",
+                    chunk.size(), e.getStatus());
+            return;
+        }
+
+        int answered = Math.min(chunk.size(), response.getResultsCount());
+        for (int i = 0; i < answered; i++) {
+            Transaction tx = chunk.get(i);
+            TransferBatchItemResult result = response.getResults(i);
+            switch (result.getOutcome()) {
+                case APPLIED, ALREADY_APPLIED -> tx.setTransactionStatus(TransactionStatus.COMPLETED);
+                case ACCOUNT_NOT_FOUND, ACCOUNT_NOT_ACTIVE, INSUFFICIENT_FUNDS, INVALID_REQUEST -> {
+                    tx.setTransactionStatus(TransactionStatus.FAILED);
+                    failures.put(tx.getId(), result.getMessage());
+                }
+                //an outcome this client doesn't know: leave it to the re-drive
+                default -> log.warn("Batch: unknown outcome {} for transaction {}", result.getOutcome(), tx.getId());
+            }
+        }
+    }
+
+    //same rules as the single createTransaction endpoint (@Valid + amount/key checks)
+    private String validate(TransactionRequestDTO dto) {
+        if (dto == null) {
+            return "Transaction is required";
+        }
+        if (dto.getCustomerId() == null || dto.getFromAccountId() == null
+                || dto.getToAccountId() == null || dto.getTransactionType() == null) {
+            return "customerId, fromAccountId, toAccountId and transactionType are required";
+        }
+        String invalidAmount = TransactionServices.invalidAmountReason(dto.getAmount());
+        if (invalidAmount != null) {
+            return invalidAmount;
+        }
+        if (dto.getIdempotencyKey() == null || dto.getIdempotencyKey().isBlank()) {
+            return "Idempotency key is required";
+        }
+        if (dto.getDescription() != null && dto.getDescription().length() > 500) {
+            return "Description must be less than 500 characters";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination: the id of the last row served.
+ * Only the id is used because it never changes (transactionDate is rewritten when a transaction settles).
+ * Clients must treat it as an opaque string, the format may change.
+ */
+record TransactionCursor(Long id) {
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TransactionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            return new TransactionCursor(Long.parseLong(raw));
+        } catch (IllegalArgumentException e) {
+            //bad Base64 or not a number (NumberFormatException is an IllegalArgumentException)
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.greatadamu.transactionservice.dto.ExportFormat;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Streams a customer's statement straight from a DB cursor to the HTTP response.
+ * Rows are projected to DTOs (nothing piles up in the persistence context) and written as they arrive,
+ * so memory stays flat and the client gets the first bytes before the query finishes.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+    private static final String CSV_HEADER =
+            "id,customerId,amount,fromAccountId,toAccountId,description,transactionType,transactionStatus,transactionDate";
+
+    //open-ended filters fall back to these (still inside the Postgres timestamp range)
+    private static final LocalDateTime EARLIEST = LocalDate.of(1900, 1, 1).atStartOfDay();
+    private static final LocalDateTime LATEST = LocalDate.of(9999, 12, 31).atStartOfDay();
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        // the Postgres driver only honours the fetch size (real cursor) inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    //from is inclusive, to is inclusive (whole day)
+    public StreamingResponseBody exportTransactions(Long customerId, ExportFormat format, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        LocalDateTime fromTime = from == null ? EARLIEST : from.atStartOfDay();
+        LocalDateTime toTime = to == null ? LATEST : to.plusDays(1).atStartOfDay();
+
+        return outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            long rows = readOnlyTransaction.execute(status -> {
+                long count = 0;
+                try (Stream<TransactionResponseDTO> stream =
+                             transactionRepository.streamByCustomerIdAndDateRange(customerId, fromTime, toTime)) {
+                    for (TransactionResponseDTO row : (Iterable<TransactionResponseDTO>) stream::iterator) {
+                        writeRow(writer, format, row);
+                        //push each fetched chunk to the client instead of buffering the whole statement
+                        if (++count % TransactionRepository.EXPORT_FETCH_SIZE == 0) {
+                            writer.flush();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            writer.flush();
+            log.info("Exported {} transactions for customer {} as {}", rows, customerId, format);
+        };
+    }
+
+    private void writeRow(Writer writer, ExportFormat format, TransactionResponseDTO row) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(row));
+        } else {
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getCustomerId()));
+            writer.write(',');
+            writer.write(row.getAmount() == null ? "" : row.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(row.getFromAccountId() == null ? "" : row.getFromAccountId().toString());
+            writer.write(',');
+            writer.write(row.getToAccountId() == null ? "" : row.getToAccountId().toString());
+            writer.write(',');
+            writer.write(csvEscape(row.getDescription()));
+            writer.write(',');
+            writer.write(row.getTransactionType() == null ? "" : row.getTransactionType().name());
+            writer.write(',');
+            writer.write(row.getTransactionStatus() == null ? "" : row.getTransactionStatus().name());
+            writer.write(',');
+            writer.write(row.getTransactionDate() == null ? "" : row.getTransactionDate().toString());
+        }
+        writer.write('\n');
+    }
+
+    private static String csvEscape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,45 +1,149 @@
 package com.pm.greatadamu.transactionservice.service;
 
 
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
 import com.pm.greatadamu.transactionservice.model.Transaction;
 import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionOutboxRepository;
 import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TransactionPersistenceService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionOutboxRepository transactionOutboxRepository;
+    private final TransactionMapper transactionMapper;
+    private final MeterRegistry meterRegistry;
 
     // ✅ FIX: save PENDING in its own transaction
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Transaction savePending(Transaction transaction) {
         transaction.setTransactionStatus(TransactionStatus.PENDING);
         transaction.setTransactionDate(LocalDateTime.now());
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        countTransition(TransactionStatus.PENDING, true, 1);
+        return saved;
     }
 
     // ✅ FIX: mark COMPLETED in its own transaction
+    // one guarded UPDATE (status + date only), the TransactionEvent goes into the outbox in the same transaction
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Transaction markCompleted(Transaction tx) {
+        LocalDateTime now = LocalDateTime.now();
+        if (transactionRepository.updateStatus(tx.getId(), TransactionStatus.PENDING, TransactionStatus.COMPLETED, now) == 0) {
+            return skippedTransition(tx, TransactionStatus.COMPLETED);
+        }
+        countTransition(TransactionStatus.COMPLETED, true, 1);
         tx.setTransactionStatus(TransactionStatus.COMPLETED);
-        tx.setTransactionDate(LocalDateTime.now());
-        return transactionRepository.save(tx);
+        tx.setTransactionDate(now);
+        transactionOutboxRepository.save(transactionMapper.mapToOutbox(tx));
+        return tx;
     }
 
-    // ✅ FIX: mark FAILED in its own transaction
+    // ✅ FIX: mark FAILED in its own transaction (one guarded UPDATE)
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Transaction markFailed(Transaction tx, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        if (transactionRepository.updateStatus(tx.getId(), TransactionStatus.PENDING, TransactionStatus.FAILED, now) == 0) {
+            return skippedTransition(tx, TransactionStatus.FAILED);
+        }
+        countTransition(TransactionStatus.FAILED, true, 1);
         tx.setTransactionStatus(TransactionStatus.FAILED);
-        tx.setTransactionDate(LocalDateTime.now());
+        tx.setTransactionDate(now);
         // (Optional) store reason somewhere if you have a column for it
-        return transactionRepository.save(tx);
+        return tx;
+    }
+
+    // save a whole batch of PENDING rows in one transaction
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Transaction> savePendingBatch(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        transactions.forEach(tx -> {
+            tx.setTransactionStatus(TransactionStatus.PENDING);
+            tx.setTransactionDate(now);
+        });
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        countTransition(TransactionStatus.PENDING, true, saved.size());
+        return saved;
+    }
+
+    // settle a whole batch (statuses already set by the caller) in one transaction:
+    // one guarded UPDATE per target status, COMPLETED ones go to the outbox.
+    // Rows that were no longer PENDING are reloaded, so the caller sees what the DB has
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Transaction> saveSettledBatch(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<TransactionStatus, List<Long>> idsByStatus = transactions.stream()
+                .collect(Collectors.groupingBy(Transaction::getTransactionStatus,
+                        Collectors.mapping(Transaction::getId, Collectors.toList())));
+
+        Set<Long> moved = new HashSet<>();
+        idsByStatus.forEach((status, ids) -> {
+            List<Long> updated = transactionRepository.updateStatusIn(
+                    ids, TransactionStatus.PENDING.name(), status.name(), now);
+            moved.addAll(updated);
+            countTransition(status, true, updated.size());
+            if (updated.size() < ids.size()) {
+                countTransition(status, false, ids.size() - updated.size());
+                log.warn("Batch: {} of {} transactions were no longer PENDING, not marked {}",
+                        ids.size() - updated.size(), ids.size(), status);
+            }
+        });
+        transactions.stream().filter(tx -> moved.contains(tx.getId())).forEach(tx -> tx.setTransactionDate(now));
+        //outbox events only for rows this call completed (a re-driven row already has its event)
+        transactionOutboxRepository.saveAll(transactions.stream()
+                .filter(tx -> tx.getTransactionStatus() == TransactionStatus.COMPLETED && moved.contains(tx.getId()))
+                .map(transactionMapper::mapToOutbox)
+                .toList());
+        if (moved.size() < transactions.size()) {
+            reloadSkipped(transactions, moved);
+        }
+        return transactions;
+    }
+
+    //the batch counterpart of skippedTransition: one read for every row someone else settled first
+    private void reloadSkipped(List<Transaction> transactions, Set<Long> moved) {
+        List<Transaction> skipped = transactions.stream().filter(tx -> !moved.contains(tx.getId())).toList();
+        Map<Long, Transaction> current = transactionRepository.findAllById(skipped.stream().map(Transaction::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        for (Transaction tx : skipped) {
+            Transaction row = current.get(tx.getId());
+            if (row != null) {
+                tx.setTransactionStatus(row.getTransactionStatus());
+                tx.setTransactionDate(row.getTransactionDate());
+            }
+        }
     }
-}
 
+    //someone else already settled this transaction: leave it alone and report what the DB has
+    private Transaction skippedTransition(Transaction tx, TransactionStatus target) {
+        countTransition(target, false, 1);
+        Transaction current = transactionRepository.findById(tx.getId()).orElse(tx);
+        log.warn("Transaction {} is {} (expected PENDING), not marked {}",
+                tx.getId(), current.getTransactionStatus(), target);
+        return current;
+    }
+
+    private void countTransition(TransactionStatus target, boolean applied, long count) {
+        meterRegistry.counter("transactions.status.transitions",
+                "to", target.name(),
+                "result", applied ? "applied" : "skipped").increment(count);
+    }
+}
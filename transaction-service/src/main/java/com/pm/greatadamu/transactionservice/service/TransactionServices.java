@@ -1,13 +1,12 @@
 package com.pm.greatadamu.transactionservice.service;
 
-import com.pm.greatadamu.grpc.account.UpdateBalanceResponse;
+import com.pm.greatadamu.grpc.account.TransferResponse;
 import com.pm.greatadamu.grpc.account.ValidateAccountResponse;
+import com.pm.greatadamu.transactionservice.dto.TransactionPageDTO;
 import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
 import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
 import com.pm.greatadamu.transactionservice.exception.IdempotencyConflictReturnExisting;
 import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
-import com.pm.greatadamu.transactionservice.kafka.TransactionEvent;
-import com.pm.greatadamu.transactionservice.kafka.TransactionEventProducer;
 import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
 import com.pm.greatadamu.transactionservice.model.Transaction;
 import com.pm.greatadamu.transactionservice.model.TransactionStatus;
@@ -16,21 +15,38 @@ import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionServices {
+    private static final int MAX_INTEGER_DIGITS = 16;
+    private static final int MAX_FRACTION_DIGITS = 2;
+
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
-    private final TransactionEventProducer transactionEventProducer;
     private final AccountGrpcClient accountGrpcClient;
     private final TransactionPersistenceService transactionPersistenceService;
+    private final ThreadPoolTaskExecutor transactionPersistenceExecutor;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionSettlementWorkers transactionSettlementWorkers;
+
+    @Value("${transactions.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${transactions.page.max-size:200}")
+    private int maxPageSize;
 
     //Return Transaction record from dB
     public List<TransactionResponseDTO> getTransactions() {
@@ -46,16 +62,56 @@ public class TransactionServices {
 
 
 
-    @Transactional
+    //Keyset page over all transactions (newest id first), cost doesn't grow with page depth
+    public TransactionPageDTO getTransactionsPage(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        Long beforeId = cursor == null ? Long.MAX_VALUE : TransactionCursor.decode(cursor).id();
+
+        List<TransactionResponseDTO> rows = transactionRepository.findPageBeforeId(beforeId, Limit.of(pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    //Keyset page over one customer's transactions, newest id first, using idx_tx_customer_id
+    public TransactionPageDTO getTransactionsByCustomerIdPage(Long customerId, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        Long beforeId = cursor == null ? Long.MAX_VALUE : TransactionCursor.decode(cursor).id();
+
+        //fetch one extra row to know whether there is a next page
+        List<TransactionResponseDTO> rows = transactionRepository.findPageByCustomerIdBeforeId(
+                customerId, beforeId, Limit.of(pageSize + 1));
+        return toPage(rows, pageSize);
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        return size;
+    }
+
+    private TransactionPageDTO toPage(List<TransactionResponseDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionResponseDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionResponseDTO last = items.get(items.size() - 1);
+            nextCursor = new TransactionCursor(last.getId()).encode();
+        }
+        return new TransactionPageDTO(items, nextCursor, hasMore);
+    }
+
+    //not @Transactional: every write has its own transaction in TransactionPersistenceService, so no pooled
+    //connection is held while IdempotencyGuard waits for a duplicate or the transfer RPC runs
     public TransactionResponseDTO createTransaction(TransactionRequestDTO dto) {
         log.info("Creating transaction: {} from account {} to account {}",
                 dto.getAmount(),
                 dto.getFromAccountId(),
                 dto.getToAccountId());
         //validate amount early
-        if (dto.getAmount() == null || dto.getAmount().signum() <= 0) {
-            throw new IllegalArgumentException("Amount must be greater than zero");
-        }
+        requireValidAmount(dto.getAmount());
 
         // CHANGE: Idempotency (prevents duplicate transfer if request retries)
         // Assumption: dto has an idempotencyKey OR you generate one and pass from controller.
@@ -65,44 +121,12 @@ public class TransactionServices {
             throw new IllegalArgumentException("Idempotency key is required");
         }
 
-        //  if this key already exists, return existing transaction (NO double debit)
-        transactionRepository.findByIdempotencyKey(idemKey)
-                .map(transactionMapper::mapToResponseDTO)
-                .ifPresent(existing -> { throw new IdempotencyConflictReturnExisting (existing); });
-
-        // ========== STEP 1: Validate Source Account ==========
-        ValidateAccountResponse sourceValidation;
-       try{
-         sourceValidation=  accountGrpcClient.validateAccount(dto.getFromAccountId());
-       }catch (StatusRuntimeException e){
-           throw new RuntimeException("Account validation failed (source): " + e.getStatus(), e);
-       }
-
-
-        if (!sourceValidation.getExists()) {
-            throw new RuntimeException("Source account not found");
-        }
-        if (!sourceValidation.getIsActive()) {
-            throw new RuntimeException("Source account is not active");
-        }
-
-        // ========== STEP 2: Validate Destination Account ==========
-        ValidateAccountResponse destValidation;
-        try{
-           destValidation= accountGrpcClient.validateAccount(dto.getToAccountId());
-        }catch (StatusRuntimeException e){
-            throw new RuntimeException("Account validation failed (dest): " + e.getStatus(), e);
-        }
-
-
-        if (!destValidation.getExists()) {
-            throw new RuntimeException("Destination account not found");
-        }
-        if (!destValidation.getIsActive()) {
-            throw new RuntimeException("Destination account is not active");
-        }
+        //recently finished or concurrently running duplicates are answered by the guard (no DB, no gRPC)
+        return idempotencyGuard.execute(idemKey, () -> settleTransaction(dto, idemKey));
+    }
 
-        // ========== STEP 3: Create Transaction with PENDING Status ==========
+    private TransactionResponseDTO settleTransaction(TransactionRequestDTO dto, String idemKey) {
+        // ========== STEP 1: Create Transaction with PENDING Status ==========
         Transaction transaction = transactionMapper.mapToEntity(dto);
         transaction.setTransactionStatus(TransactionStatus.PENDING);
         transaction.setTransactionDate(LocalDateTime.now());
@@ -110,95 +134,254 @@ public class TransactionServices {
         //store idempotency key on the entity (must exist in your Transaction model)
         transaction.setIdempotencyKey(idemKey);
 
-        // Save transaction as PENDING
-        Transaction savedTransaction = transactionPersistenceService.savePending(transaction);
+        // Save transaction as PENDING (if this key already exists, the existing transaction is returned: NO double debit)
+        Transaction savedTransaction = savePendingOrReturnExisting(transaction);
         log.info("Transaction created with ID: {} and status: PENDING", savedTransaction.getId());
 
+        String description = "Transaction #" + savedTransaction.getId();
 
-            // ========== STEP 4: Debit Source Account via gRPC ==========
-            String description = "Transaction #" + savedTransaction.getId();
-        UpdateBalanceResponse debitResponse;
+        // ========== STEP 2: Transfer via gRPC ==========
+        // account-service validates both accounts, debits and credits in ONE DB transaction,
+        // so there is no window where the money sits in neither account (no compensating credit needed)
+        TransferResponse transferResponse;
         try {
-             debitResponse = accountGrpcClient.debitAccount(
+            transferResponse = accountGrpcClient.transfer(
                     dto.getFromAccountId(),
+                    dto.getToAccountId(),
                     dto.getAmount(),
+                    idemKey,
                     description
             );
-
-        }catch (StatusRuntimeException e){
-            // map key gRPC statuses to meaningful messages
-            if (e.getStatus().getCode() == Status.Code.FAILED_PRECONDITION) {
-                throw new RuntimeException("Insufficient funds", e);
+        } catch (StatusRuntimeException e) {
+            if (!isDefinitiveFailure(e)) {
+                // outcome unknown (timeout, unavailable, cancelled): the transfer may have been applied,
+                // so the row stays PENDING and is re-driven with the same idempotency key
+                log.warn("Transaction {} not settled yet: {}", savedTransaction.getId(), e.getStatus());
+                transactionSettlementWorkers.submit(savedTransaction);
+                return transactionMapper.mapToResponseDTO(savedTransaction);
             }
-            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
-                throw new RuntimeException("Source account not found", e);
-            }
-            if (e.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED) {
-                throw new RuntimeException("Debit timed out; try again", e);
-            }
-            throw new RuntimeException("Debit failed: " + e.getStatus(), e);
+
+            // ========== ERROR: Update Transaction to FAILED ==========
+            String reason = describeTransferFailure(e);
+            log.error("Transaction {} failed: {}", savedTransaction.getId(), reason);
+            transactionPersistenceService.markFailed(savedTransaction, reason);
+
+            throw new RuntimeException("Transaction failed: " + reason);
+        } catch (IllegalArgumentException e) {
+            //the request could not be built (amount can't be encoded): it can never succeed
+            String reason = "Invalid transfer: " + e.getMessage();
+            log.error("Transaction {} failed: {}", savedTransaction.getId(), reason);
+            transactionPersistenceService.markFailed(savedTransaction, reason);
+            throw new RuntimeException("Transaction failed: " + reason);
         }
-        // If you updated account-service to use gRPC Status errors,
-        // debitResponse.getSuccess() will always be true on success, otherwise exception thrown.
-        log.info("Source account {} debited. New balance: {}",
-                dto.getFromAccountId(), debitResponse.getNewBalance());
 
-            // ========== STEP 5: Credit Destination Account via gRPC ==========
-        UpdateBalanceResponse creditResponse;
-        try{
-            creditResponse = accountGrpcClient.creditAccount(
-                    dto.getToAccountId(),
-                    dto.getAmount(),
-                    description
-            );
+        log.info("Transferred {} from account {} (new balance {}) to account {} (new balance {})",
+                dto.getAmount(),
+                dto.getFromAccountId(), transferResponse.getFromNewBalance(),
+                dto.getToAccountId(), transferResponse.getToNewBalance());
 
-            if (!creditResponse.getSuccess()) {
-                // ROLLBACK: Credit back to source account
-                log.error("Failed to credit destination account, rolling back...");
-                accountGrpcClient.creditAccount(
-                        dto.getFromAccountId(),
-                        dto.getAmount(),
-                        "Rollback: " + description
-                );
-                throw new RuntimeException("Failed to credit destination account: " + creditResponse.getMessage());
-            }
+        // ========== STEP 3: Update Transaction to COMPLETED (+ outbox event) ==========
+        // the money has moved: from here on nothing may mark this transaction FAILED,
+        // the TransactionEvent is written to the outbox in the same DB transaction and relayed to Kafka later
+        savedTransaction=transactionPersistenceService.markCompleted(savedTransaction);
+
+        log.info("Transaction {} completed successfully", savedTransaction.getId());
+
+        // ========== STEP 4: Return Response ==========
+        return transactionMapper.mapToResponseDTO(savedTransaction);
+    }
 
-            log.info("Destination account {} credited. New balance: {}",
-                    dto.getToAccountId(), creditResponse.getNewBalance());
+    /**
+     * Non-blocking variant of createTransaction.
+     * Duplicates are answered by IdempotencyGuard, both account validations run in parallel, then
+     * savePending -> transfer -> markCompleted (+ outbox event) are chained without holding the request thread.
+     * gRPC calls use the future stub; blocking JPA/Kafka steps run on transactionPersistenceExecutor.
+     */
+    public CompletableFuture<TransactionResponseDTO> createTransactionAsync(TransactionRequestDTO dto) {
+        log.info("Creating transaction (async): {} from account {} to account {}",
+                dto.getAmount(),
+                dto.getFromAccountId(),
+                dto.getToAccountId());
+        //validate amount early
+        requireValidAmount(dto.getAmount());
+        String idemKey = dto.getIdempotencyKey();
+        if (idemKey == null || idemKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key is required");
+        }
 
-            // ========== STEP 6: Update Transaction to COMPLETED ==========
-            savedTransaction.setTransactionStatus(TransactionStatus.COMPLETED);
-            savedTransaction.setTransactionDate(LocalDateTime.now());
-            savedTransaction=transactionPersistenceService.markCompleted(savedTransaction);
+        return idempotencyGuard.executeAsync(idemKey, () -> settleTransactionAsync(dto, idemKey));
+    }
 
-            log.info("Transaction {} completed successfully", savedTransaction.getId());
+    private CompletableFuture<TransactionResponseDTO> settleTransactionAsync(TransactionRequestDTO dto, String idemKey) {
+        // ========== STEP 1: Both validations in parallel ==========
+        CompletableFuture<ValidateAccountResponse> sourceValidation = accountGrpcClient.validateAccountAsync(dto.getFromAccountId());
+        CompletableFuture<ValidateAccountResponse> destValidation = accountGrpcClient.validateAccountAsync(dto.getToAccountId());
+
+        return CompletableFuture.allOf(sourceValidation, destValidation)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof StatusRuntimeException sre) {
+                        throw new RuntimeException("Account validation failed: " + sre.getStatus(), sre);
+                    }
+                    throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                })
+                .thenCompose(ignored -> {
+                    checkValidation(sourceValidation.join(), "Source");
+                    checkValidation(destValidation.join(), "Destination");
+
+                    // ========== STEP 2: Save PENDING (or return the existing transaction for this key) ==========
+                    Transaction transaction = transactionMapper.mapToEntity(dto);
+                    transaction.setIdempotencyKey(idemKey);
+                    return CompletableFuture.supplyAsync(
+                            () -> savePendingOrReturnExisting(transaction), transactionPersistenceExecutor);
+                })
+                .thenCompose(savedTransaction -> {
+                    log.info("Transaction created with ID: {} and status: PENDING", savedTransaction.getId());
+
+                    // ========== STEP 3: Transfer -> COMPLETED -> publish ==========
+                    return accountGrpcClient.transferAsync(
+                                    dto.getFromAccountId(),
+                                    dto.getToAccountId(),
+                                    dto.getAmount(),
+                                    idemKey,
+                                    "Transaction #" + savedTransaction.getId())
+                            .handleAsync((transferResponse, e) -> {
+                                if (e != null) {
+                                    return notSettled(savedTransaction, e);
+                                }
+                                log.info("Transferred {} from account {} (new balance {}) to account {} (new balance {})",
+                                        dto.getAmount(),
+                                        dto.getFromAccountId(), transferResponse.getFromNewBalance(),
+                                        dto.getToAccountId(), transferResponse.getToNewBalance());
+
+                                // COMPLETED + outbox event in one DB transaction
+                                Transaction completed = transactionPersistenceService.markCompleted(savedTransaction);
+                                log.info("Transaction {} completed successfully", completed.getId());
+                                return transactionMapper.mapToResponseDTO(completed);
+                            }, transactionPersistenceExecutor);
+                });
+    }
 
-            // ========== STEP 7: Publish to Kafka ==========
-            TransactionEvent event = new TransactionEvent(
-                    savedTransaction.getId(),
-                    savedTransaction.getCustomerId(),
-                    savedTransaction.getAmount(),
-                    savedTransaction.getTransactionType(),
-                    savedTransaction.getTransactionStatus(),
-                    savedTransaction.getTransactionDate()
-            );
-            transactionEventProducer.sendTransactionEvent(event);
-            log.info("TransactionEvent published for transaction ID: {}", savedTransaction.getId());
+    // runs on transactionPersistenceExecutor when transferAsync failed
+    private TransactionResponseDTO notSettled(Transaction savedTransaction, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        String reason;
+        if (cause instanceof IllegalArgumentException) {
+            //the request could not be built (amount can't be encoded): it can never succeed
+            reason = "Invalid transfer: " + cause.getMessage();
+        } else if (cause instanceof StatusRuntimeException sre && isDefinitiveFailure(sre)) {
+            reason = describeTransferFailure(sre);
+        } else {
+            // outcome unknown: the row stays PENDING and is re-driven with the same idempotency key (-> 202)
+            log.warn("Transaction {} not settled yet: {}", savedTransaction.getId(), cause.toString());
+            transactionSettlementWorkers.submit(savedTransaction);
+            return transactionMapper.mapToResponseDTO(savedTransaction);
+        }
 
-        } catch (Exception e) {
-            // ========== ERROR: Update Transaction to FAILED ==========
-            log.error("Transaction {} failed: {}", savedTransaction.getId(), e.getMessage());
-            savedTransaction.setTransactionStatus(TransactionStatus.FAILED);
-            savedTransaction.setTransactionDate(LocalDateTime.now());
-            transactionPersistenceService.markFailed(savedTransaction,e.getMessage());
+        // ========== ERROR: Update Transaction to FAILED ==========
+        log.error("Transaction {} failed: {}", savedTransaction.getId(), reason);
+        transactionPersistenceService.markFailed(savedTransaction, reason);
+        throw new RuntimeException("Transaction failed: " + reason);
+    }
+
+    /**
+     * 202-Accepted variant: persist PENDING and hand the transfer to TransactionSettlementWorkers.
+     * A retry with a known key returns the existing transaction (whatever its status) instead of failing.
+     */
+    public TransactionResponseDTO submitTransaction(TransactionRequestDTO dto) {
+        log.info("Submitting transaction: {} from account {} to account {}",
+                dto.getAmount(),
+                dto.getFromAccountId(),
+                dto.getToAccountId());
+        //validate amount early
+        requireValidAmount(dto.getAmount());
+        String idemKey = dto.getIdempotencyKey();
+        if (idemKey == null || idemKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key is required");
+        }
 
-            throw new RuntimeException("Transaction failed: " + e.getMessage());
+        Transaction transaction = transactionMapper.mapToEntity(dto);
+        transaction.setIdempotencyKey(idemKey);
+        Transaction savedTransaction;
+        try {
+            savedTransaction = savePendingOrReturnExisting(transaction);
+        } catch (IdempotencyConflictReturnExisting e) {
+            return e.getExisting();
         }
+        log.info("Transaction created with ID: {} and status: PENDING", savedTransaction.getId());
 
-        // ========== STEP 8: Return Response ==========
+        //if the lane is full the row stays PENDING and TransactionSettlementSweeper submits it later
+        transactionSettlementWorkers.submit(savedTransaction);
         return transactionMapper.mapToResponseDTO(savedTransaction);
     }
 
+    // optimistic insert: the unique idempotency_key constraint detects duplicates, so a new key costs no lookup
+    private Transaction savePendingOrReturnExisting(Transaction transaction) {
+        try {
+            return transactionPersistenceService.savePending(transaction);
+        } catch (DataIntegrityViolationException e) {
+            TransactionResponseDTO existing = transactionRepository.findByIdempotencyKey(transaction.getIdempotencyKey())
+                    .map(transactionMapper::mapToResponseDTO)
+                    .orElseThrow(() -> e);
+            log.info("Idempotency key {} already used by transaction {}", transaction.getIdempotencyKey(), existing.getId());
+            throw new IdempotencyConflictReturnExisting(existing);
+        }
+    }
+
+    //checked before anything is persisted: an amount the column or Money can't hold must never reach a PENDING row
+    static void requireValidAmount(BigDecimal amount) {
+        String problem = invalidAmountReason(amount);
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
+    //same limits as @Digits on TransactionRequestDTO.amount (trailing zeros don't count); null if the amount is fine
+    static String invalidAmountReason(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return "Amount must be greater than zero";
+        }
+        BigDecimal stripped = amount.stripTrailingZeros();
+        int fractionDigits = Math.max(stripped.scale(), 0);
+        int integerDigits = stripped.precision() - stripped.scale();
+        if (fractionDigits > MAX_FRACTION_DIGITS || integerDigits > MAX_INTEGER_DIGITS) {
+            return "Amount must have at most " + MAX_INTEGER_DIGITS + " integer and "
+                    + MAX_FRACTION_DIGITS + " fraction digits";
+        }
+        return null;
+    }
+
+    private void checkValidation(ValidateAccountResponse validation, String side) {
+        if (!validation.getExists()) {
+            throw new RuntimeException(side + " account not found");
+        }
+        if (!validation.getIsActive()) {
+            throw new RuntimeException(side + " account is not active");
+        }
+    }
+
+    // account-service refused the transfer: nothing was applied and a retry with the same key can't change that.
+    // Every other status (DEADLINE_EXCEEDED, UNAVAILABLE, CANCELLED, ...) leaves the outcome unknown.
+    static boolean isDefinitiveFailure(StatusRuntimeException e) {
+        return switch (e.getStatus().getCode()) {
+            case FAILED_PRECONDITION, NOT_FOUND, INVALID_ARGUMENT -> true;
+            default -> false;
+        };
+    }
+
+    // map key gRPC statuses from the Transfer RPC to meaningful messages
+    static String describeTransferFailure(StatusRuntimeException e) {
+        Status.Code code = e.getStatus().getCode();
+        String detail = e.getStatus().getDescription();
+        return switch (code) {
+            case FAILED_PRECONDITION -> detail != null ? detail : "Insufficient funds or inactive account";
+            case NOT_FOUND -> detail != null ? detail : "Account not found";
+            case INVALID_ARGUMENT -> "Invalid transfer: " + detail;
+            case DEADLINE_EXCEEDED -> "Transfer timed out; try again";
+            default -> "Transfer failed: " + e.getStatus();
+        };
+    }
+
     //Get a particular Transaction By Transaction id
     public TransactionResponseDTO getTransactionByTransactionId(Long transactionId) {
         //get transaction ID from dB
@@ -0,0 +1,52 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Re-submits transactions that have been PENDING for too long (lane was full, transient gRPC error,
+ * instance restarted with a non-empty queue). Every instance sweeps; Transfer is idempotent by key
+ * and status updates are guarded, so a transaction settled twice is still applied once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionSettlementSweeper {
+    private final TransactionRepository transactionRepository;
+    private final TransactionSettlementWorkers transactionSettlementWorkers;
+
+    //well above the transfer deadlines of /batch and the synchronous path, so in-progress requests are rarely re-driven
+    @Value("${transactions.settlement.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${transactions.settlement.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Scheduled(fixedDelayString = "${transactions.settlement.sweep-interval-ms:30000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000);
+        List<Transaction> stale = transactionRepository.findByTransactionStatusAndTransactionDateBeforeOrderById(
+                TransactionStatus.PENDING, cutoff, Limit.of(sweepBatchSize));
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        int submitted = 0;
+        for (Transaction transaction : stale) {
+            if (transactionSettlementWorkers.submit(transaction)) {
+                submitted++;
+            }
+        }
+        log.info("Sweeper: re-submitted {} of {} stale PENDING transactions", submitted, stale.size());
+    }
+}
@@ -0,0 +1,147 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background settlement for transfers accepted with 202 (POST /api/transactions/submit).
+ * Work is sharded by source account id onto single-threaded lanes: transfers from the same account
+ * settle in submission order, different accounts settle in parallel.
+ * A transfer that can't be queued or whose outcome is unknown stays PENDING and is picked up again
+ * by TransactionSettlementSweeper (Transfer is idempotent by key, so re-driving is safe).
+ */
+@Component
+@Slf4j
+public class TransactionSettlementWorkers {
+    private final AccountGrpcClient accountGrpcClient;
+    private final TransactionPersistenceService transactionPersistenceService;
+
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer[] waitTimers;
+    private final Timer[] settleTimers;
+    private final Counter rejected;
+
+    //ids queued or running, so the sweeper doesn't enqueue the same transaction twice
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    public TransactionSettlementWorkers(AccountGrpcClient accountGrpcClient,
+                                        TransactionPersistenceService transactionPersistenceService,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${transactions.settlement.shards:8}") int shards,
+                                        @Value("${transactions.settlement.queue-capacity:10000}") int queueCapacity) {
+        this.accountGrpcClient = accountGrpcClient;
+        this.transactionPersistenceService = transactionPersistenceService;
+        this.lanes = new ThreadPoolExecutor[shards];
+        this.waitTimers = new Timer[shards];
+        this.settleTimers = new Timer[shards];
+
+        for (int i = 0; i < shards; i++) {
+            String shard = String.valueOf(i);
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    new CustomizableThreadFactory("tx-settle-" + i + "-"));
+            lanes[i] = lane;
+
+            Gauge.builder("transactions.settlement.queue.depth", lane, l -> l.getQueue().size())
+                    .description("Accepted transfers waiting for settlement")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            waitTimers[i] = Timer.builder("transactions.settlement.wait")
+                    .description("Time from enqueue until a worker picks the transfer up")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+            settleTimers[i] = Timer.builder("transactions.settlement.settle")
+                    .description("Transfer RPC + status update")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+        this.rejected = Counter.builder("transactions.settlement.rejected")
+                .description("Transfers left PENDING for the sweeper because their lane was full")
+                .register(meterRegistry);
+    }
+
+    //returns false if the transaction is already queued or its lane is full (the sweeper retries it later)
+    public boolean submit(Transaction transaction) {
+        if (!queued.add(transaction.getId())) {
+            return false;
+        }
+        int shard = Math.floorMod(Long.hashCode(transaction.getFromAccountId()), lanes.length);
+        long enqueuedAt = System.nanoTime();
+        try {
+            lanes[shard].execute(() -> {
+                waitTimers[shard].record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    settleTimers[shard].record(() -> settle(transaction));
+                } finally {
+                    queued.remove(transaction.getId());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(transaction.getId());
+            rejected.increment();
+            log.warn("Settlement lane {} is full, transaction {} stays PENDING", shard, transaction.getId());
+            return false;
+        }
+    }
+
+    private void settle(Transaction transaction) {
+        TransferResponse transferResponse;
+        try {
+            transferResponse = accountGrpcClient.transfer(
+                    transaction.getFromAccountId(),
+                    transaction.getToAccountId(),
+                    transaction.getAmount(),
+                    transaction.getIdempotencyKey(),
+                    "Transaction #" + transaction.getId());
+        } catch (StatusRuntimeException e) {
+            if (!TransactionServices.isDefinitiveFailure(e)) {
+                //outcome unknown (the transfer may have been applied): keep PENDING, the sweeper re-drives it
+                log.warn("Transaction {} not settled yet: {}", transaction.getId(), e.getStatus());
+                return;
+            }
+            String reason = TransactionServices.describeTransferFailure(e);
+            log.error("Transaction {} failed: {}", transaction.getId(), reason);
+            transactionPersistenceService.markFailed(transaction, reason);
+            return;
+        } catch (IllegalArgumentException e) {
+            //the request could not be built (amount can't be encoded): re-driving can't change that
+            log.error("Transaction {} failed: {}", transaction.getId(), e.getMessage());
+            transactionPersistenceService.markFailed(transaction, "Invalid transfer: " + e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            log.error("Transaction {} not settled yet: {}", transaction.getId(), e.getMessage());
+            return;
+        }
+
+        transactionPersistenceService.markCompleted(transaction);
+        log.info("Transaction {} settled (new balances {} / {})", transaction.getId(),
+                transferResponse.getFromNewBalance(), transferResponse.getToNewBalance());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        //queued transfers are still PENDING in the DB, the sweeper picks them up after restart
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+-- transactions and transaction_outbox ids move to pooled sequences (see
+-- account-service/src/main/resources/db/migrate-identity-to-sequence.sql for how and when to run these scripts).
+-- Outbox rows are deleted once relayed, so max(id) may be below ids handed out before; nothing refers to
+-- outbox ids after the delete, so the sequence restarting lower is harmless.
+
+create sequence if not exists transactions_seq start with 1 increment by 50;
+select setval('transactions_seq', coalesce((select max(id) from transactions), 0) + 50, false);
+
+create sequence if not exists transaction_outbox_seq start with 1 increment by 50;
+select setval('transaction_outbox_seq', coalesce((select max(id) from transaction_outbox), 0) + 50, false);
@@ -0,0 +1,70 @@
+package com.pm.greatadamu.transactionservice;
+
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.kafka.TransactionEventProducer;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionType;
+import com.pm.greatadamu.transactionservice.repository.TransactionOutboxRepository;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Base for tests that need the real Postgres semantics (txid snapshots, advisory locks, native queries).
+ * One container for the whole run, so cached application contexts keep a valid connection;
+ * skipped where Docker isn't available. account-service and Kafka are mocks, no listener is started
+ * and the scheduled relay/sweeper only run their first (empty) pass, tests call them directly.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.listener.auto-startup=false",
+        "transactions.outbox.poll-interval-ms=3600000",
+        "transactions.settlement.sweep-interval-ms=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @MockitoBean
+    protected AccountGrpcClient accountGrpcClient;
+
+    @MockitoBean
+    protected TransactionEventProducer transactionEventProducer;
+
+    @Autowired
+    protected TransactionRepository transactionRepository;
+
+    @Autowired
+    protected TransactionOutboxRepository transactionOutboxRepository;
+
+    @BeforeEach
+    void cleanTables() {
+        transactionOutboxRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+    }
+
+    //unsaved transfer of the given customer, with a fresh idempotency key
+    protected static Transaction transfer(Long customerId, String amount) {
+        return Transaction.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .customerId(customerId)
+                .amount(new BigDecimal(amount))
+                .fromAccountId(1L)
+                .toAccountId(2L)
+                .transactionType(TransactionType.TRANSFER)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.pm.greatadamu.transactionservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncConfigTests {
+
+    private final List<CallableProcessingInterceptor> interceptors = interceptorsOf(new AsyncConfig(300_000));
+
+    @Test
+    void exportRequest_getsTheExportTimeout() throws Exception {
+        AsyncWebRequest request = mock(AsyncWebRequest.class);
+        when(request.getAttribute(AsyncConfig.EXPORT_REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))
+                .thenReturn(Boolean.TRUE);
+
+        beforeConcurrentHandling(request);
+
+        verify(request).setTimeout(300_000L);
+    }
+
+    @Test
+    void otherAsyncRequests_keepTheDefaultTimeout() throws Exception {
+        AsyncWebRequest request = mock(AsyncWebRequest.class);
+
+        beforeConcurrentHandling(request);
+
+        verify(request, never()).setTimeout(anyLong());
+    }
+
+    private void beforeConcurrentHandling(AsyncWebRequest request) throws Exception {
+        Callable<Object> task = () -> null;
+        assertThat(interceptors).isNotEmpty();
+        for (CallableProcessingInterceptor interceptor : interceptors) {
+            interceptor.beforeConcurrentHandling(request, task);
+        }
+    }
+
+    private static List<CallableProcessingInterceptor> interceptorsOf(AsyncConfig asyncConfig) {
+        CapturingConfigurer configurer = new CapturingConfigurer();
+        asyncConfig.configureAsyncSupport(configurer);
+        return configurer.interceptors();
+    }
+
+    //getCallableInterceptors is protected, only the MVC configuration reads it
+    private static class CapturingConfigurer extends AsyncSupportConfigurer {
+        List<CallableProcessingInterceptor> interceptors() {
+            return getCallableInterceptors();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pm.greatadamu.transactionservice.controller;
+
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.service.TransactionBatchService;
+import com.pm.greatadamu.transactionservice.service.TransactionExportService;
+import com.pm.greatadamu.transactionservice.service.TransactionServices;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(TransactionController.class)
+class TransactionControllerTests {
+
+    private static final String REQUEST = """
+            {"customerId": 10, "idempotencyKey": "key-1", "amount": 40.00,
+             "fromAccountId": 1, "toAccountId": 2, "transactionType": "TRANSFER"}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TransactionServices transactionServices;
+    @MockitoBean
+    private TransactionBatchService transactionBatchService;
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
+    @Test
+    void submit_answers202WithTheLocationToPoll() throws Exception {
+        when(transactionServices.submitTransaction(any())).thenReturn(response(42L, TransactionStatus.PENDING));
+
+        mockMvc.perform(post("/api/transactions/submit").contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/transactions/42"))
+                .andExpect(jsonPath("$.transactionStatus").value("PENDING"));
+
+        verify(transactionServices, never()).createTransaction(any());
+    }
+
+    @Test
+    void create_answers201OnceSettledAnd202WhileTheOutcomeIsUnknown() throws Exception {
+        when(transactionServices.createTransaction(any()))
+                .thenReturn(response(1L, TransactionStatus.COMPLETED))
+                .thenReturn(response(2L, TransactionStatus.PENDING));
+
+        mockMvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/transactions/2"));
+
+        verify(transactionServices, never()).submitTransaction(any());
+    }
+
+    private static TransactionResponseDTO response(Long id, TransactionStatus status) {
+        TransactionResponseDTO response = new TransactionResponseDTO();
+        response.setId(id);
+        response.setTransactionStatus(status);
+        return response;
+    }
+}
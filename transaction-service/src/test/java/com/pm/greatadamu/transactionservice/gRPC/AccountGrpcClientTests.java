@@ -0,0 +1,272 @@
+package com.pm.greatadamu.transactionservice.gRPC;
+
+import com.pm.greatadamu.grpc.account.AccountServiceGrpc;
+import com.pm.greatadamu.grpc.account.AccountValidation;
+import com.pm.greatadamu.grpc.account.GetBalanceRequest;
+import com.pm.greatadamu.grpc.account.GetBalanceResponse;
+import com.pm.greatadamu.grpc.account.TransferRequest;
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.grpc.account.ValidateAccountRequest;
+import com.pm.greatadamu.grpc.account.ValidateAccountResponse;
+import com.pm.greatadamu.grpc.account.ValidateAccountsRequest;
+import com.pm.greatadamu.grpc.account.ValidateAccountsResponse;
+import com.pm.greatadamu.transactionservice.kafka.AccountEvent;
+import com.pm.greatadamu.transactionservice.kafka.AccountEventListener;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the real client (channel pool, service config, static:// resolver) against a fake account-service.
+ */
+class AccountGrpcClientTests {
+
+    private final FakeAccountService fakeAccountService = new FakeAccountService();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountValidationCache accountValidationCache = new AccountValidationCache(meterRegistry, 100, 60);
+
+    private final List<Server> servers = new ArrayList<>();
+    private final List<AccountGrpcClient> clients = new ArrayList<>();
+    private AccountGrpcClient accountGrpcClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        accountGrpcClient = connect("localhost:" + startReplica(fakeAccountService).getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        clients.forEach(AccountGrpcClient::shutdown);
+        for (Server server : servers) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void validateAccount_isServedFromTheCacheAfterTheFirstCall() {
+        ValidateAccountResponse first = accountGrpcClient.validateAccount(1L);
+        ValidateAccountResponse second = accountGrpcClient.validateAccount(1L);
+
+        assertThat(first.getIsActive()).isTrue();
+        assertThat(second).isEqualTo(first);
+        assertThat(fakeAccountService.validated).containsExactly(1L);
+    }
+
+    @Test
+    void accountEvent_evictsTheCachedValidation() {
+        accountGrpcClient.validateAccount(1L);
+        accountGrpcClient.validateAccount(2L);
+
+        new AccountEventListener(accountValidationCache).handleAccountEvent(new AccountEvent(1L, 10L, null, null));
+        accountGrpcClient.validateAccount(1L);
+        accountGrpcClient.validateAccount(2L);
+
+        assertThat(fakeAccountService.validated).containsExactly(1L, 2L, 1L);
+        assertThat(meterRegistry.get("account.validation.cache.invalidations").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void validateAccounts_onlySendsTheCacheMisses() {
+        accountGrpcClient.validateAccount(1L);
+
+        Map<Long, ValidateAccountResponse> results = accountGrpcClient.validateAccounts(List.of(1L, 2L, 3L));
+
+        assertThat(results).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(fakeAccountService.validated).containsExactly(1L, 2L, 3L);
+
+        accountGrpcClient.validateAccounts(List.of(1L, 2L, 3L));
+        assertThat(fakeAccountService.validated).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void validateAccountAsync_fillsTheCache() throws Exception {
+        ValidateAccountResponse response = accountGrpcClient.validateAccountAsync(5L).get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getExists()).isTrue();
+        assertThat(accountGrpcClient.validateAccountAsync(5L)).isCompletedWithValue(response);
+        assertThat(fakeAccountService.validated).containsExactly(5L);
+    }
+
+    @Test
+    void calls_areSpreadOverAllReplicas() throws IOException {
+        FakeAccountService secondReplica = new FakeAccountService();
+        AccountGrpcClient pooled = connect("localhost:" + servers.get(0).getPort()
+                + ",localhost:" + startReplica(secondReplica).getPort());
+
+        for (int i = 0; i < 20; i++) {
+            pooled.getBalance(1L);
+        }
+
+        assertThat(fakeAccountService.balanceReads.get()).isPositive();
+        assertThat(secondReplica.balanceReads.get()).isPositive();
+        assertThat(fakeAccountService.balanceReads.get() + secondReplica.balanceReads.get()).isEqualTo(20);
+    }
+
+    @Test
+    void validateAccount_isRetriedWhenAReplicaIsUnavailable() {
+        fakeAccountService.unavailable.set(2);
+
+        assertThat(accountGrpcClient.validateAccount(1L).getIsActive()).isTrue();
+        assertThat(fakeAccountService.attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void transfer_isNeverRetriedByTheChannel() {
+        fakeAccountService.unavailable.set(1);
+
+        assertThatThrownBy(() -> accountGrpcClient.transfer(1L, 2L, new BigDecimal("5.00"), "key-1", "test"))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE));
+        assertThat(fakeAccountService.attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void getBalance_isHedgedAwayFromASlowReplica() throws IOException {
+        AccountGrpcClient pooled = connect("localhost:" + servers.get(0).getPort()
+                + ",localhost:" + startReplica(new FakeAccountService()).getPort());
+        //round_robin only picks connected replicas: connect every channel to both first
+        for (int i = 0; i < 8; i++) {
+            pooled.getBalance(1L);
+        }
+        fakeAccountService.balanceReads.set(0);
+        fakeAccountService.balanceDelayMs = 1500;
+
+        for (int i = 0; i < 4; i++) {
+            long start = System.nanoTime();
+            assertThat(pooled.getBalance(1L).getBalance()).isEqualTo("10.00");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        }
+        //the slow replica was asked too: those calls were answered by the hedged attempt
+        assertThat(fakeAccountService.balanceReads.get()).isPositive();
+    }
+
+    @Test
+    void everyCall_isTimedByMethodAndStatus() {
+        accountGrpcClient.getBalance(1L);
+        fakeAccountService.unavailable.set(1);
+        assertThatThrownBy(() -> accountGrpcClient.transfer(1L, 2L, BigDecimal.ONE, "key-1", "test"));
+
+        assertThat(meterRegistry.get("grpc.client.account.calls").tags("method", "GetBalance", "status", "OK")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("grpc.client.account.calls").tags("method", "Transfer", "status", "UNAVAILABLE")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void transferRequest_carriesMoneyAndTheLegacyStringOnlyWhileEnabled() {
+        TransferRequest withLegacy = accountGrpcClient.buildTransferRequest(1L, 2L, new BigDecimal("40.00"), "key-1", null);
+        ReflectionTestUtils.setField(accountGrpcClient, "sendLegacyAmount", false);
+        TransferRequest moneyOnly = accountGrpcClient.buildTransferRequest(1L, 2L, new BigDecimal("40.00"), "key-1", null);
+
+        assertThat(withLegacy.getAmount()).isEqualTo("40.00");
+        assertThat(MoneyCodec.fromMoney(withLegacy.getAmountMoney())).isEqualTo(new BigDecimal("40.00"));
+        assertThat(moneyOnly.getAmount()).isEmpty();
+        assertThat(moneyOnly.hasAmountMoney()).isTrue();
+    }
+
+    private Server startReplica(FakeAccountService service) throws IOException {
+        Server server = ServerBuilder.forPort(0).addService(service).build().start();
+        servers.add(server);
+        return server;
+    }
+
+    private AccountGrpcClient connect(String addresses) {
+        AccountGrpcClient client = new AccountGrpcClient(accountValidationCache, meterRegistry);
+        ReflectionTestUtils.setField(client, "accountServiceHost", "localhost");
+        ReflectionTestUtils.setField(client, "accountServicePort", 9090);
+        ReflectionTestUtils.setField(client, "accountServiceAddresses", addresses);
+        ReflectionTestUtils.setField(client, "deadlineMs", 2000L);
+        ReflectionTestUtils.setField(client, "batchDeadlineMs", 5000L);
+        ReflectionTestUtils.setField(client, "channelPoolSize", 2);
+        ReflectionTestUtils.setField(client, "keepAliveTimeSeconds", 30L);
+        ReflectionTestUtils.setField(client, "keepAliveTimeoutSeconds", 10L);
+        ReflectionTestUtils.setField(client, "retryMaxAttempts", 3);
+        ReflectionTestUtils.setField(client, "hedgingDelayMs", 50L);
+        ReflectionTestUtils.setField(client, "sendLegacyAmount", true);
+        client.init();
+        clients.add(client);
+        return client;
+    }
+
+    static class FakeAccountService extends AccountServiceGrpc.AccountServiceImplBase {
+        //every account id that reached the server, in order
+        final List<Long> validated = new CopyOnWriteArrayList<>();
+        //calls still to be answered with UNAVAILABLE, and ValidateAccount/Transfer calls received
+        final AtomicInteger unavailable = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicInteger balanceReads = new AtomicInteger();
+        volatile long balanceDelayMs;
+
+        @Override
+        public void validateAccount(ValidateAccountRequest request, StreamObserver<ValidateAccountResponse> observer) {
+            attempts.incrementAndGet();
+            if (unavailable.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                observer.onError(Status.UNAVAILABLE.asRuntimeException());
+                return;
+            }
+            validated.add(request.getAccountId());
+            observer.onNext(active());
+            observer.onCompleted();
+        }
+
+        @Override
+        public void validateAccounts(ValidateAccountsRequest request, StreamObserver<ValidateAccountsResponse> observer) {
+            ValidateAccountsResponse.Builder response = ValidateAccountsResponse.newBuilder();
+            for (Long accountId : request.getAccountIdsList()) {
+                validated.add(accountId);
+                response.addResults(AccountValidation.newBuilder().setAccountId(accountId).setValidation(active()));
+            }
+            observer.onNext(response.build());
+            observer.onCompleted();
+        }
+
+        @Override
+        public void getBalance(GetBalanceRequest request, StreamObserver<GetBalanceResponse> observer) {
+            balanceReads.incrementAndGet();
+            if (balanceDelayMs > 0) {
+                try {
+                    Thread.sleep(balanceDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            observer.onNext(GetBalanceResponse.newBuilder().setBalance("10.00").setCurrency("USD").build());
+            observer.onCompleted();
+        }
+
+        @Override
+        public void transfer(TransferRequest request, StreamObserver<TransferResponse> observer) {
+            attempts.incrementAndGet();
+            if (unavailable.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                observer.onError(Status.UNAVAILABLE.asRuntimeException());
+                return;
+            }
+            observer.onNext(TransferResponse.newBuilder().setSuccess(true).build());
+            observer.onCompleted();
+        }
+
+        private static ValidateAccountResponse active() {
+            return ValidateAccountResponse.newBuilder().setExists(true).setIsActive(true).build();
+        }
+    }
+}
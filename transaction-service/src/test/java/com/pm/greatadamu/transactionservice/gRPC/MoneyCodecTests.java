@@ -0,0 +1,50 @@
+package com.pm.greatadamu.transactionservice.gRPC;
+
+import com.pm.greatadamu.grpc.account.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyCodecTests {
+
+    @Test
+    void amounts_roundTripExactly() {
+        for (String amount : new String[]{"0.01", "40.00", "1200.5", "0", "92233720368547758.07", "-15.25"}) {
+            BigDecimal value = new BigDecimal(amount);
+
+            BigDecimal decoded = MoneyCodec.fromMoney(MoneyCodec.toMoney(value));
+
+            assertThat(decoded).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void toMoney_keepsTheScaleAndTheCurrency() {
+        Money money = MoneyCodec.toMoney(new BigDecimal("40.00"));
+
+        assertThat(money.getUnitsMinor()).isEqualTo(4000L);
+        assertThat(money.getScale()).isEqualTo(2);
+        assertThat(money.getCurrency()).isEqualTo(MoneyCodec.DEFAULT_CURRENCY);
+    }
+
+    @Test
+    void negativeScale_isWidenedToWholeUnits() {
+        Money money = MoneyCodec.toMoney(new BigDecimal("1E+3"));
+
+        assertThat(money.getUnitsMinor()).isEqualTo(1000L);
+        assertThat(money.getScale()).isZero();
+    }
+
+    @Test
+    void amountsBeyondALong_areRejected() {
+        for (String amount : new String[]{"92233720368547758.08", "12345678901234567890", "1.0000000000000000001"}) {
+            assertThatThrownBy(() -> MoneyCodec.toMoney(new BigDecimal(amount)))
+                    .as(amount)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("does not fit");
+        }
+    }
+}
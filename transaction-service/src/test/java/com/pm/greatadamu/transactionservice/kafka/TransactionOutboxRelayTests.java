@@ -0,0 +1,158 @@
+package com.pm.greatadamu.transactionservice.kafka;
+
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionOutbox;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.service.TransactionPersistenceService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionOutboxRelayTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionOutboxRelay transactionOutboxRelay;
+    @Autowired
+    private TransactionPersistenceService transactionPersistenceService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void markCompleted_writesTheEventToTheOutboxInTheSameTransaction() {
+        Transaction tx = transactionPersistenceService.savePending(transfer(7L, "12.50"));
+
+        transactionPersistenceService.markCompleted(tx);
+
+        assertThat(transactionRepository.findById(tx.getId()).orElseThrow().getTransactionStatus())
+                .isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(transactionOutboxRepository.findAll())
+                .singleElement()
+                .satisfies(row -> {
+                    assertThat(row.getTransactionId()).isEqualTo(tx.getId());
+                    assertThat(row.getTxId()).isNotNull();
+                    assertThat(row.getClaimedUntil()).isNull();
+                });
+    }
+
+    @Test
+    void relay_sendsEventsInCommitOrderAndDeletesThem() {
+        when(transactionEventProducer.sendTransactionEvents(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        List<Long> completed = completeTransfers(1L, 2L, 1L, 3L);
+
+        transactionOutboxRelay.relay();
+
+        assertThat(sentTransactionIds()).containsExactlyElementsOf(completed);
+        assertThat(transactionOutboxRepository.count()).isZero();
+    }
+
+    @Test
+    void failedSend_releasesTheRowsAndTheNextPollSendsThemAgainInOrder() {
+        when(transactionEventProducer.sendTransactionEvents(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        List<Long> completed = completeTransfers(1L, 2L, 3L);
+
+        transactionOutboxRelay.relay();
+
+        assertThat(transactionOutboxRepository.findAll())
+                .hasSize(3)
+                .allSatisfy(row -> assertThat(row.getClaimedUntil()).isNull());
+
+        clearInvocations(transactionEventProducer);
+        transactionOutboxRelay.relay();
+
+        assertThat(sentTransactionIds()).containsExactlyElementsOf(completed);
+        assertThat(transactionOutboxRepository.count()).isZero();
+    }
+
+    @Test
+    void rowsCommittedAfterARunningTransactionWaitUntilItEnds() throws Exception {
+        when(transactionEventProducer.sendTransactionEvents(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Transaction slow = transactionPersistenceService.savePending(transfer(1L, "5.00"));
+        slow.setTransactionStatus(TransactionStatus.COMPLETED);
+
+        //the slow transaction writes its outbox row first but commits last
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slowCommit = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                transactionOutboxRepository.saveAndFlush(mapToOutbox(slow));
+                written.countDown();
+                await(commit);
+            }));
+            assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+            List<Long> fast = completeTransfers(2L);
+
+            transactionOutboxRelay.relay();
+            verify(transactionEventProducer, never()).sendTransactionEvents(anyList());
+
+            commit.countDown();
+            slowCommit.get(10, TimeUnit.SECONDS);
+            transactionOutboxRelay.relay();
+
+            assertThat(sentTransactionIds()).containsExactly(slow.getId(), fast.get(0));
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    //one PENDING -> COMPLETED transaction per customer id, each settled in its own DB transaction
+    private List<Long> completeTransfers(Long... customerIds) {
+        List<Long> ids = new ArrayList<>();
+        for (Long customerId : customerIds) {
+            Transaction tx = transactionPersistenceService.savePending(transfer(customerId, "10.00"));
+            transactionPersistenceService.markCompleted(tx);
+            ids.add(tx.getId());
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> sentTransactionIds() {
+        ArgumentCaptor<List<TransactionEvent>> batches = ArgumentCaptor.forClass(List.class);
+        verify(transactionEventProducer, times(1)).sendTransactionEvents(batches.capture());
+        return batches.getValue().stream().map(TransactionEvent::getTransactionId).toList();
+    }
+
+    private static TransactionOutbox mapToOutbox(Transaction tx) {
+        return TransactionOutbox.builder()
+                .transactionId(tx.getId())
+                .customerId(tx.getCustomerId())
+                .amount(tx.getAmount())
+                .transactionType(tx.getTransactionType())
+                .transactionStatus(tx.getTransactionStatus())
+                .transactionDate(tx.getTransactionDate())
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
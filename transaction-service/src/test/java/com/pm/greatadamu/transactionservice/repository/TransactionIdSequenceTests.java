@@ -0,0 +1,62 @@
+package com.pm.greatadamu.transactionservice.repository;
+
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.service.TransactionPersistenceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionIdSequenceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionPersistenceService transactionPersistenceService;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchOfInserts_takesItsIdsFromAFewSequenceCalls() {
+        long before = lastValue("transactions_seq");
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            batch.add(transfer(7L, "1.00"));
+        }
+
+        List<Transaction> saved = transactionPersistenceService.savePendingBatch(batch);
+
+        assertThat(saved).extracting(Transaction::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(transactionRepository.count()).isEqualTo(120);
+        //one nextval per 50 ids (plus the one that may have been left over in the optimizer)
+        assertThat((lastValue("transactions_seq") - before) / 50).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void migrationScript_movesTheSequencePastRowsInsertedWithIdentityIds() {
+        //a row written by the IDENTITY-era application, above anything the sequence has handed out
+        long legacyId = lastValue("transactions_seq") + 10_000;
+        jdbcTemplate.update("""
+                insert into transactions (id, idempotency_key, customer_id, amount, transaction_status, transaction_type)
+                values (?, 'legacy', 7, 1.00, 'COMPLETED', 'TRANSFER')
+                """, legacyId);
+
+        new ResourceDatabasePopulator(new ClassPathResource("db/migrate-identity-to-sequence.sql")).execute(dataSource);
+
+        //Hibernate's pooled optimizer hands out (nextval - 49 .. nextval]
+        Long next = jdbcTemplate.queryForObject("select nextval('transactions_seq')", Long.class);
+        assertThat(next - 49).isEqualTo(legacyId + 1);
+    }
+
+    private long lastValue(String sequence) {
+        return jdbcTemplate.queryForObject("select last_value from " + sequence, Long.class);
+    }
+}
@@ -0,0 +1,190 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.exception.IdempotencyConflictReturnExisting;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyGuardTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyGuard guard = new IdempotencyGuard(meterRegistry, 1000, 600, 300);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger actions = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void finishedKey_isAnsweredFromTheCache() {
+        TransactionResponseDTO completed = response(1L, TransactionStatus.COMPLETED);
+        guard.execute("key-1", () -> run(completed));
+
+        assertThatThrownBy(() -> guard.execute("key-1", () -> run(completed)))
+                .isInstanceOfSatisfying(IdempotencyConflictReturnExisting.class,
+                        e -> assertThat(e.getExisting()).isSameAs(completed));
+        assertThat(actions).hasValue(1);
+        assertThat(outcome("cache_hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void pendingResult_isNotCached() {
+        guard.execute("key-1", () -> run(response(1L, TransactionStatus.PENDING)));
+        guard.execute("key-1", () -> run(response(1L, TransactionStatus.COMPLETED)));
+
+        assertThat(actions).hasValue(2);
+    }
+
+    @Test
+    void failure_isPassedToTheDuplicateAndNotCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> first = executor.submit(() -> guard.execute("key-1", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("transfer refused");
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<TransactionResponseDTO> duplicate = CompletableFuture.supplyAsync(
+                () -> guard.execute("key-1", () -> run(response(2L, TransactionStatus.COMPLETED))));
+        awaitCoalesced();
+        release.countDown();
+
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("transfer refused");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(actions).hasValue(0);
+
+        guard.execute("key-1", () -> run(response(2L, TransactionStatus.COMPLETED)));
+        assertThat(actions).hasValue(1);
+    }
+
+    @Test
+    void concurrentDuplicate_waitsForTheFirstResult() throws Exception {
+        TransactionResponseDTO completed = response(1L, TransactionStatus.COMPLETED);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<TransactionResponseDTO> first = executor.submit(() -> guard.execute("key-1", () -> {
+            started.countDown();
+            await(release);
+            return run(completed);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<TransactionResponseDTO> duplicate = CompletableFuture.supplyAsync(
+                () -> guard.execute("key-1", () -> run(response(2L, TransactionStatus.COMPLETED))));
+        awaitCoalesced();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(completed);
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IdempotencyConflictReturnExisting.class);
+        assertThat(actions).hasValue(1);
+    }
+
+    @Test
+    void asyncDuplicate_completesWithTheFirstResult() {
+        TransactionResponseDTO completed = response(1L, TransactionStatus.COMPLETED);
+        CompletableFuture<TransactionResponseDTO> transfer = new CompletableFuture<>();
+        CompletableFuture<TransactionResponseDTO> first = guard.executeAsync("key-1", () -> transfer);
+
+        CompletableFuture<TransactionResponseDTO> duplicate = guard.executeAsync("key-1",
+                () -> CompletableFuture.completedFuture(run(response(2L, TransactionStatus.COMPLETED))));
+        transfer.complete(completed);
+
+        assertThat(first).isCompletedWithValue(completed);
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .cause()
+                .isInstanceOfSatisfying(IdempotencyConflictReturnExisting.class,
+                        e -> assertThat(e.getExisting()).isSameAs(completed));
+        assertThat(actions).hasValue(0);
+    }
+
+    @Test
+    void asyncDuplicate_givesUpAfterTheWaitTimeoutWithoutFailingTheFirst() throws Exception {
+        CompletableFuture<TransactionResponseDTO> transfer = new CompletableFuture<>();
+        CompletableFuture<TransactionResponseDTO> first = guard.executeAsync("key-1", () -> transfer);
+
+        CompletableFuture<TransactionResponseDTO> duplicate = guard.executeAsync("key-1",
+                () -> CompletableFuture.completedFuture(run(response(2L, TransactionStatus.COMPLETED))));
+
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .cause()
+                .hasMessageContaining("still being processed");
+        assertThat(first).isNotDone();
+
+        TransactionResponseDTO completed = response(1L, TransactionStatus.COMPLETED);
+        transfer.complete(completed);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(completed);
+    }
+
+    @Test
+    void syncDuplicate_givesUpAfterTheWaitTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> guard.execute("key-1", () -> {
+            started.countDown();
+            await(release);
+            return run(response(1L, TransactionStatus.COMPLETED));
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        try {
+            assertThatThrownBy(() -> guard.execute("key-1", () -> run(response(2L, TransactionStatus.COMPLETED))))
+                    .hasMessageContaining("still being processed");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private TransactionResponseDTO run(TransactionResponseDTO response) {
+        actions.incrementAndGet();
+        return response;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("transactions.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    //the duplicate has registered itself as waiting on the first request
+    private void awaitCoalesced() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (outcome("coalesced") < 1.0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(outcome("coalesced")).isEqualTo(1.0);
+    }
+
+    private static TransactionResponseDTO response(Long id, TransactionStatus status) {
+        TransactionResponseDTO response = new TransactionResponseDTO();
+        response.setId(id);
+        response.setTransactionStatus(status);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferBatchItemResult;
+import com.pm.greatadamu.grpc.account.TransferBatchResponse;
+import com.pm.greatadamu.grpc.account.TransferOutcome;
+import com.pm.greatadamu.transactionservice.dto.BatchItemOutcome;
+import com.pm.greatadamu.transactionservice.dto.BatchTransactionResultDTO;
+import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.pm.greatadamu.transactionservice.service.TransactionServicesTests.request;
+import static com.pm.greatadamu.transactionservice.service.TransactionServicesTests.withId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchServiceTests {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountGrpcClient accountGrpcClient;
+    @Mock
+    private TransactionPersistenceService transactionPersistenceService;
+    @Mock
+    private TransactionSettlementWorkers transactionSettlementWorkers;
+
+    private final TransactionMapper transactionMapper = new TransactionMapper();
+    private final AtomicLong ids = new AtomicLong(100);
+    private TransactionBatchService transactionBatchService;
+
+    @BeforeEach
+    void setUp() {
+        transactionBatchService = new TransactionBatchService(transactionRepository, transactionMapper,
+                accountGrpcClient, transactionPersistenceService, transactionSettlementWorkers);
+        ReflectionTestUtils.setField(transactionBatchService, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(transactionBatchService, "chunkSize", 500);
+    }
+
+    @Test
+    void everyItemGetsItsOwnOutcome() {
+        TransactionRequestDTO invalid = request("bad");
+        invalid.setAmount(BigDecimal.ZERO);
+        Transaction existing = withId(transactionMapper.mapToEntity(request("known")), 1L);
+        existing.setIdempotencyKey("known");
+        when(transactionRepository.findByIdempotencyKeyIn(any())).thenReturn(List.of(existing));
+        savePendingAssignsIds();
+        when(accountGrpcClient.transferBatch(anyList())).thenReturn(response(
+                item(TransferOutcome.APPLIED, ""),
+                item(TransferOutcome.INSUFFICIENT_FUNDS, "Insufficient funds"),
+                TransferBatchItemResult.newBuilder().setOutcomeValue(42).build()));
+
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(
+                List.of(invalid, request("known"), request("a"), request("b"), request("c"), request("a")));
+
+        assertThat(results).extracting(BatchTransactionResultDTO::getOutcome).containsExactly(
+                BatchItemOutcome.REJECTED, BatchItemOutcome.DUPLICATE, BatchItemOutcome.COMPLETED,
+                BatchItemOutcome.FAILED, BatchItemOutcome.PENDING, BatchItemOutcome.REJECTED);
+        assertThat(results.get(1).getTransaction().getId()).isEqualTo(1L);
+        assertThat(results.get(3).getError()).isEqualTo("Insufficient funds");
+        assertThat(results.get(5).getError()).isEqualTo("Duplicate idempotency key in batch");
+
+        //only decided rows are settled, the unknown one is re-driven
+        ArgumentCaptor<List<Transaction>> settled = settledCaptor();
+        verify(transactionPersistenceService).saveSettledBatch(settled.capture());
+        assertThat(settled.getValue()).extracting(Transaction::getIdempotencyKey).containsExactly("a", "b");
+        verify(transactionSettlementWorkers).submit(any());
+    }
+
+    @Test
+    void itemSettledMeanwhileByTheRedrive_isReportedAsTheDatabaseHasIt() {
+        savePendingAssignsIds();
+        when(accountGrpcClient.transferBatch(anyList())).thenReturn(response(
+                item(TransferOutcome.INSUFFICIENT_FUNDS, "Insufficient funds")));
+        //the row was completed by an earlier re-drive, saveSettledBatch reloads it
+        when(transactionPersistenceService.saveSettledBatch(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(tx -> tx.setTransactionStatus(TransactionStatus.COMPLETED));
+            return transactions;
+        });
+
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(List.of(request("a")));
+
+        assertThat(results.get(0).getOutcome()).isEqualTo(BatchItemOutcome.COMPLETED);
+        assertThat(results.get(0).getError()).isNull();
+    }
+
+    @Test
+    void failedCallLeavesTheChunkPendingInsteadOfFailingIt() {
+        savePendingAssignsIds();
+        when(accountGrpcClient.transferBatch(anyList())).thenThrow(Status.DEADLINE_EXCEEDED.asRuntimeException());
+
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(
+                List.of(request("a"), request("b")));
+
+        assertThat(results).extracting(BatchTransactionResultDTO::getOutcome)
+                .containsOnly(BatchItemOutcome.PENDING);
+        verify(transactionPersistenceService, never()).saveSettledBatch(any());
+        verify(transactionSettlementWorkers, times(2)).submit(any());
+    }
+
+    @Test
+    void keysInsertedConcurrentlyBecomeDuplicatesAndTheRestIsRetried() {
+        Transaction raced = withId(transactionMapper.mapToEntity(request("b")), 1L);
+        raced.setIdempotencyKey("b");
+        when(transactionRepository.findByIdempotencyKeyIn(any())).thenReturn(List.of(), List.of(raced));
+        when(transactionPersistenceService.savePendingBatch(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(inv -> assignIds(inv.getArgument(0)));
+        when(accountGrpcClient.transferBatch(anyList())).thenReturn(response(item(TransferOutcome.APPLIED, "")));
+
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(
+                List.of(request("a"), request("b")));
+
+        assertThat(results).extracting(BatchTransactionResultDTO::getOutcome)
+                .containsExactly(BatchItemOutcome.COMPLETED, BatchItemOutcome.DUPLICATE);
+    }
+
+    @Test
+    void otherConstraintViolationsAreNotSwallowed() {
+        when(transactionRepository.findByIdempotencyKeyIn(any())).thenReturn(List.of());
+        when(transactionPersistenceService.savePendingBatch(anyList()))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+
+        assertThatThrownBy(() -> transactionBatchService.createTransactions(List.of(request("a"))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(accountGrpcClient, never()).transferBatch(anyList());
+    }
+
+    @Test
+    void largeBatchesAreSentInChunks() {
+        ReflectionTestUtils.setField(transactionBatchService, "chunkSize", 2);
+        savePendingAssignsIds();
+        when(accountGrpcClient.transferBatch(anyList())).thenAnswer(inv -> {
+            List<?> chunk = inv.getArgument(0);
+            return chunk.size() == 2
+                    ? response(item(TransferOutcome.APPLIED, ""), item(TransferOutcome.ALREADY_APPLIED, ""))
+                    : response(item(TransferOutcome.APPLIED, ""));
+        });
+
+        List<BatchTransactionResultDTO> results = transactionBatchService.createTransactions(
+                List.of(request("a"), request("b"), request("c")));
+
+        verify(accountGrpcClient, times(2)).transferBatch(anyList());
+        assertThat(results).extracting(BatchTransactionResultDTO::getOutcome).containsOnly(BatchItemOutcome.COMPLETED);
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        List<TransactionRequestDTO> dtos = IntStream.range(0, 11)
+                .mapToObj(i -> request("k" + i))
+                .toList();
+
+        assertThatThrownBy(() -> transactionBatchService.createTransactions(dtos))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void savePendingAssignsIds() {
+        when(transactionPersistenceService.savePendingBatch(anyList())).thenAnswer(inv -> assignIds(inv.getArgument(0)));
+    }
+
+    private List<Transaction> assignIds(List<Transaction> transactions) {
+        transactions.forEach(tx -> tx.setId(ids.incrementAndGet()));
+        return transactions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Transaction>> settledCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static TransferBatchItemResult item(TransferOutcome outcome, String message) {
+        return TransferBatchItemResult.newBuilder().setOutcome(outcome).setMessage(message).build();
+    }
+
+    private static TransferBatchResponse response(TransferBatchItemResult... results) {
+        return TransferBatchResponse.newBuilder().addAllResults(List.of(results)).build();
+    }
+}
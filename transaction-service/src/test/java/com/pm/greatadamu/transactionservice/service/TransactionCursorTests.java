@@ -0,0 +1,35 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionCursorTests {
+
+    @Test
+    void encodedCursor_decodesToTheSameId() {
+        String token = new TransactionCursor(123_456_789L).encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(TransactionCursor.decode(token)).isEqualTo(new TransactionCursor(123_456_789L));
+    }
+
+    @Test
+    void malformedToken_isRejected() {
+        assertThatThrownBy(() -> TransactionCursor.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        String notANumber = Base64.getUrlEncoder().encodeToString("abc".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> TransactionCursor.decode(notANumber))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        String dateAndId = Base64.getUrlEncoder().encodeToString("2025-03-01T10:15:30|42".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> TransactionCursor.decode(dateAndId))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+}
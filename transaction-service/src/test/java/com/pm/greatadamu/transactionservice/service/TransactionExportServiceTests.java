@@ -0,0 +1,92 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.dto.ExportFormat;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionExportServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+    @Autowired
+    private TransactionPersistenceService transactionPersistenceService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void csvExport_writesAHeaderAndOneEscapedLinePerTransaction() throws IOException {
+        Transaction rent = save(7L, "1200.00", "rent, March");
+        Transaction gift = save(7L, "15.50", "a \"gift\"");
+        save(8L, "99.99", "other customer");
+
+        List<String> lines = export(7L, ExportFormat.CSV, null, null);
+
+        assertThat(lines).containsExactly(
+                "id,customerId,amount,fromAccountId,toAccountId,description,transactionType,transactionStatus,transactionDate",
+                rent.getId() + ",7,1200.00,1,2,\"rent, March\",TRANSFER,PENDING," + storedDate(rent),
+                gift.getId() + ",7,15.50,1,2,\"a \"\"gift\"\"\",TRANSFER,PENDING," + storedDate(gift));
+    }
+
+    @Test
+    void ndjsonExport_writesOneJsonObjectPerLine() throws IOException {
+        Transaction first = save(7L, "10.00", "first");
+        Transaction second = save(7L, "20.00", "second");
+
+        List<String> lines = export(7L, ExportFormat.NDJSON, null, null);
+
+        assertThat(lines).hasSize(2);
+        JsonNode line = objectMapper.readTree(lines.get(0));
+        assertThat(line.get("id").asLong()).isEqualTo(first.getId());
+        assertThat(line.get("description").asText()).isEqualTo("first");
+        assertThat(objectMapper.readTree(lines.get(1)).get("id").asLong()).isEqualTo(second.getId());
+    }
+
+    @Test
+    void dateRange_isInclusiveOfBothDays() throws IOException {
+        save(7L, "10.00", "today");
+        LocalDate today = LocalDate.now();
+
+        assertThat(export(7L, ExportFormat.NDJSON, today, today)).hasSize(1);
+        assertThat(export(7L, ExportFormat.NDJSON, today.plusDays(1), null)).isEmpty();
+        assertThat(export(7L, ExportFormat.NDJSON, null, today.minusDays(1))).isEmpty();
+    }
+
+    @Test
+    void invertedRange_isRejectedBeforeAnythingIsStreamed() {
+        LocalDate today = LocalDate.now();
+
+        assertThatThrownBy(() -> transactionExportService.exportTransactions(7L, ExportFormat.CSV, today, today.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Transaction save(Long customerId, String amount, String description) {
+        Transaction transaction = transfer(customerId, amount);
+        transaction.setDescription(description);
+        return transactionPersistenceService.savePending(transaction);
+    }
+
+    //Postgres keeps microseconds, the entity in memory has nanoseconds
+    private LocalDateTime storedDate(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).orElseThrow().getTransactionDate();
+    }
+
+    private List<String> export(Long customerId, ExportFormat format, LocalDate from, LocalDate to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionExportService.exportTransactions(customerId, format, from, to).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.dto.TransactionPageDTO;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionPaginationTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionServices transactionServices;
+    @Autowired
+    private TransactionPersistenceService transactionPersistenceService;
+
+    @Test
+    void customerPages_stayStableWhileTransactionsSettle() {
+        List<Transaction> pending = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            pending.add(transactionPersistenceService.savePending(transfer(7L, "1.00")));
+            transactionPersistenceService.savePending(transfer(8L, "1.00"));
+        }
+
+        //settling rewrites transactionDate of rows on pages already served and not yet served
+        List<Long> served = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransactionPageDTO page = transactionServices.getTransactionsByCustomerIdPage(7L, cursor, 3);
+            page.getItems().forEach(item -> assertThat(item.getCustomerId()).isEqualTo(7L));
+            served.addAll(page.getItems().stream().map(TransactionResponseDTO::getId).toList());
+            assertThat(page.getNextCursor() != null).isEqualTo(page.isHasMore());
+            cursor = page.getNextCursor();
+            pages++;
+            transactionPersistenceService.markCompleted(pending.get(pages - 1));
+            transactionPersistenceService.markCompleted(pending.get(pending.size() - pages));
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(served)
+                .doesNotHaveDuplicates()
+                .isSortedAccordingTo(Comparator.reverseOrder())
+                .containsExactlyInAnyOrderElementsOf(pending.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    void allTransactionsPages_coverEveryRowOnce() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(transactionPersistenceService.savePending(transfer((long) i, "1.00")).getId());
+        }
+
+        TransactionPageDTO first = transactionServices.getTransactionsPage(null, 4);
+        TransactionPageDTO second = transactionServices.getTransactionsPage(first.getNextCursor(), 4);
+
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+        List<Long> served = new ArrayList<>(first.getItems().stream().map(TransactionResponseDTO::getId).toList());
+        served.addAll(second.getItems().stream().map(TransactionResponseDTO::getId).toList());
+        assertThat(served).isEqualTo(ids.reversed());
+    }
+
+    @Test
+    void pageSizeOutsideTheLimits_isRejected() {
+        assertThatThrownBy(() -> transactionServices.getTransactionsPage(null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> transactionServices.getTransactionsPage(null, 10_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
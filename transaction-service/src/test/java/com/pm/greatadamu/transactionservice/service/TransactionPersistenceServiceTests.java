@@ -0,0 +1,143 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionOutbox;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionPersistenceServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionPersistenceService transactionPersistenceService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void markCompleted_movesAPendingTransactionAndQueuesItsEvent() {
+        Transaction tx = transactionPersistenceService.savePending(transfer(7L, "10.00"));
+        double applied = transitions(TransactionStatus.COMPLETED, "applied");
+
+        Transaction result = transactionPersistenceService.markCompleted(tx);
+
+        assertThat(result.getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(statusOf(tx)).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(transactionOutboxRepository.findAll()).extracting(TransactionOutbox::getTransactionId)
+                .containsExactly(tx.getId());
+        assertThat(transitions(TransactionStatus.COMPLETED, "applied")).isEqualTo(applied + 1);
+    }
+
+    @Test
+    void settledTransaction_isNotMovedAgain() {
+        Transaction tx = transactionPersistenceService.savePending(transfer(7L, "10.00"));
+        transactionPersistenceService.markCompleted(copyOf(tx));
+        double skipped = transitions(TransactionStatus.FAILED, "skipped");
+
+        //a stale copy that still says PENDING
+        Transaction result = transactionPersistenceService.markFailed(copyOf(tx), "late refusal");
+
+        assertThat(result.getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(statusOf(tx)).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(transitions(TransactionStatus.FAILED, "skipped")).isEqualTo(skipped + 1);
+    }
+
+    @Test
+    void racingSettlements_onlyOneWins() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Transaction tx = transactionPersistenceService.savePending(transfer(7L, "10.00"));
+            CountDownLatch start = new CountDownLatch(1);
+            CompletableFuture<Transaction> completed = CompletableFuture.supplyAsync(() -> {
+                await(start);
+                return transactionPersistenceService.markCompleted(copyOf(tx));
+            });
+            CompletableFuture<Transaction> failed = CompletableFuture.supplyAsync(() -> {
+                await(start);
+                return transactionPersistenceService.markFailed(copyOf(tx), "refused");
+            });
+            start.countDown();
+
+            TransactionStatus fromCompleted = completed.get(10, TimeUnit.SECONDS).getTransactionStatus();
+            TransactionStatus fromFailed = failed.get(10, TimeUnit.SECONDS).getTransactionStatus();
+            TransactionStatus winner = statusOf(tx);
+
+            assertThat(winner).isIn(TransactionStatus.COMPLETED, TransactionStatus.FAILED);
+            //both callers report the status that won
+            assertThat(fromCompleted).isEqualTo(winner);
+            assertThat(fromFailed).isEqualTo(winner);
+            assertThat(transactionOutboxRepository.findAll().stream()
+                    .filter(row -> row.getTransactionId().equals(tx.getId())).count())
+                    .isEqualTo(winner == TransactionStatus.COMPLETED ? 1 : 0);
+        }
+    }
+
+    @Test
+    void settledBatch_onlyMovesRowsThatAreStillPending() {
+        List<Transaction> saved = transactionPersistenceService.savePendingBatch(List.of(
+                transfer(7L, "1.00"), transfer(7L, "2.00"), transfer(8L, "3.00")));
+        Transaction alreadyFailed = saved.get(0);
+        transactionPersistenceService.markFailed(copyOf(alreadyFailed), "refused");
+
+        List<Transaction> settled = saved.stream().map(this::copyOf).toList();
+        settled.get(0).setTransactionStatus(TransactionStatus.COMPLETED);
+        settled.get(1).setTransactionStatus(TransactionStatus.COMPLETED);
+        settled.get(2).setTransactionStatus(TransactionStatus.FAILED);
+        transactionPersistenceService.saveSettledBatch(settled);
+
+        assertThat(statusOf(saved.get(0))).isEqualTo(TransactionStatus.FAILED);
+        assertThat(statusOf(saved.get(1))).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(statusOf(saved.get(2))).isEqualTo(TransactionStatus.FAILED);
+        assertThat(transactionOutboxRepository.findAll()).extracting(TransactionOutbox::getTransactionId)
+                .containsExactly(saved.get(1).getId());
+    }
+
+    @Test
+    void settledBatch_reportsWhatTheDatabaseHasForRowsItDidNotMove() {
+        List<Transaction> saved = transactionPersistenceService.savePendingBatch(List.of(
+                transfer(7L, "1.00"), transfer(7L, "2.00")));
+        Transaction redriven = transactionPersistenceService.markCompleted(copyOf(saved.get(0)));
+
+        List<Transaction> settled = saved.stream().map(this::copyOf).toList();
+        settled.forEach(tx -> tx.setTransactionStatus(TransactionStatus.FAILED));
+        List<Transaction> result = transactionPersistenceService.saveSettledBatch(settled);
+
+        assertThat(result.get(0).getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(result.get(0).getTransactionDate())
+                .isEqualTo(transactionRepository.findById(redriven.getId()).orElseThrow().getTransactionDate());
+        assertThat(result.get(1).getTransactionStatus()).isEqualTo(TransactionStatus.FAILED);
+        assertThat(result.get(1).getTransactionDate()).isNotNull();
+    }
+
+    private TransactionStatus statusOf(Transaction tx) {
+        return transactionRepository.findById(tx.getId()).orElseThrow().getTransactionStatus();
+    }
+
+    //detached copy as the caller had it: still PENDING
+    private Transaction copyOf(Transaction tx) {
+        Transaction copy = transfer(tx.getCustomerId(), tx.getAmount().toPlainString());
+        copy.setId(tx.getId());
+        copy.setIdempotencyKey(tx.getIdempotencyKey());
+        copy.setTransactionStatus(TransactionStatus.PENDING);
+        return copy;
+    }
+
+    private double transitions(TransactionStatus to, String result) {
+        return meterRegistry.counter("transactions.status.transitions", "to", to.name(), "result", result).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
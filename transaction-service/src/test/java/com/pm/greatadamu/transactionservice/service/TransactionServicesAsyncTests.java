@@ -0,0 +1,155 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.grpc.account.ValidateAccountResponse;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.pm.greatadamu.transactionservice.service.TransactionServicesTests.request;
+import static com.pm.greatadamu.transactionservice.service.TransactionServicesTests.withId;
+import static com.pm.greatadamu.transactionservice.service.TransactionServicesTests.withStatus;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServicesAsyncTests {
+
+    private static final ValidateAccountResponse ACTIVE =
+            ValidateAccountResponse.newBuilder().setExists(true).setIsActive(true).build();
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountGrpcClient accountGrpcClient;
+    @Mock
+    private TransactionPersistenceService transactionPersistenceService;
+    @Mock
+    private TransactionSettlementWorkers transactionSettlementWorkers;
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private TransactionServices transactionServices;
+
+    @BeforeEach
+    void setUp() {
+        executor.initialize();
+        transactionServices = new TransactionServices(transactionRepository, new TransactionMapper(), accountGrpcClient,
+                transactionPersistenceService, executor,
+                new IdempotencyGuard(new SimpleMeterRegistry(), 1000, 600, 1000), transactionSettlementWorkers);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void settlesWithoutBlockingTheCaller() throws Exception {
+        validationsReturn(ACTIVE, ACTIVE);
+        savedAsPending();
+        when(accountGrpcClient.transferAsync(eq(1L), eq(2L), any(), eq("key-1"), any()))
+                .thenReturn(CompletableFuture.completedFuture(TransferResponse.newBuilder().build()));
+        when(transactionPersistenceService.markCompleted(any()))
+                .thenAnswer(inv -> withStatus(inv.getArgument(0), TransactionStatus.COMPLETED));
+
+        TransactionResponseDTO response = transactionServices.createTransactionAsync(request("key-1"))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+    }
+
+    @Test
+    void inactiveAccountFailsBeforeAnythingIsStored() {
+        validationsReturn(ACTIVE, ValidateAccountResponse.newBuilder().setExists(true).setIsActive(false).build());
+
+        CompletableFuture<TransactionResponseDTO> result = transactionServices.createTransactionAsync(request("key-1"));
+
+        assertThat(result).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat().withMessageContaining("Destination account is not active");
+        verify(transactionPersistenceService, never()).savePending(any());
+    }
+
+    @Test
+    void refusedTransferFailsTheTransaction() {
+        validationsReturn(ACTIVE, ACTIVE);
+        savedAsPending();
+        when(accountGrpcClient.transferAsync(any(), any(), any(), any(), any())).thenReturn(CompletableFuture.failedFuture(
+                Status.FAILED_PRECONDITION.withDescription("Insufficient funds").asRuntimeException()));
+
+        CompletableFuture<TransactionResponseDTO> result = transactionServices.createTransactionAsync(request("key-1"));
+
+        assertThat(result).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat().withMessageContaining("Insufficient funds");
+        verify(transactionPersistenceService).markFailed(any(), eq("Insufficient funds"));
+    }
+
+    @Test
+    void unknownOutcomeIsAcceptedAsPending() throws Exception {
+        validationsReturn(ACTIVE, ACTIVE);
+        savedAsPending();
+        when(accountGrpcClient.transferAsync(any(), any(), any(), any(), any())).thenReturn(
+                CompletableFuture.failedFuture(Status.DEADLINE_EXCEEDED.asRuntimeException()));
+
+        TransactionResponseDTO response = transactionServices.createTransactionAsync(request("key-1"))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getTransactionStatus()).isEqualTo(TransactionStatus.PENDING);
+        verify(transactionSettlementWorkers).submit(any());
+        verify(transactionPersistenceService, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void nonGrpcErrorIsNotTreatedAsARefusal() throws Exception {
+        validationsReturn(ACTIVE, ACTIVE);
+        savedAsPending();
+        when(accountGrpcClient.transferAsync(any(), any(), any(), any(), any())).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("channel shut down")));
+
+        TransactionResponseDTO response = transactionServices.createTransactionAsync(request("key-1"))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getTransactionStatus()).isEqualTo(TransactionStatus.PENDING);
+        verify(transactionPersistenceService, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void transferThatCannotBeEncodedFailsTheTransaction() {
+        validationsReturn(ACTIVE, ACTIVE);
+        savedAsPending();
+        when(accountGrpcClient.transferAsync(any(), any(), any(), any(), any())).thenReturn(
+                CompletableFuture.failedFuture(new IllegalArgumentException("Amount does not fit in Money: 1")));
+
+        assertThat(transactionServices.createTransactionAsync(request("key-1")))
+                .failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat().withMessageContaining("does not fit");
+        verify(transactionPersistenceService).markFailed(any(), eq("Invalid transfer: Amount does not fit in Money: 1"));
+        verify(transactionSettlementWorkers, never()).submit(any());
+    }
+
+    private void validationsReturn(ValidateAccountResponse source, ValidateAccountResponse destination) {
+        when(accountGrpcClient.validateAccountAsync(1L)).thenReturn(CompletableFuture.completedFuture(source));
+        when(accountGrpcClient.validateAccountAsync(2L)).thenReturn(CompletableFuture.completedFuture(destination));
+    }
+
+    private void savedAsPending() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+    }
+}
@@ -0,0 +1,35 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.transactionservice.PostgresIntegrationTest;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class TransactionServicesConnectionTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionServices transactionServices;
+
+    @Test
+    void transferRuns_withoutAnOpenTransaction() {
+        AtomicBoolean inTransaction = new AtomicBoolean(true);
+        when(accountGrpcClient.transfer(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            inTransaction.set(TransactionSynchronizationManager.isActualTransactionActive());
+            return TransferResponse.getDefaultInstance();
+        });
+
+        TransactionResponseDTO response = transactionServices.createTransaction(TransactionServicesTests.request("key-1"));
+
+        assertThat(response.getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        assertThat(inTransaction).isFalse();
+    }
+}
@@ -0,0 +1,195 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.transactionservice.dto.TransactionRequestDTO;
+import com.pm.greatadamu.transactionservice.dto.TransactionResponseDTO;
+import com.pm.greatadamu.transactionservice.exception.IdempotencyConflictReturnExisting;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.mapper.TransactionMapper;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.model.TransactionType;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServicesTests {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private AccountGrpcClient accountGrpcClient;
+    @Mock
+    private TransactionPersistenceService transactionPersistenceService;
+    @Mock
+    private TransactionSettlementWorkers transactionSettlementWorkers;
+
+    private final TransactionMapper transactionMapper = new TransactionMapper();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private TransactionServices transactionServices;
+
+    @BeforeEach
+    void setUp() {
+        executor.initialize();
+        IdempotencyGuard idempotencyGuard = new IdempotencyGuard(new SimpleMeterRegistry(), 1000, 600, 1000);
+        transactionServices = new TransactionServices(transactionRepository, transactionMapper, accountGrpcClient,
+                transactionPersistenceService, executor, idempotencyGuard, transactionSettlementWorkers);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void completedAfterOneTransferCall() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+        when(accountGrpcClient.transfer(eq(1L), eq(2L), any(), eq("key-1"), anyString()))
+                .thenReturn(TransferResponse.newBuilder().setFromNewBalance("60.00").setToNewBalance("40.00").build());
+        when(transactionPersistenceService.markCompleted(any())).thenAnswer(inv -> withStatus(inv.getArgument(0), TransactionStatus.COMPLETED));
+
+        TransactionResponseDTO response = transactionServices.createTransaction(request("key-1"));
+
+        assertThat(response.getId()).isEqualTo(7L);
+        assertThat(response.getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        verify(accountGrpcClient, times(1)).transfer(any(), any(), any(), any(), any());
+        verify(transactionSettlementWorkers, never()).submit(any());
+    }
+
+    @Test
+    void refusedTransferMarksTheTransactionFailed() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+        when(accountGrpcClient.transfer(any(), any(), any(), any(), any()))
+                .thenThrow(Status.FAILED_PRECONDITION.withDescription("Insufficient funds").asRuntimeException());
+
+        assertThatThrownBy(() -> transactionServices.createTransaction(request("key-1")))
+                .hasMessageContaining("Insufficient funds");
+
+        verify(transactionPersistenceService).markFailed(any(), eq("Insufficient funds"));
+        verify(transactionSettlementWorkers, never()).submit(any());
+    }
+
+    @Test
+    void unknownOutcomeStaysPendingAndIsRedriven() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+        for (Status status : new Status[]{Status.DEADLINE_EXCEEDED, Status.UNAVAILABLE, Status.INTERNAL, Status.CANCELLED}) {
+            String key = "key-" + status.getCode();
+            when(accountGrpcClient.transfer(any(), any(), any(), eq(key), any())).thenThrow(status.asRuntimeException());
+
+            TransactionResponseDTO response = transactionServices.createTransaction(request(key));
+
+            assertThat(response.getTransactionStatus()).as(status.getCode().name()).isEqualTo(TransactionStatus.PENDING);
+        }
+        verify(transactionPersistenceService, never()).markFailed(any(), any());
+        verify(transactionSettlementWorkers, times(4)).submit(any());
+    }
+
+    @Test
+    void retryOfACompletedKeyIsAnsweredWithoutAnotherTransfer() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+        when(accountGrpcClient.transfer(any(), any(), any(), any(), any()))
+                .thenReturn(TransferResponse.newBuilder().build());
+        when(transactionPersistenceService.markCompleted(any())).thenAnswer(inv -> withStatus(inv.getArgument(0), TransactionStatus.COMPLETED));
+        transactionServices.createTransaction(request("key-1"));
+
+        assertThatThrownBy(() -> transactionServices.createTransaction(request("key-1")))
+                .isInstanceOfSatisfying(IdempotencyConflictReturnExisting.class, e -> {
+                    assertThat(e.getExisting().getId()).isEqualTo(7L);
+                    assertThat(e.getExisting().getTransactionStatus()).isEqualTo(TransactionStatus.COMPLETED);
+                });
+        verify(accountGrpcClient, times(1)).transfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void keyAlreadyInTheDatabaseReturnsTheExistingTransaction() {
+        Transaction existing = withStatus(withId(transactionMapper.mapToEntity(request("key-1")), 3L), TransactionStatus.COMPLETED);
+        when(transactionPersistenceService.savePending(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(transactionRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> transactionServices.createTransaction(request("key-1")))
+                .isInstanceOfSatisfying(IdempotencyConflictReturnExisting.class,
+                        e -> assertThat(e.getExisting().getId()).isEqualTo(3L));
+        verify(accountGrpcClient, never()).transfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void amountBeyondTheColumnOrMoney_isRejectedBeforeAnythingIsStored() {
+        for (String amount : new String[]{"12345678901234567890", "1.0000000000000000001", "0.001", "0"}) {
+            TransactionRequestDTO request = request("key-" + amount);
+            request.setAmount(new BigDecimal(amount));
+
+            assertThatThrownBy(() -> transactionServices.createTransaction(request))
+                    .as(amount)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        verify(transactionPersistenceService, never()).savePending(any());
+    }
+
+    @Test
+    void amountLimits_ignoreTrailingZeros() {
+        assertThat(TransactionServices.invalidAmountReason(new BigDecimal("9999999999999999.99"))).isNull();
+        assertThat(TransactionServices.invalidAmountReason(new BigDecimal("10.500"))).isNull();
+        assertThat(TransactionServices.invalidAmountReason(new BigDecimal("1E+3"))).isNull();
+        assertThat(TransactionServices.invalidAmountReason(new BigDecimal("10000000000000000"))).isNotNull();
+    }
+
+    @Test
+    void transferThatCannotBeEncoded_failsTheTransaction() {
+        when(transactionPersistenceService.savePending(any())).thenAnswer(inv -> withId(inv.getArgument(0), 7L));
+        when(accountGrpcClient.transfer(any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Amount does not fit in Money: 1"));
+
+        assertThatThrownBy(() -> transactionServices.createTransaction(request("key-1")))
+                .hasMessageContaining("does not fit");
+
+        verify(transactionPersistenceService).markFailed(any(), eq("Invalid transfer: Amount does not fit in Money: 1"));
+        verify(transactionSettlementWorkers, never()).submit(any());
+    }
+
+    @Test
+    void onlyRefusalsAreDefinitiveFailures() {
+        assertThat(TransactionServices.isDefinitiveFailure(Status.FAILED_PRECONDITION.asRuntimeException())).isTrue();
+        assertThat(TransactionServices.isDefinitiveFailure(Status.NOT_FOUND.asRuntimeException())).isTrue();
+        assertThat(TransactionServices.isDefinitiveFailure(Status.INVALID_ARGUMENT.asRuntimeException())).isTrue();
+        assertThat(TransactionServices.isDefinitiveFailure(Status.DEADLINE_EXCEEDED.asRuntimeException())).isFalse();
+        assertThat(TransactionServices.isDefinitiveFailure(Status.UNKNOWN.asRuntimeException())).isFalse();
+        assertThat(TransactionServices.isDefinitiveFailure(Status.ABORTED.asRuntimeException())).isFalse();
+    }
+
+    static TransactionRequestDTO request(String idempotencyKey) {
+        return new TransactionRequestDTO(10L, idempotencyKey, new BigDecimal("40.00"), 1L, 2L, "rent",
+                TransactionType.TRANSFER);
+    }
+
+    static Transaction withId(Transaction transaction, Long id) {
+        transaction.setId(id);
+        return transaction;
+    }
+
+    static Transaction withStatus(Transaction transaction, TransactionStatus status) {
+        transaction.setTransactionStatus(status);
+        return transaction;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionStatus;
+import com.pm.greatadamu.transactionservice.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionSettlementSweeperTests {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionSettlementWorkers transactionSettlementWorkers;
+    @InjectMocks
+    private TransactionSettlementSweeper sweeper;
+
+    @Test
+    void stalePendingTransactions_areSubmittedAgain() {
+        ReflectionTestUtils.setField(sweeper, "staleAfterMs", 60_000L);
+        ReflectionTestUtils.setField(sweeper, "sweepBatchSize", 100);
+        Transaction first = Transaction.builder().id(1L).build();
+        Transaction second = Transaction.builder().id(2L).build();
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(transactionRepository.findByTransactionStatusAndTransactionDateBeforeOrderById(
+                eq(TransactionStatus.PENDING), cutoff.capture(), eq(Limit.of(100)))).thenReturn(List.of(first, second));
+
+        LocalDateTime before = LocalDateTime.now();
+        sweeper.sweep();
+        LocalDateTime after = LocalDateTime.now();
+
+        verify(transactionSettlementWorkers).submit(first);
+        verify(transactionSettlementWorkers).submit(second);
+        //only rows PENDING for longer than stale-after-ms
+        assertThat(cutoff.getValue()).isBetween(before.minusSeconds(60), after.minusSeconds(60));
+    }
+}
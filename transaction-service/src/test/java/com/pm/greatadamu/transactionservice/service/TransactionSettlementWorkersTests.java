@@ -0,0 +1,158 @@
+package com.pm.greatadamu.transactionservice.service;
+
+import com.pm.greatadamu.grpc.account.TransferResponse;
+import com.pm.greatadamu.transactionservice.gRPC.AccountGrpcClient;
+import com.pm.greatadamu.transactionservice.model.Transaction;
+import com.pm.greatadamu.transactionservice.model.TransactionType;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionSettlementWorkersTests {
+
+    @Mock
+    private AccountGrpcClient accountGrpcClient;
+    @Mock
+    private TransactionPersistenceService transactionPersistenceService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionSettlementWorkers workers;
+
+    @BeforeEach
+    void setUp() {
+        workers = new TransactionSettlementWorkers(accountGrpcClient, transactionPersistenceService, meterRegistry, 4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdown();
+    }
+
+    @Test
+    void transfersFromTheSameAccount_settleInSubmissionOrder() {
+        List<String> settled = new CopyOnWriteArrayList<>();
+        when(accountGrpcClient.transfer(eq(1L), anyLong(), any(), anyString(), anyString())).thenAnswer(invocation -> {
+            settled.add(invocation.getArgument(3));
+            return TransferResponse.getDefaultInstance();
+        });
+        //room for all 50 in one lane
+        workers.shutdown();
+        workers = new TransactionSettlementWorkers(accountGrpcClient, transactionPersistenceService,
+                new SimpleMeterRegistry(), 4, 100);
+
+        List<Transaction> transactions = LongStream.rangeClosed(1, 50).mapToObj(id -> pending(id, 1L)).toList();
+        transactions.forEach(tx -> assertThat(workers.submit(tx)).isTrue());
+
+        verify(transactionPersistenceService, timeout(5000).times(50)).markCompleted(any());
+        assertThat(settled).containsExactlyElementsOf(transactions.stream().map(Transaction::getIdempotencyKey).toList());
+    }
+
+    @Test
+    void refusedTransfer_isMarkedFailed() {
+        Transaction tx = pending(1L, 1L);
+        when(accountGrpcClient.transfer(anyLong(), anyLong(), any(), anyString(), anyString()))
+                .thenThrow(Status.FAILED_PRECONDITION.withDescription("Insufficient funds").asRuntimeException());
+
+        workers.submit(tx);
+
+        verify(transactionPersistenceService, timeout(5000)).markFailed(tx, "Insufficient funds");
+        verify(transactionPersistenceService, never()).markCompleted(any());
+    }
+
+    @Test
+    void transferThatCannotBeEncoded_isMarkedFailedInsteadOfRedriven() {
+        Transaction tx = pending(1L, 1L);
+        when(accountGrpcClient.transfer(anyLong(), anyLong(), any(), anyString(), anyString()))
+                .thenThrow(new IllegalArgumentException("Amount does not fit in Money: 1"));
+
+        workers.submit(tx);
+
+        verify(transactionPersistenceService, timeout(5000)).markFailed(tx, "Invalid transfer: Amount does not fit in Money: 1");
+        verify(transactionPersistenceService, never()).markCompleted(any());
+    }
+
+    @Test
+    void unknownOutcome_staysPendingForTheSweeper() throws Exception {
+        when(accountGrpcClient.transfer(eq(1L), anyLong(), any(), anyString(), anyString()))
+                .thenThrow(Status.UNAVAILABLE.asRuntimeException());
+        when(accountGrpcClient.transfer(eq(2L), anyLong(), any(), anyString(), anyString()))
+                .thenThrow(new IllegalStateException("channel closed"));
+        Transaction unavailable = pending(1L, 1L);
+        Transaction broken = pending(2L, 2L);
+
+        workers.submit(unavailable);
+        workers.submit(broken);
+
+        //once settle() returned they are no longer queued, so the sweeper can submit them again
+        awaitResubmitted(unavailable);
+        awaitResubmitted(broken);
+        verify(transactionPersistenceService, never()).markFailed(any(), anyString());
+        verify(transactionPersistenceService, never()).markCompleted(any());
+    }
+
+    @Test
+    void queuedTransaction_isNotSubmittedTwice_andAFullLaneRejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountGrpcClient.transfer(anyLong(), anyLong(), any(), anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return TransferResponse.getDefaultInstance();
+        });
+        try {
+            //same source account: one lane, one running + queue capacity 2
+            assertThat(workers.submit(pending(1L, 1L))).isTrue();
+            verify(accountGrpcClient, timeout(5000)).transfer(anyLong(), anyLong(), any(), anyString(), anyString());
+            assertThat(workers.submit(pending(2L, 1L))).isTrue();
+            assertThat(workers.submit(pending(2L, 1L))).isFalse();
+            assertThat(workers.submit(pending(3L, 1L))).isTrue();
+            assertThat(workers.submit(pending(4L, 1L))).isFalse();
+            assertThat(meterRegistry.get("transactions.settlement.rejected").counter().count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+        }
+        verify(transactionPersistenceService, timeout(5000).times(3)).markCompleted(any());
+    }
+
+    private void awaitResubmitted(Transaction transaction) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!workers.submit(transaction)) {
+            assertThat(System.nanoTime()).as("resubmitted in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Transaction pending(Long id, Long fromAccountId) {
+        return Transaction.builder()
+                .id(id)
+                .idempotencyKey("key-" + id)
+                .customerId(10L)
+                .amount(new BigDecimal("5.00"))
+                .fromAccountId(fromAccountId)
+                .toAccountId(99L)
+                .transactionType(TransactionType.TRANSFER)
+                .build();
+    }
+}